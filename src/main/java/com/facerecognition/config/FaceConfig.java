@@ -4,6 +4,10 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * 人脸识别配置属性
  */
@@ -16,6 +20,15 @@ public class FaceConfig {
     private Recognition recognition = new Recognition();
     private Alignment alignment = new Alignment();
     private Debug debug = new Debug();
+    private HotCache hotCache = new HotCache();
+    private Gallery gallery = new Gallery();
+    private Listing listing = new Listing();
+    private Pipeline pipeline = new Pipeline();
+    private Deadline deadline = new Deadline();
+    private RequestPriority priority = new RequestPriority();
+    private Batch batch = new Batch();
+    private Enroll enroll = new Enroll();
+    private ResultCache resultCache = new ResultCache();
     
     @Data
     public static class Detection {
@@ -68,4 +81,245 @@ public class FaceConfig {
          */
         private String outputDir = "debug_output";
     }
+    
+    @Data
+    public static class HotCache {
+        /**
+         * 是否启用热点人员L1缓存
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 缓存容量 (人脸向量条数)
+         */
+        private int capacity = 1024;
+        
+        /**
+         * 置信度余量：L1最佳相似度 >= 阈值 + 余量 时直接返回，不再查询Milvus
+         */
+        private float margin = 0.1f;
+        
+        /**
+         * 淘汰策略: LRU (最近最少使用), LFU (最不经常使用)
+         */
+        private String eviction = "LRU";
+    }
+    
+    @Data
+    public static class ResultCache {
+        /**
+         * 是否启用识别结果缓存 (按图片内容哈希 + 请求参数)
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 最大缓存条数，超出时按LRU淘汰
+         */
+        private int capacity = 10000;
+        
+        /**
+         * 缓存有效期 (毫秒)
+         */
+        private long ttlMs = 30000;
+    }
+    
+    @Data
+    public static class Pipeline {
+        /**
+         * 是否启用分阶段识别流水线 (关闭时在请求线程上串行执行)
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 解码+检测+对齐阶段线程数 (CPU密集)
+         */
+        private int detectThreads = 2;
+        
+        /**
+         * 特征提取阶段线程数 (CPU密集)
+         */
+        private int embedThreads = 2;
+        
+        /**
+         * 向量检索阶段线程数 (I/O密集，等待Milvus响应)
+         */
+        private int searchThreads = 16;
+        
+        /**
+         * 每个阶段每个优先级的等待队列容量，队列满时直接拒绝 (503)
+         */
+        private int queueCapacity = 32;
+        
+        /**
+         * 单个请求在流水线中的最长等待时间 (毫秒)
+         */
+        private long timeoutMs = 10000;
+    }
+    
+    @Data
+    public static class Deadline {
+        /**
+         * 是否启用请求截止时间 (超过截止时间的请求放弃处理，返回504)
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 客户端指定剩余超时时间的请求头 (毫秒)
+         */
+        private String header = "X-Request-Timeout-Ms";
+        
+        /**
+         * 未携带请求头时的默认超时时间 (毫秒)，仅对 default-paths 生效，0 表示不设默认截止时间
+         */
+        private long defaultTimeoutMs = 5000;
+        
+        /**
+         * 客户端可指定的最大超时时间 (毫秒)
+         */
+        private long maxTimeoutMs = 30000;
+        
+        /**
+         * 使用默认超时时间的接口路径 (Ant风格，不含context-path)，批量接口沿用各自的超时配置
+         */
+        private List<String> defaultPaths = new ArrayList<>(Arrays.asList(
+                "/face/recognize", "/face/recognize/upload", "/face/recognize/aligned/**",
+                "/face/verify/**", "/face/verify", "/face/search/embedding"));
+        
+        /**
+         * 按各阶段排队深度与近期处理耗时估算等待时间，预计赶不上截止时间的请求在入队前直接拒绝 (503)
+         */
+        private boolean shedByQueueDepth = true;
+    }
+    
+    @Data
+    public static class RequestPriority {
+        /**
+         * 客户端指定请求优先级的请求头 (INTERACTIVE / STANDARD / BULK)，只能低于接口的默认优先级
+         */
+        private String header = "X-Request-Priority";
+        
+        /**
+         * 未携带请求头时按批量 (BULK) 调度的接口路径 (Ant风格，不含context-path)，优先于交互式路径匹配
+         */
+        private List<String> bulkPaths = new ArrayList<>(Arrays.asList("/face/recognize/batch"));
+        
+        /**
+         * 未携带请求头时按交互式 (INTERACTIVE) 调度的接口路径 (Ant风格，不含context-path)，其余接口为 STANDARD
+         */
+        private List<String> interactivePaths = new ArrayList<>(Arrays.asList(
+                "/face/recognize", "/face/recognize/upload", "/face/recognize/aligned/**",
+                "/face/verify/**", "/face/verify", "/face/search/embedding"));
+    }
+    
+    @Data
+    public static class Batch {
+        /**
+         * 单次批量识别的最大图片数
+         */
+        private int maxImages = 64;
+        
+        /**
+         * 单张图片大小上限 (字节)
+         */
+        private long maxImageBytes = 10 * 1024 * 1024;
+        
+        /**
+         * 特征提取时合并为一次推理的人脸数
+         */
+        private int embedBatchSize = 16;
+        
+        /**
+         * 单个批量请求在每个流水线阶段队列中同时占用的任务数上限，超出部分由请求线程自行执行
+         */
+        private int maxQueuedPerRequest = 8;
+        
+        /**
+         * 按特征向量检索时单次最多向量数
+         */
+        private int maxEmbeddings = 256;
+        
+        /**
+         * 单次批量识别的最长处理时间 (毫秒)
+         */
+        private long timeoutMs = 60000;
+    }
+    
+    @Data
+    public static class Enroll {
+        /**
+         * 服务器端批量注册目录的根目录，任务只能读取该目录下的子目录
+         */
+        private String rootDir = "enroll";
+        
+        /**
+         * 上传zip包的解压目录，任务结束后删除
+         */
+        private String workDir = "enroll_work";
+        
+        /**
+         * 解码+检测+对齐+特征提取的并行线程数，0表示CPU核数
+         */
+        private int threads = 0;
+        
+        /**
+         * 每批写入向量库的人脸数
+         */
+        private int writeBatchSize = 256;
+        
+        /**
+         * 特征提取时合并为一次推理的人脸数
+         */
+        private int embedBatchSize = 16;
+        
+        /**
+         * 单张图片大小上限 (字节)
+         */
+        private long maxImageBytes = 10 * 1024 * 1024;
+        
+        /**
+         * 上传zip包最多文件数
+         */
+        private int maxZipEntries = 200000;
+        
+        /**
+         * 状态中保留的失败明细条数上限 (失败总数仍全部计数)
+         */
+        private int maxReportedFailures = 1000;
+        
+        /**
+         * 保留的已结束任务数
+         */
+        private int maxRetainedJobs = 20;
+    }
+    
+    @Data
+    public static class Listing {
+        /**
+         * 分页查询默认每页数量
+         */
+        private int defaultPageSize = 100;
+        
+        /**
+         * 分页查询每页数量上限
+         */
+        private int maxPageSize = 1000;
+        
+        /**
+         * NDJSON流式列表每次从Milvus读取的行数
+         */
+        private int streamPageSize = 1000;
+    }
+    
+    @Data
+    public static class Gallery {
+        /**
+         * 人脸库导出/导入文件目录
+         */
+        private String dir = "gallery_export";
+        
+        /**
+         * 导出每页查询行数 / 导入每批写入行数
+         */
+        private int batchSize = 1000;
+    }
 }
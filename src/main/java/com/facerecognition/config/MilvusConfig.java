@@ -4,6 +4,11 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Milvus配置
  */
@@ -17,8 +22,57 @@ public class MilvusConfig {
     private String username = "root";
     private String password = "Milvus";
     
+    private ClientPool clientPool = new ClientPool();
+    
     private Collection collection = new Collection();
     
+    private Search search = new Search();
+    
+    private MetadataCache metadataCache = new MetadataCache();
+    
+    private Advisor advisor = new Advisor();
+    
+    private RecallMonitor recallMonitor = new RecallMonitor();
+    
+    private Sharding sharding = new Sharding();
+    
+    private Delete delete = new Delete();
+    
+    private Compaction compaction = new Compaction();
+    
+    @Data
+    public static class ClientPool {
+        /**
+         * 客户端数量 (每个客户端独立一条gRPC通道，检索/写入轮询选用)
+         */
+        private int size = 4;
+        
+        /**
+         * 检索超时 (毫秒)，0表示不限
+         */
+        private long searchTimeoutMs = 3000;
+        
+        /**
+         * 写入超时 (毫秒)，0表示不限
+         */
+        private long writeTimeoutMs = 10000;
+        
+        /**
+         * 同时进行的检索/批量读写数上限，按优先级分配 (交互式 > 普通 > 批量)，<=0 表示不限制
+         */
+        private int maxInFlight = 0;
+        
+        /**
+         * 批量任务 (BULK) 最多可占用的比例，至少1个
+         */
+        private float bulkShare = 0.25f;
+        
+        /**
+         * 等待许可超时 (毫秒)，超时返回503；批量任务一直等待
+         */
+        private long acquireTimeoutMs = 3000;
+    }
+    
     @Data
     public static class Collection {
         /**
@@ -26,6 +80,16 @@ public class MilvusConfig {
          */
         private String name = "face_vectors";
         
+        /**
+         * 集合别名 (为空时直接访问集合；设置后所有读写经由别名，支持重建索引后原子切换)
+         */
+        private String alias;
+        
+        /**
+         * 分组字段 (group_id，作为partition key) 的分区数，检索按分组过滤时只扫描对应分区
+         */
+        private int groupPartitions = 64;
+        
         /**
          * 向量维度
          */
@@ -46,9 +110,302 @@ public class MilvusConfig {
          */
         private int nlist = 1024;
         
+        /**
+         * HNSW索引的M参数 (每个节点的最大连接数)
+         */
+        private int hnswM = 16;
+        
+        /**
+         * HNSW索引的efConstruction参数
+         */
+        private int efConstruction = 200;
+        
+        /**
+         * IVF_PQ索引的m参数 (子量化器个数，需整除向量维度)
+         */
+        private int pqM = 16;
+        
+        /**
+         * IVF_PQ索引的nbits参数
+         */
+        private int nbits = 8;
+        
         /**
          * nprobe参数
          */
         private int nprobe = 10;
+        
+        /**
+         * HNSW索引的ef参数
+         */
+        private int ef = 64;
+    }
+    
+    @Data
+    public static class MetadataCache {
+        /**
+         * 是否启用人脸元数据本地缓存 (检索只返回ID和分数，由缓存补全人员信息)
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 启动时分页加载的每页数量
+         */
+        private int loadBatchSize = 10000;
+    }
+    
+    @Data
+    public static class Advisor {
+        /**
+         * 是否启用索引顾问定时任务
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 是否自动应用建议 (调整默认nprobe、规模变化超过阈值时触发索引重建)，否则仅记录建议
+         */
+        private boolean autoApply = false;
+        
+        /**
+         * 执行间隔 (毫秒)
+         */
+        private long intervalMs = 3600000;
+        
+        /**
+         * 目标召回率 (Recall@K)
+         */
+        private float targetRecall = 0.95f;
+        
+        /**
+         * 测量召回率时抽样的库中向量数
+         */
+        private int sampleSize = 100;
+        
+        /**
+         * 测量召回率使用的K
+         */
+        private int topK = 10;
+        
+        /**
+         * nlist系数：建议 nlist = factor * sqrt(行数)
+         */
+        private float nlistFactor = 4.0f;
+        
+        /**
+         * 行数不超过该值时建议使用FLAT (暴力检索)
+         */
+        private long flatMaxRows = 20000;
+        
+        /**
+         * 建议nlist与当前nlist相差超过该倍数 (或建议的索引类型不同) 时触发重建
+         */
+        private float rebuildRatio = 2.0f;
+    }
+    
+    @Data
+    public static class RecallMonitor {
+        /**
+         * 是否启用在线召回率监控
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 抽样比例 (0-1)，被抽中的线上查询会在后台以精确检索复查
+         */
+        private double sampleRate = 0.01;
+        
+        /**
+         * 后台复查队列容量，队列满时丢弃样本
+         */
+        private int queueSize = 64;
+        
+        /**
+         * HNSW索引复查时使用的ef (IVF索引复查使用nprobe=nlist)
+         */
+        private int exactEf = 512;
+    }
+    
+    @Data
+    public static class Sharding {
+        /**
+         * 是否启用分片 (主集合为0号分片，shards中配置的为1..N号分片)
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 额外分片列表，可位于不同的Milvus实例
+         */
+        private List<Shard> shards = new ArrayList<>();
+        
+        /**
+         * 分片并行检索的超时时间 (毫秒)，超时的分片结果被丢弃
+         */
+        private long searchTimeoutMs = 2000;
+        
+        /**
+         * 重新分片时每批迁移的行数
+         */
+        private int rebalanceBatchSize = 1000;
+    }
+    
+    @Data
+    public static class Delete {
+        /**
+         * 批量删除时每个 in [...] 表达式包含的ID数量
+         */
+        private int chunkSize = 500;
+    }
+    
+    @Data
+    public static class Compaction {
+        /**
+         * 是否在删除比例达到阈值时自动触发压缩 (清理删除标记，恢复检索性能)
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 自上次压缩以来删除的行数占集合行数的比例阈值
+         */
+        private double deletedRatio = 0.1;
+        
+        /**
+         * 触发压缩的最少删除行数 (避免小集合频繁压缩)
+         */
+        private long minDeletedRows = 1000;
+        
+        /**
+         * 定期检查间隔 (毫秒)
+         */
+        private long checkIntervalMs = 60000;
+    }
+    
+    @Data
+    public static class Shard {
+        private String host = "localhost";
+        private int port = 19530;
+        private String username = "root";
+        private String password = "Milvus";
+        
+        /**
+         * 分片集合名称
+         */
+        private String collection = "face_vectors";
+    }
+    
+    @Data
+    public static class Search {
+        /**
+         * 是否启用范围检索：将相似度阈值下推为度量半径，由Milvus只返回达到阈值的结果
+         */
+        private boolean rangeSearch = false;
+        
+        /**
+         * 两阶段检索（候选过采样 + 本地精确重排序）
+         */
+        private Rerank rerank = new Rerank();
+        
+        /**
+         * 自适应两阶段nprobe检索
+         */
+        private Adaptive adaptive = new Adaptive();
+        
+        /**
+         * 默认检索配置名称，为空时使用上面的全局检索参数
+         */
+        private String defaultProfile;
+        
+        /**
+         * 命名检索配置 (如 fast / balanced / exact)，可按请求选择
+         */
+        private Map<String, Profile> profiles = new LinkedHashMap<>();
+    }
+    
+    @Data
+    public static class Rerank {
+        /**
+         * 是否启用精确重排序 (对IVF_FLAT (oversample > 1) 与IVF_SQ8、IVF_PQ、HNSW_SQ/PQ/PRQ量化索引生效，FLAT与HNSW跳过)
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 候选过采样倍数 (向Milvus请求 topK * oversample 个候选)
+         */
+        private int oversample = 4;
+        
+        /**
+         * 候选阶段使用的nprobe (可低于collection.nprobe以降低Milvus开销)
+         */
+        private int nprobe = 4;
+        
+        /**
+         * 本地特征向量缓存容量
+         */
+        private int cacheSize = 10000;
+    }
+    
+    @Data
+    public static class Adaptive {
+        /**
+         * 是否启用自适应检索
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 第一轮使用的低nprobe
+         */
+        private int firstNprobe = 4;
+        
+        /**
+         * 第二轮使用的nprobe (<=0 表示精确检索，即nprobe=nlist)
+         */
+        private int secondNprobe = 32;
+        
+        /**
+         * HNSW索引第一轮使用的ef (<=0 表示collection.ef)
+         */
+        private int firstEf = 0;
+        
+        /**
+         * HNSW索引第二轮使用的ef (<=0 表示collection.ef的4倍)，不低于topK
+         */
+        private int secondEf = 0;
+        
+        /**
+         * 不确定区间半宽：第一轮最佳相似度落在 [阈值 - band, 阈值 + band] 内时执行第二轮
+         */
+        private float band = 0.05f;
+    }
+    
+    @Data
+    public static class Profile {
+        /**
+         * IVF索引的nprobe (为空时使用collection.nprobe，<=0 表示精确检索)
+         */
+        private Integer nprobe;
+        
+        /**
+         * HNSW索引的ef (为空时使用collection.ef)
+         */
+        private Integer ef;
+        
+        /**
+         * 一致性级别: STRONG, BOUNDED, SESSION, EVENTUALLY
+         */
+        private String consistencyLevel = "BOUNDED";
+        
+        /**
+         * 是否对候选做本地精确重排序
+         */
+        private boolean rerank = false;
+        
+        /**
+         * 重排序的候选过采样倍数
+         */
+        private int oversample = 1;
+        
+        /**
+         * 是否允许热点人员L1缓存直接返回结果
+         */
+        private boolean hotCache = true;
     }
 }
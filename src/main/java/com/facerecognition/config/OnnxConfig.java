@@ -14,6 +14,7 @@ public class OnnxConfig {
     
     private Model model = new Model();
     private ThreadPool threadPool = new ThreadPool();
+    private Limiter limiter = new Limiter();
     
     @Data
     public static class Model {
@@ -40,4 +41,32 @@ public class OnnxConfig {
          */
         private int maxSize = 8;
     }
+    
+    @Data
+    public static class Limiter {
+        /**
+         * 是否限制同时进行的ONNX推理数
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 许可数 (同时推理数上限)，<=0 时取可用处理器数
+         */
+        private int permits = 0;
+        
+        /**
+         * 等待许可超时 (毫秒)
+         */
+        private long acquireTimeoutMs = 5000;
+        
+        /**
+         * 是否按请求优先级分配许可；关闭时所有推理按到达顺序排队 (公平信号量)，bulk-share 不生效
+         */
+        private boolean prioritized = false;
+        
+        /**
+         * 批量任务 (BULK) 最多可同时占用的许可比例，至少1个
+         */
+        private float bulkShare = 0.5f;
+    }
 }
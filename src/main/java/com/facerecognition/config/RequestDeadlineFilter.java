@@ -0,0 +1,75 @@
+package com.facerecognition.config;
+
+import com.facerecognition.util.Deadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 请求截止时间过滤器
+ * 读取客户端请求头中的剩余超时时间（未携带时交互接口使用默认值），绑定到请求线程，
+ * 由识别流水线带到各阶段线程，供检测、特征提取、向量检索前检查
+ */
+@Slf4j
+@Component
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+    
+    @Autowired
+    private FaceConfig faceConfig;
+    
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !faceConfig.getDeadline().isEnabled();
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long timeoutMs = resolveTimeoutMs(request);
+        if (timeoutMs <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        Deadline.attach(Deadline.after(timeoutMs));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Deadline.detach();
+        }
+    }
+    
+    private long resolveTimeoutMs(HttpServletRequest request) {
+        FaceConfig.Deadline config = faceConfig.getDeadline();
+        
+        String header = request.getHeader(config.getHeader());
+        if (header != null && !header.isBlank()) {
+            try {
+                long timeoutMs = Long.parseLong(header.trim());
+                if (timeoutMs > 0) {
+                    return Math.min(timeoutMs, config.getMaxTimeoutMs());
+                }
+            } catch (NumberFormatException e) {
+                log.debug("忽略无效的超时请求头: {}={}", config.getHeader(), header);
+            }
+        }
+        
+        String path = request.getServletPath();
+        for (String pattern : config.getDefaultPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return config.getDefaultTimeoutMs();
+            }
+        }
+        return 0;
+    }
+}
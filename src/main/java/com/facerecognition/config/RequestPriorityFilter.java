@@ -0,0 +1,63 @@
+package com.facerecognition.config;
+
+import com.facerecognition.util.Priority;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 请求优先级过滤器
+ * 按接口路径确定默认优先级：批量接口为 BULK、交互接口为 INTERACTIVE、其余为 STANDARD；
+ * 客户端请求头只能把优先级调低 (如把交互接口的补录请求标为 BULK)，不能提升，绑定到请求线程
+ */
+@Component
+public class RequestPriorityFilter extends OncePerRequestFilter {
+    
+    @Autowired
+    private FaceConfig faceConfig;
+    
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Priority.attach(resolvePriority(request));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Priority.detach();
+        }
+    }
+    
+    private Priority resolvePriority(HttpServletRequest request) {
+        FaceConfig.RequestPriority config = faceConfig.getPriority();
+        Priority byPath = priorityByPath(config, request.getServletPath());
+        
+        Priority requested = Priority.parse(request.getHeader(config.getHeader()));
+        if (requested != null && requested.compareTo(byPath) > 0) {
+            return requested;
+        }
+        return byPath;
+    }
+        
+    private Priority priorityByPath(FaceConfig.RequestPriority config, String path) {
+        for (String pattern : config.getBulkPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return Priority.BULK;
+            }
+        }
+        for (String pattern : config.getInteractivePaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return Priority.INTERACTIVE;
+            }
+        }
+        return Priority.STANDARD;
+    }
+}
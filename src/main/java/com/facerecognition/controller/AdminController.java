@@ -0,0 +1,282 @@
+package com.facerecognition.controller;
+
+import com.facerecognition.dto.ApiResponse;
+import com.facerecognition.dto.BulkEnrollRequest;
+import com.facerecognition.dto.BulkEnrollStatus;
+import com.facerecognition.dto.GalleryTransferRequest;
+import com.facerecognition.dto.GalleryTransferStatus;
+import com.facerecognition.dto.IndexAdvice;
+import com.facerecognition.dto.IndexRebuildRequest;
+import com.facerecognition.dto.IndexRebuildStatus;
+import com.facerecognition.dto.PriorityLaneStats;
+import com.facerecognition.dto.RecallStats;
+import com.facerecognition.dto.ResultCacheStats;
+import com.facerecognition.dto.SearchStats;
+import com.facerecognition.dto.ShardRebalanceStatus;
+import com.facerecognition.model.FaceInfo;
+import com.facerecognition.service.BulkEnrollService;
+import com.facerecognition.service.FaceSearchService;
+import com.facerecognition.service.GalleryTransferService;
+import com.facerecognition.service.IndexAdvisorService;
+import com.facerecognition.service.IndexManagementService;
+import com.facerecognition.service.InferenceLimiter;
+import com.facerecognition.service.MilvusService;
+import com.facerecognition.service.PriorityScheduler;
+import com.facerecognition.service.RecallMonitor;
+import com.facerecognition.service.RecognitionResultCache;
+import com.facerecognition.service.ShardRebalanceService;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 运维管理REST API控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+    
+    @Autowired
+    private FaceSearchService faceSearchService;
+    
+    @Autowired
+    private IndexManagementService indexManagementService;
+    
+    @Autowired
+    private IndexAdvisorService indexAdvisorService;
+    
+    @Autowired
+    private RecallMonitor recallMonitor;
+    
+    @Autowired
+    private ShardRebalanceService shardRebalanceService;
+    
+    @Autowired
+    private GalleryTransferService galleryTransferService;
+    
+    @Autowired
+    private BulkEnrollService bulkEnrollService;
+    
+    @Autowired
+    private RecognitionResultCache recognitionResultCache;
+    
+    @Autowired
+    private InferenceLimiter inferenceLimiter;
+    
+    @Autowired
+    private MilvusService milvusService;
+    
+    /**
+     * 向量检索统计（自适应检索各轮次计数）
+     */
+    @GetMapping("/search/stats")
+    public ApiResponse<SearchStats> searchStats() {
+        return ApiResponse.success(faceSearchService.getStats());
+    }
+    
+    /**
+     * 在线召回率统计（抽样查询的近似检索结果与精确检索对比）
+     */
+    @GetMapping("/search/recall")
+    public ApiResponse<RecallStats> searchRecall() {
+        return ApiResponse.success(recallMonitor.getStats());
+    }
+    
+    /**
+     * 清零在线召回率统计
+     */
+    @PostMapping("/search/recall/reset")
+    public ApiResponse<Boolean> resetSearchRecall() {
+        recallMonitor.reset();
+        return ApiResponse.success("召回率统计已清零", true);
+    }
+    
+    /**
+     * 识别结果缓存统计（命中、未命中、并发合并、失效）
+     */
+    @GetMapping("/result-cache/stats")
+    public ApiResponse<ResultCacheStats> resultCacheStats() {
+        return ApiResponse.success(recognitionResultCache.getStats());
+    }
+    
+    /**
+     * 优先级调度统计：ONNX推理许可与向量数据库访问许可按优先级的占用与等待情况
+     */
+    @GetMapping("/priority/stats")
+    public ApiResponse<List<PriorityLaneStats>> priorityStats() {
+        List<PriorityLaneStats> stats = new ArrayList<>();
+        for (PriorityScheduler scheduler : new PriorityScheduler[]{
+                inferenceLimiter.getScheduler(), milvusService.getClientScheduler()}) {
+            if (scheduler != null) {
+                stats.add(scheduler.getStats());
+            }
+        }
+        return ApiResponse.success(stats);
+    }
+    
+    /**
+     * 清空识别结果缓存
+     */
+    @PostMapping("/result-cache/clear")
+    public ApiResponse<Boolean> clearResultCache() {
+        recognitionResultCache.clear();
+        return ApiResponse.success("识别结果缓存已清空", true);
+    }
+    
+    /**
+     * 在线重建向量索引（新集合回填后切换别名）
+     */
+    @PostMapping("/index/rebuild")
+    public ApiResponse<IndexRebuildStatus> rebuildIndex(@Valid @RequestBody IndexRebuildRequest request) {
+        log.info("收到索引重建请求: indexType={}", request.getIndexType());
+        return ApiResponse.success("索引重建已启动", indexManagementService.startRebuild(request));
+    }
+    
+    /**
+     * 查询索引重建状态
+     */
+    @GetMapping("/index/status")
+    public ApiResponse<IndexRebuildStatus> indexStatus() {
+        return ApiResponse.success(indexManagementService.getStatus());
+    }
+    
+    /**
+     * 获取最近一次索引建议
+     */
+    @GetMapping("/index/advice")
+    public ApiResponse<IndexAdvice> indexAdvice() {
+        return ApiResponse.success(indexAdvisorService.getLastAdvice());
+    }
+    
+    /**
+     * 立即执行索引顾问（实测召回率并给出建议）
+     * 
+     * @param apply 是否应用建议 (调整默认nprobe、必要时触发重建)
+     */
+    @PostMapping("/index/advice")
+    public ApiResponse<IndexAdvice> runIndexAdvice(@RequestParam(value = "apply", defaultValue = "false") boolean apply) {
+        log.info("收到索引顾问请求: apply={}", apply);
+        return ApiResponse.success(indexAdvisorService.advise(apply));
+    }
+    
+    /**
+     * 重新分片（分片数量变化后迁移哈希归属已变化的人脸）
+     */
+    @PostMapping("/shards/rebalance")
+    public ApiResponse<ShardRebalanceStatus> rebalanceShards() {
+        log.info("收到重新分片请求");
+        return ApiResponse.success("重新分片已启动", shardRebalanceService.startRebalance());
+    }
+    
+    /**
+     * 查询分片状态
+     */
+    @GetMapping("/shards/status")
+    public ApiResponse<ShardRebalanceStatus> shardStatus() {
+        return ApiResponse.success(shardRebalanceService.getStatus());
+    }
+    
+    /**
+     * 导出人脸库（特征向量二进制文件 + 元数据旁路文件）
+     */
+    @PostMapping("/gallery/export")
+    public ApiResponse<GalleryTransferStatus> exportGallery(@Valid @RequestBody GalleryTransferRequest request) {
+        log.info("收到人脸库导出请求: name={}", request.getName());
+        return ApiResponse.success("人脸库导出已启动", galleryTransferService.startExport(request));
+    }
+    
+    /**
+     * 从导出文件批量导入人脸库
+     */
+    @PostMapping("/gallery/import")
+    public ApiResponse<GalleryTransferStatus> importGallery(@Valid @RequestBody GalleryTransferRequest request) {
+        log.info("收到人脸库导入请求: name={}", request.getName());
+        return ApiResponse.success("人脸库导入已启动", galleryTransferService.startImport(request));
+    }
+    
+    /**
+     * 查询人脸库导出/导入状态
+     */
+    @GetMapping("/gallery/status")
+    public ApiResponse<GalleryTransferStatus> galleryStatus() {
+        return ApiResponse.success(galleryTransferService.getStatus());
+    }
+    
+    /**
+     * 提交批量注册任务（服务器目录 + 清单CSV）
+     */
+    @PostMapping("/enroll/jobs")
+    public ApiResponse<BulkEnrollStatus> submitEnrollJob(@Valid @RequestBody BulkEnrollRequest request) {
+        log.info("收到批量注册请求: directory={}, manifest={}", request.getDirectory(), request.getManifest());
+        return ApiResponse.success("批量注册任务已提交", bulkEnrollService.submitDirectory(request));
+    }
+    
+    /**
+     * 提交批量注册任务（上传zip包，包内含清单CSV）
+     */
+    @PostMapping("/enroll/jobs/upload")
+    public ApiResponse<BulkEnrollStatus> uploadEnrollJob(
+            @RequestParam("zip") MultipartFile zip,
+            @RequestParam(value = "manifest", required = false) String manifest,
+            @RequestParam(value = "groupId", required = false) String groupId) throws IOException {
+        log.info("收到批量注册请求(上传): fileName={}, size={}", zip.getOriginalFilename(), zip.getSize());
+        
+        if (zip.isEmpty()) {
+            return ApiResponse.error("文件不能为空");
+        }
+        
+        if (groupId != null && !groupId.isEmpty() && !FaceInfo.isValidGroupId(groupId)) {
+            return ApiResponse.error(400, FaceInfo.GROUP_ID_MESSAGE);
+        }
+        
+        try (InputStream in = zip.getInputStream()) {
+            return ApiResponse.success("批量注册任务已提交",
+                    bulkEnrollService.submitZip(in, zip.getOriginalFilename(), manifest,
+                            groupId != null && !groupId.isEmpty() ? groupId : null));
+        }
+    }
+    
+    /**
+     * 提交批量注册任务（请求体直接为zip包，边读边解压到工作目录，不受 spring.servlet.multipart 大小限制）
+     */
+    @PostMapping(value = "/enroll/jobs/upload", consumes = "application/zip")
+    public ApiResponse<BulkEnrollStatus> uploadEnrollJobZip(
+            InputStream body,
+            @RequestParam(value = "fileName", required = false) String fileName,
+            @RequestParam(value = "manifest", required = false) String manifest,
+            @RequestParam(value = "groupId", required = false) String groupId) {
+        log.info("收到批量注册请求(zip): fileName={}", fileName);
+        
+        if (groupId != null && !groupId.isEmpty() && !FaceInfo.isValidGroupId(groupId)) {
+            return ApiResponse.error(400, FaceInfo.GROUP_ID_MESSAGE);
+        }
+        
+        return ApiResponse.success("批量注册任务已提交",
+                bulkEnrollService.submitZip(body, fileName != null ? fileName : "upload.zip", manifest,
+                        groupId != null && !groupId.isEmpty() ? groupId : null));
+    }
+    
+    /**
+     * 查询批量注册任务状态（含进度、速度与失败明细）
+     */
+    @GetMapping("/enroll/jobs/{jobId}")
+    public ApiResponse<BulkEnrollStatus> enrollJobStatus(@PathVariable String jobId) {
+        return ApiResponse.success(bulkEnrollService.getStatus(jobId));
+    }
+    
+    /**
+     * 列出批量注册任务
+     */
+    @GetMapping("/enroll/jobs")
+    public ApiResponse<List<BulkEnrollStatus>> enrollJobs() {
+        return ApiResponse.success(bulkEnrollService.listJobs());
+    }
+}
@@ -1,18 +1,35 @@
 package com.facerecognition.controller;
 
+import com.facerecognition.config.FaceConfig;
 import com.facerecognition.dto.ApiResponse;
+import com.facerecognition.dto.BatchRecognizeResult;
+import com.facerecognition.dto.BulkDeleteRequest;
+import com.facerecognition.dto.BulkDeleteResult;
+import com.facerecognition.dto.EmbeddingSearchRequest;
+import com.facerecognition.dto.FacePage;
 import com.facerecognition.dto.RecognizeRequest;
 import com.facerecognition.dto.RecognizeResult;
 import com.facerecognition.dto.RegisterRequest;
+import com.facerecognition.dto.VerifyRequest;
+import com.facerecognition.dto.VerifyResult;
+import com.facerecognition.exception.ServiceOverloadedException;
 import com.facerecognition.model.FaceInfo;
 import com.facerecognition.service.FaceService;
+import com.facerecognition.util.ZipUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 人脸识别REST API控制器
@@ -25,6 +42,12 @@ public class FaceController {
     @Autowired
     private FaceService faceService;
     
+    @Autowired
+    private FaceConfig faceConfig;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     /**
      * 健康检查
      */
@@ -45,7 +68,8 @@ public class FaceController {
                     request.getName(),
                     request.getPersonId(),
                     request.getImageBase64(),
-                    request.getRemark()
+                    request.getRemark(),
+                    request.getGroupId()
             );
             
             return ApiResponse.success("人脸注册成功", faceId);
@@ -64,8 +88,13 @@ public class FaceController {
             @RequestParam("file") MultipartFile file,
             @RequestParam("name") String name,
             @RequestParam("personId") String personId,
-            @RequestParam(value = "remark", required = false) String remark) {
+            @RequestParam(value = "remark", required = false) String remark,
+            @RequestParam(value = "groupId", required = false) String groupId) {
         try {
+            if (groupId != null && !groupId.isEmpty() && !FaceInfo.isValidGroupId(groupId)) {
+                return ApiResponse.error(400, FaceInfo.GROUP_ID_MESSAGE);
+            }
+            
             log.info("注册人脸请求(上传): name={}, personId={}, fileName={}", 
                     name, personId, file.getOriginalFilename());
             
@@ -85,7 +114,8 @@ public class FaceController {
                     name,
                     personId,
                     imageBytes,
-                    remark
+                    remark,
+                    groupId
             );
             
             return ApiResponse.success("人脸注册成功", faceId);
@@ -102,16 +132,21 @@ public class FaceController {
     @PostMapping("/recognize")
     public ApiResponse<List<RecognizeResult>> recognizeFace(@Valid @RequestBody RecognizeRequest request) {
         try {
-            log.info("识别人脸请求: threshold={}, topK={}", request.getThreshold(), request.getTopK());
+            log.info("识别人脸请求: threshold={}, topK={}, profile={}, groupId={}", 
+                    request.getThreshold(), request.getTopK(), request.getProfile(), request.getGroupId());
             
             List<RecognizeResult> results = faceService.recognizeFace(
                     request.getImageBase64(),
                     request.getThreshold(),
-                    request.getTopK()
+                    request.getTopK(),
+                    request.getProfile(),
+                    request.getGroupId()
             );
             
             return ApiResponse.success(results);
             
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("识别人脸失败", e);
             return ApiResponse.error(e.getMessage());
@@ -125,10 +160,16 @@ public class FaceController {
     public ApiResponse<List<RecognizeResult>> recognizeFaceUpload(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "threshold", required = false, defaultValue = "0.6") Float threshold,
-            @RequestParam(value = "topK", required = false, defaultValue = "5") Integer topK) {
+            @RequestParam(value = "topK", required = false, defaultValue = "5") Integer topK,
+            @RequestParam(value = "profile", required = false) String profile,
+            @RequestParam(value = "groupId", required = false) String groupId) {
         try {
-            log.info("识别人脸请求(上传): threshold={}, topK={}, fileName={}", 
-                    threshold, topK, file.getOriginalFilename());
+            if (groupId != null && !groupId.isEmpty() && !FaceInfo.isValidGroupId(groupId)) {
+                return ApiResponse.error(400, FaceInfo.GROUP_ID_MESSAGE);
+            }
+            
+            log.info("识别人脸请求(上传): threshold={}, topK={}, profile={}, groupId={}, fileName={}", 
+                    threshold, topK, profile, groupId, file.getOriginalFilename());
             
             // 检查文件是否为空
             if (file.isEmpty()) {
@@ -145,17 +186,433 @@ public class FaceController {
             List<RecognizeResult> results = faceService.recognizeFaceFromBytes(
                     imageBytes,
                     threshold,
-                    topK
+                    topK,
+                    profile,
+                    groupId
             );
             
             return ApiResponse.success(results);
             
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("识别人脸失败(上传)", e);
             return ApiResponse.error(e.getMessage());
         }
     }
     
+    /**
+     * 注册已对齐人脸 (Base64方式，跳过人脸检测)
+     * 图片为已对齐的人脸，或附带五点关键点的人脸裁剪图
+     */
+    @PostMapping("/register/aligned")
+    public ApiResponse<String> registerAlignedFace(@Valid @RequestBody RegisterRequest request) {
+        try {
+            log.info("注册已对齐人脸请求: name={}, personId={}, landmarks={}",
+                    request.getName(), request.getPersonId(), request.getLandmarks() != null);
+            
+            String faceId = faceService.registerAlignedFace(
+                    request.getName(),
+                    request.getPersonId(),
+                    request.getImageBase64(),
+                    request.getLandmarks(),
+                    request.getRemark(),
+                    request.getGroupId()
+            );
+            
+            return ApiResponse.success("人脸注册成功", faceId);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("注册已对齐人脸失败", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 注册已对齐人脸 (文件上传方式，跳过人脸检测)
+     */
+    @PostMapping("/register/aligned/upload")
+    public ApiResponse<String> registerAlignedFaceUpload(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("name") String name,
+            @RequestParam("personId") String personId,
+            @RequestParam(value = "landmarks", required = false) List<Float> landmarks,
+            @RequestParam(value = "remark", required = false) String remark,
+            @RequestParam(value = "groupId", required = false) String groupId) {
+        try {
+            if (groupId != null && !groupId.isEmpty() && !FaceInfo.isValidGroupId(groupId)) {
+                return ApiResponse.error(400, FaceInfo.GROUP_ID_MESSAGE);
+            }
+            
+            log.info("注册已对齐人脸请求(上传): name={}, personId={}, fileName={}",
+                    name, personId, file.getOriginalFilename());
+            
+            if (file.isEmpty()) {
+                return ApiResponse.error("文件不能为空");
+            }
+            
+            if (file.getSize() > 10 * 1024 * 1024) {
+                return ApiResponse.error("文件大小不能超过10MB");
+            }
+            
+            String faceId = faceService.registerAlignedFaceFromBytes(
+                    name,
+                    personId,
+                    file.getBytes(),
+                    landmarks,
+                    remark,
+                    groupId
+            );
+            
+            return ApiResponse.success("人脸注册成功", faceId);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("注册已对齐人脸失败(上传)", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 识别已对齐人脸 (Base64方式，跳过人脸检测)
+     * 图片为已对齐的人脸，或附带五点关键点的人脸裁剪图
+     */
+    @PostMapping("/recognize/aligned")
+    public ApiResponse<List<RecognizeResult>> recognizeAlignedFace(@Valid @RequestBody RecognizeRequest request) {
+        try {
+            log.info("识别已对齐人脸请求: threshold={}, topK={}, profile={}, groupId={}, landmarks={}",
+                    request.getThreshold(), request.getTopK(), request.getProfile(), request.getGroupId(),
+                    request.getLandmarks() != null);
+            
+            List<RecognizeResult> results = faceService.recognizeAlignedFace(
+                    request.getImageBase64(),
+                    request.getLandmarks(),
+                    request.getThreshold(),
+                    request.getTopK(),
+                    request.getProfile(),
+                    request.getGroupId()
+            );
+            
+            return ApiResponse.success(results);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("识别已对齐人脸失败", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 识别已对齐人脸 (文件上传方式，跳过人脸检测)
+     */
+    @PostMapping("/recognize/aligned/upload")
+    public ApiResponse<List<RecognizeResult>> recognizeAlignedFaceUpload(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "landmarks", required = false) List<Float> landmarks,
+            @RequestParam(value = "threshold", required = false, defaultValue = "0.6") Float threshold,
+            @RequestParam(value = "topK", required = false, defaultValue = "5") Integer topK,
+            @RequestParam(value = "profile", required = false) String profile,
+            @RequestParam(value = "groupId", required = false) String groupId) {
+        try {
+            if (groupId != null && !groupId.isEmpty() && !FaceInfo.isValidGroupId(groupId)) {
+                return ApiResponse.error(400, FaceInfo.GROUP_ID_MESSAGE);
+            }
+            
+            log.info("识别已对齐人脸请求(上传): threshold={}, topK={}, profile={}, groupId={}, fileName={}",
+                    threshold, topK, profile, groupId, file.getOriginalFilename());
+            
+            if (file.isEmpty()) {
+                return ApiResponse.error("文件不能为空");
+            }
+            
+            if (file.getSize() > 10 * 1024 * 1024) {
+                return ApiResponse.error("文件大小不能超过10MB");
+            }
+            
+            List<RecognizeResult> results = faceService.recognizeAlignedFaceFromBytes(
+                    file.getBytes(),
+                    landmarks,
+                    threshold,
+                    topK,
+                    profile,
+                    groupId
+            );
+            
+            return ApiResponse.success(results);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("识别已对齐人脸失败(上传)", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 批量识别人脸 (多文件上传或zip包)
+     * 每张图片各自返回识别结果，单张图片失败不影响其他图片
+     */
+    @PostMapping("/recognize/batch")
+    public ApiResponse<List<BatchRecognizeResult>> recognizeFaceBatch(
+            @RequestParam(value = "files", required = false) List<MultipartFile> files,
+            @RequestParam(value = "zip", required = false) MultipartFile zip,
+            @RequestParam(value = "threshold", required = false, defaultValue = "0.6") Float threshold,
+            @RequestParam(value = "topK", required = false, defaultValue = "5") Integer topK,
+            @RequestParam(value = "profile", required = false) String profile,
+            @RequestParam(value = "groupId", required = false) String groupId) {
+        try {
+            if (groupId != null && !groupId.isEmpty() && !FaceInfo.isValidGroupId(groupId)) {
+                return ApiResponse.error(400, FaceInfo.GROUP_ID_MESSAGE);
+            }
+            
+            FaceConfig.Batch batchConfig = faceConfig.getBatch();
+            List<String> fileNames = new ArrayList<>();
+            List<byte[]> images = new ArrayList<>();
+            
+            if (files != null) {
+                for (MultipartFile file : files) {
+                    if (file.isEmpty()) {
+                        return ApiResponse.error("文件不能为空: " + file.getOriginalFilename());
+                    }
+                    if (file.getSize() > batchConfig.getMaxImageBytes()) {
+                        return ApiResponse.error("文件大小超过限制: " + file.getOriginalFilename());
+                    }
+                    fileNames.add(file.getOriginalFilename());
+                    images.add(file.getBytes());
+                }
+            }
+            
+            if (zip != null && !zip.isEmpty()) {
+                Map<String, byte[]> entries = ZipUtils.readImages(zip.getInputStream(),
+                        batchConfig.getMaxImages(), batchConfig.getMaxImageBytes());
+                for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                    fileNames.add(entry.getKey());
+                    images.add(entry.getValue());
+                }
+            }
+            
+            if (images.isEmpty()) {
+                return ApiResponse.error("请上传图片文件 (files) 或zip包 (zip)");
+            }
+            
+            return recognizeBatch(fileNames, images, threshold, topK, profile, groupId);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("批量识别人脸失败", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 批量识别人脸 (请求体直接为zip包)
+     * 边读边解压，不经过multipart缓冲，不受 spring.servlet.multipart 大小限制；包内图片数与单张大小仍受 face.batch.* 限制
+     */
+    @PostMapping(value = "/recognize/batch", consumes = "application/zip")
+    public ApiResponse<List<BatchRecognizeResult>> recognizeFaceBatchZip(
+            InputStream body,
+            @RequestParam(value = "threshold", required = false, defaultValue = "0.6") Float threshold,
+            @RequestParam(value = "topK", required = false, defaultValue = "5") Integer topK,
+            @RequestParam(value = "profile", required = false) String profile,
+            @RequestParam(value = "groupId", required = false) String groupId) {
+        try {
+            if (groupId != null && !groupId.isEmpty() && !FaceInfo.isValidGroupId(groupId)) {
+                return ApiResponse.error(400, FaceInfo.GROUP_ID_MESSAGE);
+            }
+            
+            FaceConfig.Batch batchConfig = faceConfig.getBatch();
+            Map<String, byte[]> entries = ZipUtils.readImages(body, batchConfig.getMaxImages(), batchConfig.getMaxImageBytes());
+            
+            if (entries.isEmpty()) {
+                return ApiResponse.error("zip包内没有图片");
+            }
+            
+            return recognizeBatch(new ArrayList<>(entries.keySet()), new ArrayList<>(entries.values()),
+                    threshold, topK, profile, groupId);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("批量识别人脸失败(zip)", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    private ApiResponse<List<BatchRecognizeResult>> recognizeBatch(List<String> fileNames, List<byte[]> images,
+                                                                   Float threshold, Integer topK, String profile,
+                                                                   String groupId) {
+        int maxImages = faceConfig.getBatch().getMaxImages();
+        if (images.size() > maxImages) {
+            return ApiResponse.error("单次批量识别最多 " + maxImages + " 张图片");
+        }
+        
+        log.info("批量识别人脸请求: images={}, threshold={}, topK={}, profile={}, groupId={}",
+                images.size(), threshold, topK, profile, groupId);
+        
+        List<BatchRecognizeResult> results = faceService.recognizeBatch(
+                fileNames,
+                images,
+                threshold,
+                topK,
+                profile,
+                groupId
+        );
+        
+        return ApiResponse.success(results);
+    }
+    
+    /**
+     * 按特征向量检索 (JSON方式，特征由设备端提取)
+     */
+    @PostMapping(value = "/search/embedding", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ApiResponse<List<List<RecognizeResult>>> searchByEmbedding(@Valid @RequestBody EmbeddingSearchRequest request) {
+        try {
+            log.info("特征向量检索请求: embeddings={}, threshold={}, topK={}, profile={}, groupId={}",
+                    request.getEmbeddings().size(), request.getThreshold(), request.getTopK(),
+                    request.getProfile(), request.getGroupId());
+            
+            List<float[]> embeddings = new ArrayList<>(request.getEmbeddings().size());
+            for (List<Float> values : request.getEmbeddings()) {
+                float[] embedding = new float[values == null ? 0 : values.size()];
+                for (int i = 0; i < embedding.length; i++) {
+                    Float value = values.get(i);
+                    embedding[i] = value != null ? value : Float.NaN;
+                }
+                embeddings.add(embedding);
+            }
+            
+            List<List<RecognizeResult>> results = faceService.searchByEmbeddings(
+                    embeddings,
+                    request.getThreshold(),
+                    request.getTopK(),
+                    request.getProfile(),
+                    request.getGroupId()
+            );
+            
+            return ApiResponse.success(results);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("特征向量检索失败", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 按特征向量检索 (二进制方式：连续存放的小端float32，每个向量为集合维度个float)
+     */
+    @PostMapping(value = "/search/embedding", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ApiResponse<List<List<RecognizeResult>>> searchByEmbeddingBinary(
+            @RequestBody byte[] body,
+            @RequestParam(value = "threshold", required = false, defaultValue = "0.6") Float threshold,
+            @RequestParam(value = "topK", required = false, defaultValue = "5") Integer topK,
+            @RequestParam(value = "profile", required = false) String profile,
+            @RequestParam(value = "groupId", required = false) String groupId) {
+        try {
+            if (groupId != null && !groupId.isEmpty() && !FaceInfo.isValidGroupId(groupId)) {
+                return ApiResponse.error(400, FaceInfo.GROUP_ID_MESSAGE);
+            }
+            
+            log.info("特征向量检索请求(二进制): bytes={}, threshold={}, topK={}, profile={}, groupId={}",
+                    body.length, threshold, topK, profile, groupId);
+            
+            List<List<RecognizeResult>> results = faceService.searchByEmbeddingBytes(
+                    body,
+                    threshold,
+                    topK,
+                    profile,
+                    groupId
+            );
+            
+            return ApiResponse.success(results);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("特征向量检索失败(二进制)", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 1:1人脸比对 (Base64方式)
+     * 与第二张图片、已注册人脸ID或人员ID比对，不做全库检索
+     */
+    @PostMapping("/verify")
+    public ApiResponse<VerifyResult> verifyFace(@Valid @RequestBody VerifyRequest request) {
+        try {
+            log.info("人脸比对请求: faceId={}, personId={}, withImage={}, threshold={}",
+                    request.getFaceId(), request.getPersonId(), request.getOtherImageBase64() != null,
+                    request.getThreshold());
+            
+            VerifyResult result = faceService.verifyFaces(
+                    request.getImageBase64(),
+                    request.getOtherImageBase64(),
+                    request.getFaceId(),
+                    request.getPersonId(),
+                    request.getThreshold()
+            );
+            
+            return ApiResponse.success(result);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("人脸比对失败", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 1:1人脸比对 (文件上传方式)
+     */
+    @PostMapping("/verify/upload")
+    public ApiResponse<VerifyResult> verifyFaceUpload(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "otherFile", required = false) MultipartFile otherFile,
+            @RequestParam(value = "faceId", required = false) String faceId,
+            @RequestParam(value = "personId", required = false) String personId,
+            @RequestParam(value = "threshold", required = false, defaultValue = "0.6") Float threshold) {
+        try {
+            log.info("人脸比对请求(上传): faceId={}, personId={}, withImage={}, threshold={}",
+                    faceId, personId, otherFile != null, threshold);
+            
+            for (MultipartFile upload : new MultipartFile[]{file, otherFile}) {
+                if (upload == null) {
+                    continue;
+                }
+                if (upload.isEmpty()) {
+                    return ApiResponse.error("文件不能为空");
+                }
+                if (upload.getSize() > 10 * 1024 * 1024) {
+                    return ApiResponse.error("文件大小不能超过10MB");
+                }
+            }
+            
+            VerifyResult result = faceService.verifyFacesFromBytes(
+                    file.getBytes(),
+                    otherFile != null ? otherFile.getBytes() : null,
+                    faceId,
+                    personId,
+                    threshold
+            );
+            
+            return ApiResponse.success(result);
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("人脸比对失败(上传)", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
     /**
      * 删除人脸
      */
@@ -200,6 +657,52 @@ public class FaceController {
         }
     }
     
+    /**
+     * 批量删除人脸
+     * 部分批次失败时返回500，data中列出删除失败的ID (可直接重试)
+     */
+    @PostMapping("/batch-delete")
+    public ApiResponse<BulkDeleteResult> deleteFaces(@Valid @RequestBody BulkDeleteRequest request) {
+        try {
+            log.info("批量删除人脸请求: count={}", request.getIds().size());
+            
+            return bulkDeleteResponse("批量删除人脸", faceService.deleteFaces(request.getIds()));
+            
+        } catch (Exception e) {
+            log.error("批量删除人脸失败", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 批量删除人员所有人脸
+     * 部分批次失败时返回500，data中列出删除失败的人员ID (可直接重试)
+     */
+    @PostMapping("/person/batch-delete")
+    public ApiResponse<BulkDeleteResult> deletePersons(@Valid @RequestBody BulkDeleteRequest request) {
+        try {
+            log.info("批量删除人员人脸请求: count={}", request.getIds().size());
+            
+            return bulkDeleteResponse("批量删除人员人脸", faceService.deletePersons(request.getIds()));
+            
+        } catch (Exception e) {
+            log.error("批量删除人员人脸失败", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    private ApiResponse<BulkDeleteResult> bulkDeleteResponse(String operation, BulkDeleteResult result) {
+        if (result.getFailedIds().isEmpty()) {
+            return ApiResponse.success(operation + "成功", result);
+        }
+        
+        return ApiResponse.<BulkDeleteResult>builder()
+                .code(500)
+                .message(operation + "部分失败 (" + result.getFailedIds().size() + " 个ID): " + result.getError())
+                .data(result)
+                .build();
+    }
+    
     /**
      * 重置人脸库
      */
@@ -224,7 +727,7 @@ public class FaceController {
     
     /**
      * 查询人脸列表
-     * 支持按personId或name过滤
+     * 支持按personId或name过滤（大库请使用/page游标分页或/stream流式导出）
      */
     @GetMapping("/list")
     public ApiResponse<List<FaceInfo>> listFaces(
@@ -255,6 +758,71 @@ public class FaceController {
         }
     }
     
+    /**
+     * 游标分页查询人脸列表
+     * 首页不传cursor，之后传入上一页返回的nextCursor，nextCursor为null表示已到末尾
+     */
+    @GetMapping("/page")
+    public ApiResponse<FacePage> pageFaces(
+            @RequestParam(value = "personId", required = false) String personId,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            log.info("分页查询人脸列表: personId={}, name={}, cursor={}, limit={}", personId, name, cursor, limit);
+            
+            return ApiResponse.success(faceService.listFacesPage(personId, name, cursor, limit));
+            
+        } catch (Exception e) {
+            log.error("分页查询人脸列表失败", e);
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 流式导出人脸列表 (application/x-ndjson，每行一个人脸JSON)
+     * 边从Milvus分页读取边写出，不在内存中聚合整个列表；
+     * 中途失败时（响应头已发出，无法再改状态码）最后写出一行错误 {"code":500,"message":"..."}，客户端据此判断列表不完整
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFaces(
+            @RequestParam(value = "personId", required = false) String personId,
+            @RequestParam(value = "name", required = false) String name) {
+        log.info("流式查询人脸列表: personId={}, name={}", personId, name);
+        
+        int pageSize = faceConfig.getListing().getStreamPageSize();
+        
+        StreamingResponseBody body = outputStream -> {
+            String cursor = null;
+            long rows = 0;
+            try {
+                do {
+                    FacePage page = faceService.listFacesPage(personId, name, cursor, pageSize);
+                    for (FaceInfo faceInfo : page.getItems()) {
+                        outputStream.write(objectMapper.writeValueAsBytes(faceInfo));
+                        outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                    
+                    rows += page.getItems().size();
+                    cursor = page.getNextCursor();
+                } while (cursor != null);
+            } catch (RuntimeException e) {
+                log.error("流式查询人脸列表失败: 已输出 {} 行", rows, e);
+                outputStream.write(objectMapper.writeValueAsBytes(ApiResponse.error(500, "流式查询中断: " + e.getMessage())));
+                outputStream.write('\n');
+                outputStream.flush();
+                return;
+            }
+            
+            log.info("流式查询人脸列表完成: {} 行", rows);
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
     /**
      * 根据person_id查询人脸
      */
@@ -289,7 +857,7 @@ public class FaceController {
             
             // 仅执行检测，查看日志输出
             List<RecognizeResult> results = faceService.recognizeFaceFromBytes(
-                    imageBytes, 0.6f, 10
+                    imageBytes, 0.6f, 10, null, null
             );
             
             String message = String.format("检测完成，找到 %d 个人脸。请查看控制台日志了解详细信息。", 
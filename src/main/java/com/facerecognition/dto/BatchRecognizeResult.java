@@ -0,0 +1,42 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量识别中单张图片的识别结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRecognizeResult {
+    /**
+     * 图片在请求中的序号 (从0开始)
+     */
+    private int index;
+    
+    /**
+     * 图片文件名
+     */
+    private String fileName;
+    
+    /**
+     * 是否识别成功
+     */
+    private boolean success;
+    
+    /**
+     * 识别结果列表
+     */
+    private List<RecognizeResult> results;
+    
+    /**
+     * 失败原因
+     */
+    private String error;
+}
@@ -0,0 +1,26 @@
+package com.facerecognition.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量删除请求
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteRequest {
+    /**
+     * 人脸ID或人员ID列表
+     */
+    @NotEmpty(message = "ID列表不能为空")
+    @Size(max = 100000, message = "单次最多删除100000个ID")
+    private List<String> ids;
+}
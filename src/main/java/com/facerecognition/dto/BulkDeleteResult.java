@@ -0,0 +1,33 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量删除结果
+ * 按批删除，某一批失败不影响其余批次；失败批次中的ID原样返回，可直接重试 (删除可重复执行)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteResult {
+    /**
+     * 删除的行数
+     */
+    private long deleted;
+    
+    /**
+     * 删除失败的人脸ID或人员ID
+     */
+    private List<String> failedIds;
+    
+    /**
+     * 第一个失败批次的错误信息，全部成功时为null
+     */
+    private String error;
+}
@@ -0,0 +1,35 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量注册中单条失败明细
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollFailure {
+    /**
+     * 清单行号 (从1开始，不含表头)
+     */
+    private long line;
+    
+    /**
+     * 图片文件
+     */
+    private String file;
+    
+    /**
+     * 人员ID
+     */
+    private String personId;
+    
+    /**
+     * 失败原因
+     */
+    private String error;
+}
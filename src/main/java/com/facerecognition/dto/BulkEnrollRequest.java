@@ -0,0 +1,36 @@
+package com.facerecognition.dto;
+
+import com.facerecognition.model.FaceInfo;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量注册请求（服务器目录方式）
+ * 目录位于 face.enroll.root-dir 下，清单为CSV文件，表头: file,personId,name[,remark][,groupId]
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollRequest {
+    /**
+     * 图片目录 (相对 face.enroll.root-dir)
+     */
+    @NotBlank(message = "目录不能为空")
+    private String directory;
+    
+    /**
+     * 清单文件 (相对图片目录)，为空时为 manifest.csv
+     */
+    private String manifest;
+    
+    /**
+     * 默认分组ID，清单行未指定groupId时使用
+     */
+    @Pattern(regexp = FaceInfo.GROUP_ID_REGEX, message = FaceInfo.GROUP_ID_MESSAGE)
+    private String groupId;
+}
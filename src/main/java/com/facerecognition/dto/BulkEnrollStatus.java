@@ -0,0 +1,77 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量注册任务状态
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollStatus {
+    /**
+     * 任务ID
+     */
+    private String jobId;
+    
+    /**
+     * 状态: QUEUED, RUNNING, COMPLETED, FAILED
+     */
+    private String state;
+    
+    /**
+     * 数据来源 (目录或上传的zip包)
+     */
+    private String source;
+    
+    /**
+     * 清单总条数
+     */
+    private long totalItems;
+    
+    /**
+     * 已处理条数 (成功 + 失败)
+     */
+    private long processedItems;
+    
+    /**
+     * 注册成功条数
+     */
+    private long succeededItems;
+    
+    /**
+     * 失败条数
+     */
+    private long failedItems;
+    
+    /**
+     * 处理速度 (张/秒)
+     */
+    private double throughput;
+    
+    /**
+     * 开始时间
+     */
+    private Long startTime;
+    
+    /**
+     * 结束时间
+     */
+    private Long finishTime;
+    
+    /**
+     * 附加信息 (失败原因等)
+     */
+    private String message;
+    
+    /**
+     * 失败明细 (最多 face.enroll.max-reported-failures 条)
+     */
+    private List<BulkEnrollFailure> failures;
+}
@@ -0,0 +1,49 @@
+package com.facerecognition.dto;
+
+import com.facerecognition.model.FaceInfo;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 按特征向量检索请求（特征由设备端ArcFace模型提取）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingSearchRequest {
+    /**
+     * 特征向量 (每个为集合维度的浮点数组，服务端L2归一化)
+     */
+    @NotEmpty(message = "特征向量不能为空")
+    private List<List<Float>> embeddings;
+    
+    /**
+     * 相似度阈值 (0-1)
+     */
+    @Builder.Default
+    private Float threshold = 0.6f;
+    
+    /**
+     * 返回Top-K个结果
+     */
+    @Builder.Default
+    private Integer topK = 5;
+    
+    /**
+     * 检索配置名称 (fast / balanced / exact)，为空时使用默认配置
+     */
+    private String profile;
+    
+    /**
+     * 分组/租户标识 (可选)，设置后只在该分组内检索
+     */
+    @Pattern(regexp = FaceInfo.GROUP_ID_REGEX, message = FaceInfo.GROUP_ID_MESSAGE)
+    private String groupId;
+}
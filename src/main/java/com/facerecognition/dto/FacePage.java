@@ -0,0 +1,28 @@
+package com.facerecognition.dto;
+
+import com.facerecognition.model.FaceInfo;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 人脸列表分页结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacePage {
+    /**
+     * 当前页人脸 (按face_id升序)
+     */
+    private List<FaceInfo> items;
+    
+    /**
+     * 下一页游标 (传入cursor参数继续查询)，为null表示已到末尾
+     */
+    private String nextCursor;
+}
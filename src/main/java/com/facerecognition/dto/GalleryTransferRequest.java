@@ -0,0 +1,30 @@
+package com.facerecognition.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 人脸库导出/导入请求
+ * 文件位于 face.gallery.dir 目录下: {name}.emb 与 {name}.meta.jsonl
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GalleryTransferRequest {
+    /**
+     * 文件名 (不含扩展名)
+     */
+    @NotBlank(message = "文件名不能为空")
+    @Pattern(regexp = "^[A-Za-z0-9_\\-]{1,64}$", message = "文件名只能包含字母、数字、下划线和中划线")
+    private String name;
+    
+    /**
+     * 每批行数，为空时使用 face.gallery.batch-size
+     */
+    private Integer batchSize;
+}
@@ -0,0 +1,55 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 人脸库导出/导入状态
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class GalleryTransferStatus {
+    /**
+     * 操作: EXPORT, IMPORT
+     */
+    private String operation;
+    
+    /**
+     * 状态: IDLE, RUNNING, COMPLETED, FAILED
+     */
+    private String state;
+    
+    /**
+     * 文件名 (不含扩展名)
+     */
+    private String name;
+    
+    /**
+     * 总行数 (导入时为文件行数，导出完成后为导出行数)
+     */
+    private long totalRows;
+    
+    /**
+     * 已处理行数
+     */
+    private long processedRows;
+    
+    /**
+     * 开始时间
+     */
+    private Long startTime;
+    
+    /**
+     * 结束时间
+     */
+    private Long finishTime;
+    
+    /**
+     * 附加信息 (失败原因等)
+     */
+    private String message;
+}
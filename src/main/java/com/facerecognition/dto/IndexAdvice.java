@@ -0,0 +1,77 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 索引顾问建议
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexAdvice {
+    /**
+     * 集合行数
+     */
+    private long rowCount;
+    
+    /**
+     * 当前索引类型
+     */
+    private String currentIndexType;
+    
+    /**
+     * 当前nlist
+     */
+    private int currentNlist;
+    
+    /**
+     * 建议索引类型
+     */
+    private String recommendedIndexType;
+    
+    /**
+     * 建议nlist
+     */
+    private int recommendedNlist;
+    
+    /**
+     * 当前索引下达到目标召回率所需的最小nprobe (未测量时为null)
+     */
+    private Integer recommendedNprobe;
+    
+    /**
+     * 各nprobe实测的Recall@K
+     */
+    private Map<Integer, Float> measuredRecall;
+    
+    /**
+     * 实际参与测量的抽样向量数
+     */
+    private int sampleSize;
+    
+    /**
+     * 是否已应用nprobe建议
+     */
+    private boolean nprobeApplied;
+    
+    /**
+     * 是否已触发索引重建
+     */
+    private boolean rebuildTriggered;
+    
+    /**
+     * 说明
+     */
+    private String message;
+    
+    /**
+     * 生成时间
+     */
+    private long timestamp;
+}
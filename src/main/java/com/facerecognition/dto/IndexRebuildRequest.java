@@ -0,0 +1,60 @@
+package com.facerecognition.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 索引重建请求
+ * 未指定的索引参数使用 milvus.collection 中的配置
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexRebuildRequest {
+    /**
+     * 索引类型: FLAT, IVF_FLAT, IVF_SQ8, IVF_PQ, HNSW
+     */
+    @NotBlank(message = "索引类型不能为空")
+    private String indexType;
+    
+    /**
+     * IVF索引的nlist
+     */
+    private Integer nlist;
+    
+    /**
+     * HNSW索引的M
+     */
+    private Integer hnswM;
+    
+    /**
+     * HNSW索引的efConstruction
+     */
+    private Integer efConstruction;
+    
+    /**
+     * IVF_PQ索引的m
+     */
+    private Integer pqM;
+    
+    /**
+     * IVF_PQ索引的nbits
+     */
+    private Integer nbits;
+    
+    /**
+     * 回填时每批复制的行数
+     */
+    @Builder.Default
+    private Integer batchSize = 1000;
+    
+    /**
+     * 切换完成后是否删除旧集合 (默认保留以便回滚)
+     */
+    @Builder.Default
+    private Boolean dropOld = false;
+}
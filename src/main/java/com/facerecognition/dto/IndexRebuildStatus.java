@@ -0,0 +1,70 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 索引重建状态
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexRebuildStatus {
+    /**
+     * 状态: IDLE, RUNNING, COMPLETED, FAILED
+     */
+    private String state;
+    
+    /**
+     * 当前提供服务的集合 (别名指向的物理集合)
+     */
+    private String activeCollection;
+    
+    /**
+     * 当前生效的索引类型
+     */
+    private String activeIndexType;
+    
+    /**
+     * 回填源集合
+     */
+    private String sourceCollection;
+    
+    /**
+     * 重建目标集合
+     */
+    private String targetCollection;
+    
+    /**
+     * 目标索引类型
+     */
+    private String targetIndexType;
+    
+    /**
+     * 已复制行数
+     */
+    private long copiedRows;
+    
+    /**
+     * 源集合总行数
+     */
+    private long totalRows;
+    
+    /**
+     * 开始时间
+     */
+    private Long startTime;
+    
+    /**
+     * 结束时间
+     */
+    private Long finishTime;
+    
+    /**
+     * 附加信息 (失败原因等)
+     */
+    private String message;
+}
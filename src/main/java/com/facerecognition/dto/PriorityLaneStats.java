@@ -0,0 +1,42 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 优先级许可调度统计 (ONNX推理 / 向量数据库访问)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriorityLaneStats {
+    /**
+     * 资源名称
+     */
+    private String resource;
+    
+    /**
+     * 许可总数
+     */
+    private int permits;
+    
+    /**
+     * 批量任务最多可占用的许可数
+     */
+    private int bulkPermits;
+    
+    /**
+     * 各优先级当前占用的许可数
+     */
+    private Map<String, Integer> inUse;
+    
+    /**
+     * 各优先级当前等待许可的线程数
+     */
+    private Map<String, Integer> waiting;
+}
@@ -0,0 +1,50 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 在线召回率统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecallStats {
+    /**
+     * 已完成复查的样本数
+     */
+    private long samples;
+    
+    /**
+     * 因队列已满被丢弃的样本数
+     */
+    private long droppedSamples;
+    
+    /**
+     * 复查失败的样本数
+     */
+    private long failedSamples;
+    
+    /**
+     * 平均Recall@K (线上返回结果覆盖精确检索结果的比例)
+     */
+    private double recallAtK;
+    
+    /**
+     * Top-1一致率
+     */
+    private double top1Agreement;
+    
+    /**
+     * 平均排名偏移 (同一人脸在线上结果与精确结果中的名次差)
+     */
+    private double meanRankDisplacement;
+    
+    /**
+     * 最大排名偏移
+     */
+    private long maxRankDisplacement;
+}
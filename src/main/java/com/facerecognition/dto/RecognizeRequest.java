@@ -1,11 +1,16 @@
 package com.facerecognition.dto;
 
+import com.facerecognition.model.FaceInfo;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * 人脸识别请求
  */
@@ -31,4 +36,22 @@ public class RecognizeRequest {
      */
     @Builder.Default
     private Integer topK = 5;
+    
+    /**
+     * 检索配置名称 (fast / balanced / exact)，为空时使用默认配置
+     */
+    private String profile;
+    
+    /**
+     * 分组/租户标识 (可选)，设置后只在该分组内检索
+     */
+    @Pattern(regexp = FaceInfo.GROUP_ID_REGEX, message = FaceInfo.GROUP_ID_MESSAGE)
+    private String groupId;
+    
+    /**
+     * 人脸五点关键点 (仅对齐人脸接口使用)，按 左眼、右眼、鼻尖、左嘴角、右嘴角 顺序的 x1,y1,...,x5,y5 图片像素坐标；
+     * 为空时图片须为已对齐的人脸
+     */
+    @Size(min = 10, max = 10, message = "关键点须为5个点的10个坐标值")
+    private List<Float> landmarks;
 }
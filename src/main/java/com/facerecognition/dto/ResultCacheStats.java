@@ -0,0 +1,45 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 识别结果缓存统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultCacheStats {
+    /**
+     * 是否启用
+     */
+    private boolean enabled;
+    
+    /**
+     * 当前缓存条数
+     */
+    private int size;
+    
+    /**
+     * 命中次数
+     */
+    private long hits;
+    
+    /**
+     * 未命中次数 (实际执行识别)
+     */
+    private long misses;
+    
+    /**
+     * 与进行中的相同请求合并的次数
+     */
+    private long coalesced;
+    
+    /**
+     * 因过期或人脸库变更而丢弃的条数
+     */
+    private long expired;
+}
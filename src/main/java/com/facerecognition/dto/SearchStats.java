@@ -0,0 +1,40 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 向量检索统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchStats {
+    /**
+     * 检索总次数
+     */
+    private long totalSearches;
+    
+    /**
+     * 第一轮即确定为匹配的次数
+     */
+    private long firstPassMatches;
+    
+    /**
+     * 第一轮即确定为不匹配的次数
+     */
+    private long firstPassMisses;
+    
+    /**
+     * 进入第二轮检索的次数
+     */
+    private long secondPassSearches;
+    
+    /**
+     * 第二轮检索改变了是否匹配结论的次数
+     */
+    private long secondPassFlips;
+}
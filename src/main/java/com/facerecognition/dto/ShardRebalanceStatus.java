@@ -0,0 +1,55 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 重新分片状态
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardRebalanceStatus {
+    /**
+     * 状态: IDLE, RUNNING, COMPLETED, FAILED
+     */
+    private String state;
+    
+    /**
+     * 分片总数 (含主集合)
+     */
+    private int shardCount;
+    
+    /**
+     * 当前扫描的分片序号
+     */
+    private int currentShard;
+    
+    /**
+     * 已扫描行数
+     */
+    private long scannedRows;
+    
+    /**
+     * 已迁移行数
+     */
+    private long movedRows;
+    
+    /**
+     * 开始时间
+     */
+    private Long startTime;
+    
+    /**
+     * 结束时间
+     */
+    private Long finishTime;
+    
+    /**
+     * 附加信息 (失败原因等)
+     */
+    private String message;
+}
@@ -0,0 +1,44 @@
+package com.facerecognition.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 1:1人脸比对请求
+ * 第二张图片、人脸ID、人员ID三者须且只能提供一个
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerifyRequest {
+    /**
+     * Base64编码的图片数据
+     */
+    @NotBlank(message = "图片数据不能为空")
+    private String imageBase64;
+    
+    /**
+     * 比对的第二张图片 (Base64)
+     */
+    private String otherImageBase64;
+    
+    /**
+     * 比对的已注册人脸ID
+     */
+    private String faceId;
+    
+    /**
+     * 比对的已注册人员ID (与该人员所有人脸比对，取最高相似度)
+     */
+    private String personId;
+    
+    /**
+     * 相似度阈值 (0-1)
+     */
+    @Builder.Default
+    private Float threshold = 0.6f;
+}
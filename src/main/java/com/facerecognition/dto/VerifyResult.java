@@ -0,0 +1,45 @@
+package com.facerecognition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 1:1人脸比对结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerifyResult {
+    /**
+     * 是否为同一人 (相似度不低于阈值)
+     */
+    private boolean match;
+    
+    /**
+     * 相似度分数 (0-1)
+     */
+    private Float similarity;
+    
+    /**
+     * 使用的相似度阈值
+     */
+    private Float threshold;
+    
+    /**
+     * 相似度最高的已注册人脸ID (与图片比对时为空)
+     */
+    private String faceId;
+    
+    /**
+     * 比对的已注册人员ID (与图片比对时为空)
+     */
+    private String personId;
+    
+    /**
+     * 参与比对的已注册人脸数
+     */
+    private Integer comparedFaces;
+}
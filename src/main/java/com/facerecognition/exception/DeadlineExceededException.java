@@ -0,0 +1,12 @@
+package com.facerecognition.exception;
+
+/**
+ * 请求截止时间已过：客户端已不再等待，放弃剩余的检测/特征提取/检索，由全局异常处理器返回504
+ * 继承过载异常，沿用各层对过载异常的透传处理
+ */
+public class DeadlineExceededException extends ServiceOverloadedException {
+    
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -55,7 +55,27 @@ public class GlobalExceptionHandler {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiResponse<Object> handleMaxUploadSizeExceededException(MaxUploadSizeExceededException e) {
         log.warn("文件上传大小超限: {}", e.getMessage());
-        return ApiResponse.error(400, "文件大小超过限制(10MB)");
+        return ApiResponse.error(400, "文件大小超过限制");
+    }
+    
+    /**
+     * 请求截止时间已过（放弃处理）
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public ApiResponse<Object> handleDeadlineExceededException(DeadlineExceededException e) {
+        log.warn("请求超过截止时间: {}", e.getMessage());
+        return ApiResponse.error(504, e.getMessage());
+    }
+    
+    /**
+     * 服务过载（处理队列已满）
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ApiResponse<Object> handleServiceOverloadedException(ServiceOverloadedException e) {
+        log.warn("服务过载，拒绝请求: {}", e.getMessage());
+        return ApiResponse.error(503, e.getMessage());
     }
     
     /**
@@ -0,0 +1,11 @@
+package com.facerecognition.exception;
+
+/**
+ * 服务过载异常：处理队列已满时快速拒绝请求，由全局异常处理器返回503
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
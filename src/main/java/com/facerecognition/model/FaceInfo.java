@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.regex.Pattern;
+
 /**
  * 人脸信息实体
  */
@@ -13,6 +15,15 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class FaceInfo {
+    /**
+     * 分组ID格式，JSON请求体、表单参数与批量注册清单共用
+     */
+    public static final String GROUP_ID_REGEX = "^[A-Za-z0-9_\\-]{1,64}$";
+    
+    public static final String GROUP_ID_MESSAGE = "分组ID只能包含字母、数字、下划线和中划线，最长64位";
+    
+    private static final Pattern GROUP_ID_PATTERN = Pattern.compile(GROUP_ID_REGEX);
+    
     /**
      * 人脸唯一标识ID
      */
@@ -42,4 +53,16 @@ public class FaceInfo {
      * 注册时间
      */
     private Long registerTime;
+    
+    /**
+     * 分组/租户标识 (如楼栋、门禁区域)，为空表示未分组
+     */
+    private String groupId;
+    
+    /**
+     * 分组ID是否符合 {@link #GROUP_ID_REGEX}
+     */
+    public static boolean isValidGroupId(String groupId) {
+        return groupId != null && GROUP_ID_PATTERN.matcher(groupId).matches();
+    }
 }
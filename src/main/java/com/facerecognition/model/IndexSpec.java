@@ -0,0 +1,60 @@
+package com.facerecognition.model;
+
+import com.facerecognition.config.MilvusConfig;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 向量索引定义
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexSpec {
+    /**
+     * 索引类型: FLAT, IVF_FLAT, IVF_SQ8, IVF_PQ, HNSW
+     */
+    private String indexType;
+    
+    /**
+     * IVF索引的nlist
+     */
+    private int nlist;
+    
+    /**
+     * HNSW索引的M
+     */
+    private int hnswM;
+    
+    /**
+     * HNSW索引的efConstruction
+     */
+    private int efConstruction;
+    
+    /**
+     * IVF_PQ索引的m
+     */
+    private int pqM;
+    
+    /**
+     * IVF_PQ索引的nbits
+     */
+    private int nbits;
+    
+    /**
+     * 由集合配置构建索引定义
+     */
+    public static IndexSpec fromConfig(MilvusConfig.Collection collection) {
+        return IndexSpec.builder()
+                .indexType(collection.getIndexType())
+                .nlist(collection.getNlist())
+                .hnswM(collection.getHnswM())
+                .efConstruction(collection.getEfConstruction())
+                .pqM(collection.getPqM())
+                .nbits(collection.getNbits())
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.facerecognition.model;
+
+import io.milvus.common.clientenum.ConsistencyLevelEnum;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 向量检索参数
+ * 未设置的字段使用 milvus.collection 中的默认值
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchOptions {
+    /**
+     * 返回Top-K个结果
+     */
+    private int topK;
+    
+    /**
+     * IVF索引的nprobe
+     */
+    private Integer nprobe;
+    
+    /**
+     * HNSW索引的ef
+     */
+    private Integer ef;
+    
+    /**
+     * 一致性级别，为null时使用集合默认值
+     */
+    private ConsistencyLevelEnum consistencyLevel;
+    
+    /**
+     * 最低相似度 (0-1)，设置后以范围检索方式下推到Milvus
+     */
+    private Float minSimilarity;
+    
+    /**
+     * 分组/租户标识，设置后只在该分组内检索
+     */
+    private String groupId;
+}
@@ -0,0 +1,580 @@
+package com.facerecognition.service;
+
+import cn.hutool.core.text.csv.CsvData;
+import cn.hutool.core.text.csv.CsvReadConfig;
+import cn.hutool.core.text.csv.CsvRow;
+import cn.hutool.core.text.csv.CsvUtil;
+import com.facerecognition.config.FaceConfig;
+import com.facerecognition.dto.BulkEnrollFailure;
+import com.facerecognition.dto.BulkEnrollRequest;
+import com.facerecognition.dto.BulkEnrollStatus;
+import com.facerecognition.model.FaceDetectionResult;
+import com.facerecognition.model.FaceInfo;
+import com.facerecognition.util.ImageUtils;
+import com.facerecognition.util.Priority;
+import com.facerecognition.util.ZipUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.Mat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 异步批量注册服务
+ * 按清单（CSV: file,personId,name[,remark][,groupId]）读取服务器目录或上传zip包中的图片，
+ * 解码+检测+对齐在工作线程池中并行执行，对齐后的人脸分块合并为批量特征提取，
+ * 每批人脸一次写入向量库，写入与下一批的计算重叠执行；任务按提交顺序逐个运行
+ */
+@Slf4j
+@Service
+public class BulkEnrollService {
+    
+    private static final String DEFAULT_MANIFEST = "manifest.csv";
+    
+    @Autowired
+    private FaceConfig faceConfig;
+    
+    @Autowired
+    private FaceDetectionService faceDetectionService;
+    
+    @Autowired
+    private FaceAlignmentService faceAlignmentService;
+    
+    @Autowired
+    private FaceRecognitionService faceRecognitionService;
+    
+    @Autowired
+    private MilvusService milvusService;
+    
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(Priority.bind(Priority.BULK, r), "bulk-enroll");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(Priority.bind(Priority.BULK, r), "bulk-enroll-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private ExecutorService workers;
+    
+    /**
+     * 任务表 (按提交顺序)
+     */
+    private final Map<String, EnrollJob> jobs = new LinkedHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        int threads = faceConfig.getEnroll().getThreads() > 0
+                ? faceConfig.getEnroll().getThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        
+        workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(Priority.bind(Priority.BULK, r), "bulk-enroll-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        log.info("批量注册服务已就绪: threads={}", threads);
+    }
+    
+    /**
+     * 提交服务器目录批量注册任务
+     */
+    public BulkEnrollStatus submitDirectory(BulkEnrollRequest request) {
+        Path root = Paths.get(faceConfig.getEnroll().getRootDir()).toAbsolutePath().normalize();
+        Path directory = root.resolve(request.getDirectory()).normalize();
+        
+        if (!directory.startsWith(root) || !Files.isDirectory(directory)) {
+            throw new RuntimeException("批量注册目录不存在或不在 face.enroll.root-dir 下: " + request.getDirectory());
+        }
+        
+        Path manifest = resolveManifest(directory, request.getManifest());
+        
+        return submit(new EnrollJob(newJobId(), "directory:" + request.getDirectory(), directory, manifest,
+                request.getGroupId(), false));
+    }
+    
+    /**
+     * 提交上传zip包批量注册任务：先解压到 face.enroll.work-dir，任务结束后删除
+     * 
+     * @param in zip输入流
+     * @param fileName 上传文件名
+     * @param manifestName 包内清单文件，为空时为 manifest.csv
+     * @param groupId 默认分组ID
+     */
+    public BulkEnrollStatus submitZip(InputStream in, String fileName, String manifestName, String groupId) {
+        FaceConfig.Enroll config = faceConfig.getEnroll();
+        String jobId = newJobId();
+        Path directory = Paths.get(config.getWorkDir()).resolve(jobId).toAbsolutePath().normalize();
+        
+        try {
+            int files = ZipUtils.extract(in, directory, config.getMaxZipEntries(), config.getMaxImageBytes());
+            log.info("批量注册zip包已解压: jobId={}, files={}, dir={}", jobId, files, directory);
+            
+            Path manifest = resolveManifest(directory, manifestName);
+            
+            return submit(new EnrollJob(jobId, "zip:" + fileName, directory, manifest, groupId, true));
+            
+        } catch (IOException e) {
+            deleteRecursively(directory);
+            throw new RuntimeException("解压zip包失败: " + e.getMessage());
+        } catch (RuntimeException e) {
+            deleteRecursively(directory);
+            throw e;
+        }
+    }
+    
+    public BulkEnrollStatus getStatus(String jobId) {
+        EnrollJob job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        
+        if (job == null) {
+            throw new RuntimeException("批量注册任务不存在: " + jobId);
+        }
+        return job.toStatus(true);
+    }
+    
+    /**
+     * 所有保留的任务 (不含失败明细)
+     */
+    public List<BulkEnrollStatus> listJobs() {
+        List<BulkEnrollStatus> statuses = new ArrayList<>();
+        synchronized (jobs) {
+            for (EnrollJob job : jobs.values()) {
+                statuses.add(job.toStatus(false));
+            }
+        }
+        return statuses;
+    }
+    
+    private Path resolveManifest(Path directory, String manifestName) {
+        String name = (manifestName == null || manifestName.isEmpty()) ? DEFAULT_MANIFEST : manifestName;
+        Path manifest = directory.resolve(name).normalize();
+        
+        if (!manifest.startsWith(directory) || !Files.isRegularFile(manifest)) {
+            throw new RuntimeException("清单文件不存在: " + name);
+        }
+        return manifest;
+    }
+    
+    private BulkEnrollStatus submit(EnrollJob job) {
+        synchronized (jobs) {
+            trimFinishedJobs();
+            jobs.put(job.jobId, job);
+        }
+        
+        log.info("批量注册任务已提交: jobId={}, source={}", job.jobId, job.source);
+        
+        coordinator.submit(() -> run(job));
+        
+        return job.toStatus(false);
+    }
+    
+    /**
+     * 只保留最近 face.enroll.max-retained-jobs 个已结束任务
+     */
+    private void trimFinishedJobs() {
+        int finished = 0;
+        for (EnrollJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finished++;
+            }
+        }
+        
+        Iterator<EnrollJob> iterator = jobs.values().iterator();
+        while (finished >= Math.max(faceConfig.getEnroll().getMaxRetainedJobs(), 1) && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+    
+    private void run(EnrollJob job) {
+        FaceConfig.Enroll config = faceConfig.getEnroll();
+        job.state = "RUNNING";
+        job.startTime = System.currentTimeMillis();
+        
+        try {
+            List<ManifestItem> items = readManifest(job);
+            
+            log.info("批量注册任务开始: jobId={}, items={}", job.jobId, items.size());
+            
+            int writeBatchSize = Math.max(config.getWriteBatchSize(), 1);
+            CompletableFuture<Void> pendingWrite = CompletableFuture.completedFuture(null);
+            
+            for (int start = 0; start < items.size(); start += writeBatchSize) {
+                List<ManifestItem> chunk = items.subList(start, Math.min(start + writeBatchSize, items.size()));
+                List<Prepared> prepared = extractChunk(job, chunk);
+                
+                // 上一批写入完成后再提交本批，写入与下一批的计算重叠
+                pendingWrite.join();
+                pendingWrite = CompletableFuture.runAsync(() -> write(job, prepared), writer);
+            }
+            pendingWrite.join();
+            
+            job.finish("COMPLETED", "成功 " + job.succeededItems.get() + " 条，失败 " + job.failedItems.get() + " 条");
+            
+            log.info("批量注册任务完成: jobId={}, succeeded={}, failed={}, throughput={}/s",
+                    job.jobId, job.succeededItems.get(), job.failedItems.get(), job.toStatus(false).getThroughput());
+                    
+        } catch (Exception e) {
+            log.error("批量注册任务失败: jobId={}", job.jobId, e);
+            job.finish("FAILED", e.getMessage());
+        } finally {
+            if (job.cleanup) {
+                deleteRecursively(job.directory);
+            }
+        }
+    }
+    
+    /**
+     * 读取清单：表头需包含 file、personId、name，可选 remark、groupId；缺少必填列或分组ID不合法的行记为失败
+     */
+    private List<ManifestItem> readManifest(EnrollJob job) throws IOException {
+        CsvReadConfig readConfig = CsvReadConfig.defaultConfig();
+        readConfig.setContainsHeader(true);
+        readConfig.setSkipEmptyRows(true);
+        
+        CsvData data;
+        try (Reader reader = Files.newBufferedReader(job.manifest, StandardCharsets.UTF_8)) {
+            data = CsvUtil.getReader(readConfig).read(reader);
+        }
+        
+        List<String> header = data.getHeader();
+        if (header == null || !header.containsAll(Arrays.asList("file", "personId", "name"))) {
+            throw new RuntimeException("清单表头需包含 file,personId,name");
+        }
+        
+        job.totalItems = data.getRowCount();
+        
+        List<ManifestItem> items = new ArrayList<>(data.getRowCount());
+        long line = 0;
+        for (CsvRow row : data.getRows()) {
+            line++;
+            ManifestItem item = new ManifestItem(line, trim(row.getByName("file")), trim(row.getByName("personId")),
+                    trim(row.getByName("name")), trim(row.getByName("remark")), trim(row.getByName("groupId")));
+            
+            if (item.file == null || item.personId == null || item.name == null) {
+                job.fail(item, "缺少 file/personId/name");
+                continue;
+            }
+            if (item.groupId != null && !FaceInfo.isValidGroupId(item.groupId)) {
+                job.fail(item, FaceInfo.GROUP_ID_MESSAGE);
+                continue;
+            }
+            items.add(item);
+        }
+        
+        return items;
+    }
+    
+    private String trim(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+    
+    /**
+     * 一批清单条目：并行解码+检测+对齐，再按 face.enroll.embed-batch-size 分块并行提取特征
+     */
+    private List<Prepared> extractChunk(EnrollJob job, List<ManifestItem> chunk) {
+        List<CompletableFuture<Prepared>> futures = new ArrayList<>(chunk.size());
+        for (ManifestItem item : chunk) {
+            futures.add(CompletableFuture.supplyAsync(() -> prepare(job, item), workers));
+        }
+        
+        List<Prepared> aligned = new ArrayList<>(chunk.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                aligned.add(futures.get(i).join());
+            } catch (Exception e) {
+                job.fail(chunk.get(i), rootMessage(e));
+            }
+        }
+        
+        int embedBatchSize = Math.max(faceConfig.getEnroll().getEmbedBatchSize(), 1);
+        List<List<Prepared>> batches = new ArrayList<>();
+        List<CompletableFuture<Void>> embeddings = new ArrayList<>();
+        for (int start = 0; start < aligned.size(); start += embedBatchSize) {
+            List<Prepared> batch = aligned.subList(start, Math.min(start + embedBatchSize, aligned.size()));
+            batches.add(batch);
+            embeddings.add(CompletableFuture.runAsync(() -> embed(batch), workers));
+        }
+        
+        List<Prepared> prepared = new ArrayList<>(aligned.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            try {
+                embeddings.get(i).join();
+                prepared.addAll(batches.get(i));
+            } catch (Exception e) {
+                for (Prepared face : batches.get(i)) {
+                    job.fail(face.item, rootMessage(e));
+                }
+            } finally {
+                for (Prepared face : batches.get(i)) {
+                    face.alignedFace.release();
+                }
+            }
+        }
+        
+        return prepared;
+    }
+    
+    private Prepared prepare(EnrollJob job, ManifestItem item) {
+        Path file = job.directory.resolve(item.file).normalize();
+        if (!file.startsWith(job.directory) || !Files.isRegularFile(file)) {
+            throw new RuntimeException("图片文件不存在: " + item.file);
+        }
+        
+        byte[] imageBytes;
+        try {
+            if (Files.size(file) > faceConfig.getEnroll().getMaxImageBytes()) {
+                throw new RuntimeException("图片文件过大: " + item.file);
+            }
+            imageBytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new RuntimeException("读取图片失败: " + e.getMessage());
+        }
+        
+        Mat image = ImageUtils.decodeBytesToMat(imageBytes);
+        try {
+            List<FaceDetectionResult> detectionResults = faceDetectionService.detectFaces(image);
+            
+            if (detectionResults.isEmpty()) {
+                throw new RuntimeException("未检测到人脸");
+            }
+            
+            return new Prepared(item, faceAlignmentService.alignFace(image, detectionResults.get(0).getLandmarks()));
+        } finally {
+            image.release();
+        }
+    }
+    
+    private void embed(List<Prepared> batch) {
+        List<Mat> alignedFaces = new ArrayList<>(batch.size());
+        for (Prepared face : batch) {
+            alignedFaces.add(face.alignedFace);
+        }
+        
+        List<float[]> features = faceRecognitionService.extractFeatures(alignedFaces);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).feature = features.get(i);
+        }
+    }
+    
+    /**
+     * 一批人脸一次写入向量库，写入失败时整批记为失败
+     */
+    private void write(EnrollJob job, List<Prepared> prepared) {
+        if (prepared.isEmpty()) {
+            return;
+        }
+        
+        long registerTime = System.currentTimeMillis();
+        List<FaceInfo> faces = new ArrayList<>(prepared.size());
+        for (Prepared face : prepared) {
+            ManifestItem item = face.item;
+            faces.add(FaceInfo.builder()
+                    .faceId(UUID.randomUUID().toString().replace("-", ""))
+                    .name(item.name)
+                    .personId(item.personId)
+                    .feature(face.feature)
+                    .remark(item.remark)
+                    .registerTime(registerTime)
+                    .groupId(item.groupId != null ? item.groupId : job.groupId)
+                    .build());
+        }
+        
+        try {
+            milvusService.insertFaces(faces);
+            job.succeededItems.addAndGet(faces.size());
+            job.processedItems.addAndGet(faces.size());
+        } catch (Exception e) {
+            log.error("批量注册写入失败: jobId={}, faces={}", job.jobId, faces.size(), e);
+            for (Prepared face : prepared) {
+                job.fail(face.item, "写入向量库失败: " + e.getMessage());
+            }
+        }
+    }
+    
+    private String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+    
+    private String newJobId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+    }
+    
+    private void deleteRecursively(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("删除临时文件失败: {}", path);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("清理批量注册目录失败: {}", directory);
+        }
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        coordinator.shutdownNow();
+        writer.shutdownNow();
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+    
+    /**
+     * 清单中的一行
+     */
+    private static class ManifestItem {
+        private final long line;
+        private final String file;
+        private final String personId;
+        private final String name;
+        private final String remark;
+        private final String groupId;
+        
+        ManifestItem(long line, String file, String personId, String name, String remark, String groupId) {
+            this.line = line;
+            this.file = file;
+            this.personId = personId;
+            this.name = name;
+            this.remark = remark;
+            this.groupId = groupId;
+        }
+    }
+    
+    /**
+     * 已对齐（及已提取特征）的人脸
+     */
+    private static class Prepared {
+        private final ManifestItem item;
+        private final Mat alignedFace;
+        private float[] feature;
+        
+        Prepared(ManifestItem item, Mat alignedFace) {
+            this.item = item;
+            this.alignedFace = alignedFace;
+        }
+    }
+    
+    /**
+     * 批量注册任务的运行状态
+     */
+    private class EnrollJob {
+        private final String jobId;
+        private final String source;
+        private final Path directory;
+        private final Path manifest;
+        private final String groupId;
+        private final boolean cleanup;
+        
+        private volatile String state = "QUEUED";
+        private volatile long totalItems;
+        private volatile Long startTime;
+        private volatile Long finishTime;
+        private volatile String message;
+        private final AtomicLong processedItems = new AtomicLong();
+        private final AtomicLong succeededItems = new AtomicLong();
+        private final AtomicLong failedItems = new AtomicLong();
+        private final List<BulkEnrollFailure> failures = Collections.synchronizedList(new ArrayList<>());
+        
+        EnrollJob(String jobId, String source, Path directory, Path manifest, String groupId, boolean cleanup) {
+            this.jobId = jobId;
+            this.source = source;
+            this.directory = directory;
+            this.manifest = manifest;
+            this.groupId = groupId;
+            this.cleanup = cleanup;
+        }
+        
+        boolean isFinished() {
+            return "COMPLETED".equals(state) || "FAILED".equals(state);
+        }
+        
+        void fail(ManifestItem item, String error) {
+            failedItems.incrementAndGet();
+            processedItems.incrementAndGet();
+            
+            if (failures.size() < faceConfig.getEnroll().getMaxReportedFailures()) {
+                failures.add(BulkEnrollFailure.builder()
+                        .line(item.line)
+                        .file(item.file)
+                        .personId(item.personId)
+                        .error(error)
+                        .build());
+            }
+        }
+        
+        void finish(String finalState, String finalMessage) {
+            finishTime = System.currentTimeMillis();
+            message = finalMessage;
+            state = finalState;
+        }
+        
+        BulkEnrollStatus toStatus(boolean withFailures) {
+            long processed = processedItems.get();
+            long elapsed = startTime == null ? 0
+                    : (finishTime != null ? finishTime : System.currentTimeMillis()) - startTime;
+            
+            List<BulkEnrollFailure> failureList = null;
+            if (withFailures) {
+                synchronized (failures) {
+                    failureList = new ArrayList<>(failures);
+                }
+            }
+            
+            return BulkEnrollStatus.builder()
+                    .jobId(jobId)
+                    .state(state)
+                    .source(source)
+                    .totalItems(totalItems)
+                    .processedItems(processed)
+                    .succeededItems(succeededItems.get())
+                    .failedItems(failedItems.get())
+                    .throughput(elapsed > 0 ? processed * 1000.0 / elapsed : 0.0)
+                    .startTime(startTime)
+                    .finishTime(finishTime)
+                    .message(message)
+                    .failures(failureList)
+                    .build();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.facerecognition.service;
 import ai.onnxruntime.*;
 import com.facerecognition.config.FaceConfig;
 import com.facerecognition.config.OnnxConfig;
+import com.facerecognition.exception.ServiceOverloadedException;
 import com.facerecognition.model.FaceDetectionResult;
 import com.facerecognition.util.ImageUtils;
 import lombok.AllArgsConstructor;
@@ -31,6 +32,9 @@ public class FaceDetectionService {
     @Autowired
     private FaceConfig faceConfig;
     
+    @Autowired
+    private InferenceLimiter inferenceLimiter;
+    
     private OrtEnvironment environment;
     private OrtSession session;
     private String inputName;
@@ -104,19 +108,26 @@ public class FaceDetectionService {
             Map<String, OnnxTensor> inputs = new HashMap<>();
             inputs.put(inputName, inputTensor);
             
-            OrtSession.Result result = session.run(inputs);
+            // 等待推理许可被拒绝时也要释放输入Tensor
+            OrtSession.Result result;
+            try {
+                result = inferenceLimiter.run(() -> session.run(inputs));
+            } finally {
+                inputTensor.close();
+            }
             
             // 5. 解析输出（完整NMS后处理）
             List<FaceDetectionResult> faces = parseDetectionOutput(result, resizeResult);
             
             // 清理资源
-            inputTensor.close();
             result.close();
             
             log.debug("检测到 {} 张人脸", faces.size());
             
             return faces;
             
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("人脸检测失败", e);
             throw new RuntimeException("人脸检测失败: " + e.getMessage());
@@ -0,0 +1,164 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.FaceInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 人脸元数据本地缓存 (faceId -> 人员信息)
+ * 启动时从Milvus全量加载，插入/删除时同步更新；
+ * 检索时Milvus只需返回ID和分数，由本缓存补全姓名、人员ID等字段；
+ * 人脸库的每次写入/删除都经过本缓存，因此同时维护人脸库变更代数
+ */
+@Slf4j
+@Service
+public class FaceMetadataCache {
+    
+    private final Map<String, FaceInfo> faces = new ConcurrentHashMap<>();
+    
+    /**
+     * 是否已完成全量加载
+     */
+    private volatile boolean ready;
+    
+    /**
+     * 人脸库变更代数，每次写入/删除/清空递增
+     */
+    private final AtomicLong generation = new AtomicLong();
+    
+    /**
+     * 删除标记 (faceId/personId -> 删除时间)：Milvus最终一致性下已删除的行短时间内仍可能被检索到，
+     * 标记保留期内按主键补查到的这些行不再回填缓存
+     */
+    private static final long TOMBSTONE_TTL_MS = 60_000;
+    private final Map<String, Long> removedFaces = new ConcurrentHashMap<>();
+    private final Map<String, Long> removedPersons = new ConcurrentHashMap<>();
+    private final AtomicLong lastPurge = new AtomicLong();
+    
+    /**
+     * 获取人脸元数据
+     * 
+     * @param faceId 人脸ID
+     * @return 人脸信息 (不含特征)，不存在时返回null
+     */
+    public FaceInfo get(String faceId) {
+        return faces.get(faceId);
+    }
+    
+    /**
+     * 写入人脸元数据（不保存特征向量）
+     */
+    public void put(FaceInfo faceInfo) {
+        generation.incrementAndGet();
+        faces.put(faceInfo.getFaceId(), FaceInfo.builder()
+                .faceId(faceInfo.getFaceId())
+                .personId(faceInfo.getPersonId())
+                .name(faceInfo.getName())
+                .remark(faceInfo.getRemark() != null ? faceInfo.getRemark() : "")
+                .registerTime(faceInfo.getRegisterTime())
+                .groupId(faceInfo.getGroupId())
+                .build());
+    }
+    
+    /**
+     * 回填检索补查到的人脸元数据：人脸库内容未变化，不递增变更代数；
+     * 已被删除 (删除标记保留期内) 的人脸不回填
+     * 
+     * @return 是否已回填
+     */
+    public boolean admit(FaceInfo faceInfo) {
+        if (isRemoved(faceInfo)) {
+            return false;
+        }
+        
+        faces.put(faceInfo.getFaceId(), FaceInfo.builder()
+                .faceId(faceInfo.getFaceId())
+                .personId(faceInfo.getPersonId())
+                .name(faceInfo.getName())
+                .remark(faceInfo.getRemark() != null ? faceInfo.getRemark() : "")
+                .registerTime(faceInfo.getRegisterTime())
+                .groupId(faceInfo.getGroupId())
+                .build());
+        
+        // 回填期间并发删除时撤销本次回填
+        if (isRemoved(faceInfo)) {
+            faces.remove(faceInfo.getFaceId());
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * 人脸是否在删除标记保留期内被删除（删除后重新注册的不算）
+     */
+    public boolean isRemoved(FaceInfo faceInfo) {
+        long registerTime = faceInfo.getRegisterTime() != null ? faceInfo.getRegisterTime() : 0;
+        Long faceRemoved = removedFaces.get(faceInfo.getFaceId());
+        Long personRemoved = faceInfo.getPersonId() != null ? removedPersons.get(faceInfo.getPersonId()) : null;
+        return (faceRemoved != null && faceRemoved >= registerTime)
+                || (personRemoved != null && personRemoved >= registerTime);
+    }
+    
+    public void removeFace(String faceId) {
+        generation.incrementAndGet();
+        removedFaces.put(faceId, System.currentTimeMillis());
+        faces.remove(faceId);
+        purgeTombstones();
+    }
+    
+    public void removePerson(String personId) {
+        generation.incrementAndGet();
+        removedPersons.put(personId, System.currentTimeMillis());
+        faces.values().removeIf(faceInfo -> Objects.equals(faceInfo.getPersonId(), personId));
+        purgeTombstones();
+    }
+    
+    /**
+     * 清理过期的删除标记（最多每秒一次）
+     */
+    private void purgeTombstones() {
+        long now = System.currentTimeMillis();
+        long last = lastPurge.get();
+        if (now - last < 1000 || !lastPurge.compareAndSet(last, now)) {
+            return;
+        }
+        
+        long expired = now - TOMBSTONE_TTL_MS;
+        removedFaces.values().removeIf(time -> time < expired);
+        removedPersons.values().removeIf(time -> time < expired);
+    }
+    
+    /**
+     * 清空缓存并标记为未加载
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        ready = false;
+        faces.clear();
+    }
+    
+    public void markReady() {
+        ready = true;
+        log.info("人脸元数据缓存加载完成: {} 条", faces.size());
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * 人脸库变更代数，变化即表示人脸库内容可能已变化
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+    
+    public int size() {
+        return faces.size();
+    }
+}
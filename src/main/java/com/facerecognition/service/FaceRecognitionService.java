@@ -2,6 +2,7 @@ package com.facerecognition.service;
 
 import ai.onnxruntime.*;
 import com.facerecognition.config.OnnxConfig;
+import com.facerecognition.exception.ServiceOverloadedException;
 import com.facerecognition.util.ImageUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.opencv.core.Mat;
@@ -11,7 +12,9 @@ import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.nio.FloatBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,10 +28,18 @@ public class FaceRecognitionService {
     @Autowired
     private OnnxConfig onnxConfig;
     
+    @Autowired
+    private InferenceLimiter inferenceLimiter;
+    
     private OrtEnvironment environment;
     private OrtSession session;
     private String inputName;
     
+    /**
+     * 模型输入的batch维是否为动态维度（可一次推理多张人脸）
+     */
+    private boolean dynamicBatch;
+    
     @PostConstruct
     public void init() throws Exception {
         log.info("初始化ONNX人脸识别服务...");
@@ -48,8 +59,12 @@ public class FaceRecognitionService {
         // 获取输入名称
         inputName = session.getInputNames().iterator().next();
         
+        NodeInfo inputInfo = session.getInputInfo().get(inputName);
+        long[] inputShape = ((TensorInfo) inputInfo.getInfo()).getShape();
+        dynamicBatch = inputShape.length > 0 && inputShape[0] < 0;
+        
         log.info("ONNX人脸识别模型加载成功: {}", modelPath);
-        log.info("模型输入: {}", inputName);
+        log.info("模型输入: {}, 动态batch: {}", inputName, dynamicBatch);
         log.info("模型输出: {}", session.getOutputNames());
     }
     
@@ -78,7 +93,13 @@ public class FaceRecognitionService {
             Map<String, OnnxTensor> inputs = new HashMap<>();
             inputs.put(inputName, inputTensor);
             
-            OrtSession.Result result = session.run(inputs);
+            // 等待推理许可被拒绝时也要释放输入Tensor
+            OrtSession.Result result;
+            try {
+                result = inferenceLimiter.run(() -> session.run(inputs));
+            } finally {
+                inputTensor.close();
+            }
             
             // 4. 获取特征向量
             String outputName = session.getOutputNames().iterator().next();
@@ -91,19 +112,97 @@ public class FaceRecognitionService {
             feature = normalizeFeature(feature);
             
             // 清理资源
-            inputTensor.close();
             result.close();
             
             log.debug("特征提取成功，维度: {}", feature.length);
             
             return feature;
             
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("人脸特征提取失败", e);
             throw new RuntimeException("人脸特征提取失败: " + e.getMessage());
         }
     }
     
+    /**
+     * 批量提取人脸特征向量
+     * 模型batch维为动态维度时整批合并为一次推理（占用一个推理许可），否则逐张提取
+     * 
+     * @param alignedFaces 对齐后的人脸图片 (112x112, BGR格式)
+     * @return 与输入一一对应的512维特征向量
+     */
+    public List<float[]> extractFeatures(List<Mat> alignedFaces) {
+        List<float[]> features = new ArrayList<>(alignedFaces.size());
+        if (alignedFaces.isEmpty()) {
+            return features;
+        }
+        
+        if (!dynamicBatch || alignedFaces.size() == 1) {
+            for (Mat alignedFace : alignedFaces) {
+                features.add(extractFeature(alignedFace));
+            }
+            return features;
+        }
+        
+        try {
+            int batch = alignedFaces.size();
+            int inputSize = alignedFaces.get(0).height();
+            int faceSize = 3 * inputSize * inputSize;
+            
+            // 按NCHW顺序拼接整批输入
+            float[] inputData = new float[batch * faceSize];
+            for (int i = 0; i < batch; i++) {
+                Mat alignedFace = alignedFaces.get(i);
+                if (alignedFace.height() != inputSize || alignedFace.width() != inputSize) {
+                    throw new IllegalArgumentException("批量提取要求人脸尺寸一致");
+                }
+                float[] faceData = ImageUtils.matToOnnxInput(alignedFace,
+                        new float[]{127.5f, 127.5f, 127.5f},
+                        new float[]{128.0f, 128.0f, 128.0f},
+                        false);
+                System.arraycopy(faceData, 0, inputData, i * faceSize, faceSize);
+            }
+            
+            long[] inputShape = new long[]{batch, 3, inputSize, inputSize};
+            OnnxTensor inputTensor = OnnxTensor.createTensor(environment,
+                    FloatBuffer.wrap(inputData), inputShape);
+            
+            Map<String, OnnxTensor> inputs = new HashMap<>();
+            inputs.put(inputName, inputTensor);
+            
+            OrtSession.Result result;
+            try {
+                result = inferenceLimiter.run(() -> session.run(inputs));
+            } finally {
+                inputTensor.close();
+            }
+            
+            try {
+                String outputName = session.getOutputNames().iterator().next();
+                OnnxTensor outputTensor = (OnnxTensor) result.get(outputName).get();
+                
+                float[][] output = (float[][]) outputTensor.getValue();
+                for (float[] feature : output) {
+                    features.add(normalizeFeature(feature));
+                }
+            } finally {
+                result.close();
+            }
+            
+            log.debug("批量特征提取成功: batch={}", batch);
+            
+            return features;
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("批量人脸特征提取失败", e);
+            throw new RuntimeException("批量人脸特征提取失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * L2归一化特征向量
      * 
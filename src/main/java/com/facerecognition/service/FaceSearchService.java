@@ -0,0 +1,425 @@
+package com.facerecognition.service;
+
+import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.dto.SearchStats;
+import com.facerecognition.model.FaceInfo;
+import com.facerecognition.model.SearchOptions;
+import io.milvus.common.clientenum.ConsistencyLevelEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 人脸向量检索服务
+ * 在Milvus检索之上提供两阶段检索：低nprobe过采样候选，取回（或命中本地缓存）完整向量后精确重排序
+ * （仅对返回近似距离的量化索引与HNSW生效，IVF_FLAT等精确距离索引跳过重排序）；
+ * 以及自适应检索：仅对阈值附近的不确定查询执行高nprobe (HNSW索引为高ef) 的第二轮
+ */
+@Slf4j
+@Service
+public class FaceSearchService {
+    
+    @Autowired
+    private MilvusConfig milvusConfig;
+    
+    @Autowired
+    private MilvusService milvusService;
+    
+    @Autowired
+    private RecallMonitor recallMonitor;
+    
+    /**
+     * Milvus单次检索topK上限
+     */
+    private static final int MAX_TOP_K = 16384;
+    
+    /**
+     * 返回量化距离的索引类型
+     */
+    private static final Set<String> QUANTIZED_INDEX_TYPES = Set.of("IVF_SQ8", "IVF_PQ", "HNSW_SQ", "HNSW_PQ", "HNSW_PRQ");
+    
+    private final AtomicLong totalSearches = new AtomicLong();
+    private final AtomicLong firstPassMatches = new AtomicLong();
+    private final AtomicLong firstPassMisses = new AtomicLong();
+    private final AtomicLong secondPassSearches = new AtomicLong();
+    private final AtomicLong secondPassFlips = new AtomicLong();
+    
+    /**
+     * 本地特征向量缓存 (faceId -> 特征)，按访问顺序LRU淘汰
+     */
+    private final Map<String, CachedFeature> featureCache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedFeature> eldest) {
+            return size() > milvusConfig.getSearch().getRerank().getCacheSize();
+        }
+    };
+    
+    /**
+     * 检索相似人脸
+     * 启用自适应检索时，第一轮以低nprobe检索；最佳相似度落在阈值附近的不确定区间时，再以高nprobe（或精确）重查；
+     * HNSW索引不使用nprobe，两轮改为调整ef
+     * 
+     * @param feature 查询特征向量
+     * @param threshold 相似度阈值 (启用范围检索时下推到Milvus)
+     * @param topK 返回Top-K个结果
+     * @return 按相似度降序排列的结果
+     */
+    public List<MilvusService.SearchResult> search(float[] feature, float threshold, int topK) {
+        return search(feature, threshold, topK, null, null);
+    }
+    
+    /**
+     * 按检索配置检索相似人脸
+     * 
+     * @param feature 查询特征向量
+     * @param threshold 相似度阈值
+     * @param topK 返回Top-K个结果
+     * @param profile 检索配置，为null时使用全局检索参数（含自适应检索）
+     * @param groupId 分组ID，为空时检索全库
+     * @return 按相似度降序排列的结果
+     */
+    public List<MilvusService.SearchResult> search(float[] feature, float threshold, int topK,
+                                                   MilvusConfig.Profile profile, String groupId) {
+        totalSearches.incrementAndGet();
+        
+        List<MilvusService.SearchResult> results = doSearch(feature, threshold, topK, profile, groupId);
+        
+        // 抽样复查线上返回结果的召回率
+        recallMonitor.offer(feature, topK, milvusConfig.getSearch().isRangeSearch() ? threshold : null,
+                groupId, results);
+        
+        return results;
+    }
+    
+    private List<MilvusService.SearchResult> doSearch(float[] feature, float threshold, int topK,
+                                                      MilvusConfig.Profile profile, String groupId) {
+        MilvusConfig.Adaptive adaptive = milvusConfig.getSearch().getAdaptive();
+        
+        if (profile != null) {
+            return searchWithProfile(feature, threshold, topK, profile, groupId);
+        }
+        
+        if (!adaptive.isEnabled()) {
+            return searchOnce(feature, threshold, topK, null, null, groupId);
+        }
+        
+        String indexType = milvusService.getActiveIndexType();
+        boolean hnsw = indexType != null && indexType.startsWith("HNSW");
+        
+        float band = adaptive.getBand();
+        Integer firstEf = adaptive.getFirstEf() > 0 ? adaptive.getFirstEf() : null;
+        List<MilvusService.SearchResult> firstPass = hnsw
+                ? searchOnce(feature, threshold - band, topK, null, firstEf, groupId)
+                : searchOnce(feature, threshold - band, topK, adaptive.getFirstNprobe(), null, groupId);
+        
+        float best = firstPass.isEmpty() ? 0.0f : firstPass.get(0).similarity;
+        
+        if (firstPass.isEmpty() || best < threshold - band) {
+            firstPassMisses.incrementAndGet();
+            return firstPass;
+        }
+        if (best > threshold + band) {
+            firstPassMatches.incrementAndGet();
+            return firstPass;
+        }
+        
+        secondPassSearches.incrementAndGet();
+        
+        List<MilvusService.SearchResult> secondPass;
+        if (hnsw) {
+            int secondEf = adaptive.getSecondEf() > 0
+                    ? adaptive.getSecondEf() : milvusConfig.getCollection().getEf() * 4;
+            secondPass = searchOnce(feature, threshold - band, topK, null, Math.max(secondEf, topK), groupId);
+        } else {
+            int secondNprobe = adaptive.getSecondNprobe() > 0
+                    ? adaptive.getSecondNprobe() : milvusService.getActiveNlist();
+            secondPass = searchOnce(feature, threshold - band, topK, secondNprobe, null, groupId);
+        }
+        
+        boolean secondMatched = !secondPass.isEmpty() && secondPass.get(0).similarity >= threshold;
+        if (secondMatched != best >= threshold) {
+            secondPassFlips.incrementAndGet();
+        }
+        
+        log.debug("自适应检索进入第二轮: firstBest={}, indexType={}, matched={}", best, indexType, secondMatched);
+        
+        return secondPass;
+    }
+    
+    /**
+     * 批量检索相似人脸
+     * 单轮检索（无自适应第二轮、无重排序）时整批合并为一次多向量检索，否则逐条执行 {@link #search}
+     * 
+     * @param features 查询特征向量
+     * @param threshold 相似度阈值
+     * @param topK 返回Top-K个结果
+     * @param profile 检索配置，为null时使用全局检索参数
+     * @param groupId 分组ID，为空时检索全库
+     * @return 与查询向量一一对应的结果，各自按相似度降序排列
+     */
+    public List<List<MilvusService.SearchResult>> searchBatch(List<float[]> features, float threshold, int topK,
+                                                              MilvusConfig.Profile profile, String groupId) {
+        SearchOptions options = singlePassOptions(threshold, topK, profile, groupId);
+        
+        if (options == null) {
+            List<List<MilvusService.SearchResult>> results = new ArrayList<>(features.size());
+            for (float[] feature : features) {
+                results.add(search(feature, threshold, topK, profile, groupId));
+            }
+            return results;
+        }
+        
+        totalSearches.addAndGet(features.size());
+        
+        List<List<MilvusService.SearchResult>> results = milvusService.searchSimilarFacesBatch(features, options);
+        
+        Float minSimilarity = milvusConfig.getSearch().isRangeSearch() ? threshold : null;
+        for (int i = 0; i < features.size(); i++) {
+            recallMonitor.offer(features.get(i), topK, minSimilarity, groupId, results.get(i));
+        }
+        
+        return results;
+    }
+    
+    /**
+     * 单轮检索的检索参数；需要自适应第二轮或重排序时返回null
+     */
+    private SearchOptions singlePassOptions(float threshold, int topK, MilvusConfig.Profile profile, String groupId) {
+        if (profile != null) {
+            return profile.isRerank() && rerankApplies(profile.getOversample()) ? null : profileOptions(threshold, topK, profile, groupId);
+        }
+        
+        MilvusConfig.Search searchConfig = milvusConfig.getSearch();
+        if (searchConfig.getAdaptive().isEnabled() || (searchConfig.getRerank().isEnabled()
+                && rerankApplies(searchConfig.getRerank().getOversample()))) {
+            return null;
+        }
+        
+        return SearchOptions.builder()
+                .topK(topK)
+                .minSimilarity(searchConfig.isRangeSearch() ? threshold : null)
+                .groupId(groupId)
+                .build();
+    }
+    
+    /**
+     * 解析检索配置名称
+     * 
+     * @param profileName 检索配置名称，为空时取默认配置
+     * @return 检索配置，未配置默认值时返回null（使用全局检索参数）
+     */
+    public MilvusConfig.Profile resolveProfile(String profileName) {
+        MilvusConfig.Search searchConfig = milvusConfig.getSearch();
+        String name = (profileName == null || profileName.isEmpty()) ? searchConfig.getDefaultProfile() : profileName;
+        
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        
+        MilvusConfig.Profile profile = searchConfig.getProfiles().get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("未知的检索配置: " + name);
+        }
+        return profile;
+    }
+    
+    /**
+     * 按检索配置执行单轮检索
+     */
+    private List<MilvusService.SearchResult> searchWithProfile(float[] feature, float threshold, int topK,
+                                                               MilvusConfig.Profile profile, String groupId) {
+        SearchOptions options = profileOptions(threshold, topK, profile, groupId);
+        
+        if (!profile.isRerank() || !rerankApplies(profile.getOversample())) {
+            return milvusService.searchSimilarFaces(feature, options);
+        }
+        
+        options.setTopK(Math.min(topK * Math.max(profile.getOversample(), 1), MAX_TOP_K));
+        
+        return rerank(feature, milvusService.searchSimilarFaces(feature, options), topK);
+    }
+    
+    private SearchOptions profileOptions(float threshold, int topK, MilvusConfig.Profile profile, String groupId) {
+        Integer nprobe = profile.getNprobe();
+        if (nprobe != null && nprobe <= 0) {
+            nprobe = milvusService.getActiveNlist();
+        }
+        
+        return SearchOptions.builder()
+                .topK(topK)
+                .nprobe(nprobe)
+                .ef(profile.getEf())
+                .consistencyLevel(ConsistencyLevelEnum.valueOf(profile.getConsistencyLevel().toUpperCase()))
+                .minSimilarity(milvusConfig.getSearch().isRangeSearch() ? threshold : null)
+                .groupId(groupId)
+                .build();
+    }
+    
+    /**
+     * 执行一轮检索（按配置决定是否范围检索、是否过采样重排序）
+     * 
+     * @param nprobe 本轮nprobe (IVF索引)，为null时使用默认值
+     * @param ef 本轮ef (HNSW索引)，为null时使用默认值
+     * @param groupId 分组ID，为空时检索全库
+     */
+    private List<MilvusService.SearchResult> searchOnce(float[] feature, float minSimilarity, int topK,
+                                                        Integer nprobe, Integer ef, String groupId) {
+        MilvusConfig.Search searchConfig = milvusConfig.getSearch();
+        MilvusConfig.Rerank rerank = searchConfig.getRerank();
+        
+        SearchOptions options = SearchOptions.builder()
+                .topK(topK)
+                .nprobe(nprobe)
+                .ef(ef)
+                .minSimilarity(searchConfig.isRangeSearch() ? minSimilarity : null)
+                .groupId(groupId)
+                .build();
+        
+        if (!rerank.isEnabled() || !rerankApplies(rerank.getOversample())) {
+            return milvusService.searchSimilarFaces(feature, options);
+        }
+        
+        options.setTopK(Math.min(topK * Math.max(rerank.getOversample(), 1), MAX_TOP_K));
+        if (nprobe == null) {
+            options.setNprobe(rerank.getNprobe());
+        }
+        
+        return rerank(feature, milvusService.searchSimilarFaces(feature, options), topK);
+    }
+    
+    /**
+     * 获取检索统计
+     */
+    public SearchStats getStats() {
+        return SearchStats.builder()
+                .totalSearches(totalSearches.get())
+                .firstPassMatches(firstPassMatches.get())
+                .firstPassMisses(firstPassMisses.get())
+                .secondPassSearches(secondPassSearches.get())
+                .secondPassFlips(secondPassFlips.get())
+                .build();
+    }
+    
+    /**
+     * 当前索引下两阶段检索是否有收益：
+     * IVF_FLAT以低nprobe过采样候选、再本地精确打分，用更少的Milvus开销换取召回 (需oversample > 1)；
+     * 量化索引 (IVF_SQ8、IVF_PQ、HNSW_SQ/PQ/PRQ) 返回的是量化距离，重排序可修正排名；
+     * FLAT与HNSW返回的已是精确距离且不受nprobe影响，重排序只会多取一次向量
+     * 
+     * @param oversample 候选过采样倍数
+     */
+    private boolean rerankApplies(int oversample) {
+        String indexType = milvusService.getActiveIndexType();
+        if (indexType == null) {
+            return false;
+        }
+        if ("IVF_FLAT".equals(indexType)) {
+            return oversample > 1;
+        }
+        return QUANTIZED_INDEX_TYPES.contains(indexType);
+    }
+    
+    /**
+     * 取回候选的完整向量，在本地按集合度量精确重排序后截取前K个
+     */
+    private List<MilvusService.SearchResult> rerank(float[] feature, List<MilvusService.SearchResult> candidates, int topK) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        
+        List<FaceInfo> faces = new ArrayList<>(candidates.size());
+        for (MilvusService.SearchResult candidate : candidates) {
+            faces.add(candidate.faceInfo);
+        }
+        
+        Map<String, float[]> features = fetchFeatures(faces);
+        
+        for (MilvusService.SearchResult candidate : candidates) {
+            float[] stored = features.get(candidate.faceInfo.getFaceId());
+            if (stored != null) {
+                candidate.similarity = milvusService.similarityOf(feature, stored);
+            }
+        }
+        
+        candidates.sort((a, b) -> Float.compare(b.similarity, a.similarity));
+        
+        log.debug("重排序完成: 候选数={}, 返回数={}", candidates.size(), Math.min(topK, candidates.size()));
+        
+        return new ArrayList<>(candidates.subList(0, Math.min(topK, candidates.size())));
+    }
+    
+    /**
+     * 批量获取库中特征向量，优先命中本地缓存，未命中部分按主键查询Milvus
+     * 
+     * @param faces 人脸信息列表 (需包含faceId和personId)
+     * @return faceId -> 特征向量
+     */
+    public Map<String, float[]> fetchFeatures(List<FaceInfo> faces) {
+        Map<String, float[]> features = new HashMap<>();
+        Map<String, String> missing = new HashMap<>();
+        
+        synchronized (featureCache) {
+            for (FaceInfo face : faces) {
+                CachedFeature cached = featureCache.get(face.getFaceId());
+                if (cached != null) {
+                    features.put(face.getFaceId(), cached.feature);
+                } else {
+                    missing.put(face.getFaceId(), face.getPersonId());
+                }
+            }
+        }
+        
+        if (!missing.isEmpty()) {
+            Map<String, float[]> loaded = milvusService.queryFeaturesByFaceIds(new ArrayList<>(missing.keySet()));
+            features.putAll(loaded);
+            
+            synchronized (featureCache) {
+                for (Map.Entry<String, float[]> entry : loaded.entrySet()) {
+                    featureCache.put(entry.getKey(), new CachedFeature(missing.get(entry.getKey()), entry.getValue()));
+                }
+            }
+        }
+        
+        return features;
+    }
+    
+    /**
+     * 失效指定人脸的缓存向量
+     */
+    public void invalidateFace(String faceId) {
+        synchronized (featureCache) {
+            featureCache.remove(faceId);
+        }
+    }
+    
+    /**
+     * 失效指定人员的所有缓存向量
+     */
+    public void invalidatePerson(String personId) {
+        synchronized (featureCache) {
+            featureCache.values().removeIf(cached -> Objects.equals(cached.personId, personId));
+        }
+    }
+    
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (featureCache) {
+            featureCache.clear();
+        }
+    }
+    
+    private static class CachedFeature {
+        final String personId;
+        final float[] feature;
+        
+        CachedFeature(String personId, float[] feature) {
+            this.personId = personId;
+            this.feature = feature;
+        }
+    }
+}
@@ -1,19 +1,33 @@
 package com.facerecognition.service;
 
 import com.facerecognition.config.FaceConfig;
+import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.dto.BatchRecognizeResult;
+import com.facerecognition.dto.BulkDeleteResult;
+import com.facerecognition.dto.FacePage;
 import com.facerecognition.dto.RecognizeResult;
+import com.facerecognition.dto.VerifyResult;
+import com.facerecognition.exception.ServiceOverloadedException;
 import com.facerecognition.model.FaceDetectionResult;
 import com.facerecognition.model.FaceInfo;
+import com.facerecognition.util.Deadline;
 import com.facerecognition.util.ImageUtils;
+import com.facerecognition.util.VectorUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.opencv.core.Mat;
+import org.opencv.core.Point;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * 人脸识别核心服务
@@ -35,9 +49,27 @@ public class FaceService {
     @Autowired
     private MilvusService milvusService;
     
+    @Autowired
+    private FaceSearchService faceSearchService;
+    
+    @Autowired
+    private HotFaceCache hotFaceCache;
+    
+    @Autowired
+    private FaceMetadataCache faceMetadataCache;
+    
     @Autowired
     private FaceConfig faceConfig;
     
+    @Autowired
+    private MilvusConfig milvusConfig;
+    
+    @Autowired
+    private RecognitionPipeline recognitionPipeline;
+    
+    @Autowired
+    private RecognitionResultCache recognitionResultCache;
+    
     /**
      * 注册人脸
      * 
@@ -45,9 +77,10 @@ public class FaceService {
      * @param personId 人员ID
      * @param imageBase64 Base64编码的图片
      * @param remark 备注
+     * @param groupId 分组/租户标识，可为空
      * @return 人脸ID
      */
-    public String registerFace(String name, String personId, String imageBase64, String remark) {
+    public String registerFace(String name, String personId, String imageBase64, String remark, String groupId) {
         try {
             // 1. 解码图片
             Mat image = ImageUtils.decodeBase64ToMat(imageBase64);
@@ -82,6 +115,7 @@ public class FaceService {
                     .feature(feature)
                     .remark(remark)
                     .registerTime(System.currentTimeMillis())
+                    .groupId(groupId)
                     .build();
             
             boolean success = milvusService.insertFace(faceInfo);
@@ -112,9 +146,10 @@ public class FaceService {
      * @param personId 人员ID
      * @param imageBytes 图片字节数组
      * @param remark 备注
+     * @param groupId 分组/租户标识，可为空
      * @return 人脸ID
      */
-    public String registerFaceFromBytes(String name, String personId, byte[] imageBytes, String remark) {
+    public String registerFaceFromBytes(String name, String personId, byte[] imageBytes, String remark, String groupId) {
         try {
             // 1. 解码图片
             Mat image = ImageUtils.decodeBytesToMat(imageBytes);
@@ -149,6 +184,7 @@ public class FaceService {
                     .feature(feature)
                     .remark(remark)
                     .registerTime(System.currentTimeMillis())
+                    .groupId(groupId)
                     .build();
             
             boolean success = milvusService.insertFace(faceInfo);
@@ -173,149 +209,643 @@ public class FaceService {
     }
     
     /**
-     * 识别人脸
+     * 注册已对齐的人脸（边缘设备已完成检测），跳过人脸检测
      * 
-     * @param imageBase64 Base64编码的图片
-     * @param threshold 相似度阈值
-     * @param topK 返回Top-K个结果
-     * @return 识别结果列表
+     * @param name 人员姓名
+     * @param personId 人员ID
+     * @param imageBase64 Base64编码的人脸图片
+     * @param landmarks 图片中的五点关键点坐标 (x1,y1,...,x5,y5)，为空时图片须为已对齐人脸
+     * @param remark 备注
+     * @param groupId 分组/租户标识，可为空
+     * @return 人脸ID
+     */
+    public String registerAlignedFace(String name, String personId, String imageBase64, List<Float> landmarks,
+                                      String remark, String groupId) {
+        return registerAligned(() -> ImageUtils.decodeBase64ToMat(imageBase64), landmarks, name, personId, remark, groupId);
+    }
+    
+    /**
+     * 注册已对齐的人脸（从字节数组），跳过人脸检测
+     * 
+     * @param name 人员姓名
+     * @param personId 人员ID
+     * @param imageBytes 人脸图片字节数组
+     * @param landmarks 图片中的五点关键点坐标 (x1,y1,...,x5,y5)，为空时图片须为已对齐人脸
+     * @param remark 备注
+     * @param groupId 分组/租户标识，可为空
+     * @return 人脸ID
      */
-    public List<RecognizeResult> recognizeFace(String imageBase64, float threshold, int topK) {
+    public String registerAlignedFaceFromBytes(String name, String personId, byte[] imageBytes, List<Float> landmarks,
+                                               String remark, String groupId) {
+        return registerAligned(() -> ImageUtils.decodeBytesToMat(imageBytes), landmarks, name, personId, remark, groupId);
+    }
+    
+    private String registerAligned(Supplier<Mat> decoder, List<Float> landmarks, String name, String personId,
+                                   String remark, String groupId) {
         try {
-            // 1. 解码图片
-            Mat image = ImageUtils.decodeBase64ToMat(imageBase64);
+            // 1. 解码并对齐 (不经过人脸检测)
+            Mat alignedFace = alignCrop(decoder.get(), landmarks);
             
-            // 2. 检测人脸
-            List<FaceDetectionResult> detectionResults = faceDetectionService.detectFaces(image);
-            
-            if (detectionResults.isEmpty()) {
-                throw new RuntimeException("未检测到人脸");
-            }
-            
-            if (detectionResults.size() > 1) {
-                log.warn("检测到多张人脸，仅识别第一张");
-            }
-            
-            FaceDetectionResult detection = detectionResults.get(0);
-            
-            // 3. 人脸对齐
-            Mat alignedFace = faceAlignmentService.alignFace(image, detection.getLandmarks());
-            
-            // 4. 提取特征
+            // 2. 提取特征
             float[] feature = faceRecognitionService.extractFeature(alignedFace);
             
-            // 5. 向量检索
-            List<MilvusService.SearchResult> searchResults = milvusService.searchSimilarFaces(feature, topK);
-            
-            // 6. 过滤并转换结果
-            List<RecognizeResult> results = new ArrayList<>();
+            // 3. 保存到Milvus
+            String faceId = UUID.randomUUID().toString().replace("-", "");
             
-            for (MilvusService.SearchResult searchResult : searchResults) {
-                float similarity = searchResult.similarity;
-                
-                if (similarity >= threshold) {
-                    FaceInfo faceInfo = searchResult.faceInfo;
-                    
-                    RecognizeResult result = RecognizeResult.builder()
-                            .faceId(faceInfo.getFaceId())
-                            .name(faceInfo.getName())
-                            .personId(faceInfo.getPersonId())
-                            .similarity(similarity)
-                            .remark(faceInfo.getRemark())
-                            .build();
-                    
-                    results.add(result);
-                }
-            }
+            FaceInfo faceInfo = FaceInfo.builder()
+                    .faceId(faceId)
+                    .name(name)
+                    .personId(personId)
+                    .feature(feature)
+                    .remark(remark)
+                    .registerTime(System.currentTimeMillis())
+                    .groupId(groupId)
+                    .build();
             
-            // 7. 调试：保存检测和对齐结果图
-            if (faceConfig.getDebug().isEnabled()) {
-                String debugId = UUID.randomUUID().toString().replace("-", "").substring(0, 8);
-                saveDebugImages(image, detectionResults, alignedFace, "recognize_" + debugId);
+            if (!milvusService.insertFace(faceInfo)) {
+                throw new RuntimeException("人脸向量保存失败");
             }
             
-            log.info("人脸识别完成，找到 {} 个匹配结果", results.size());
+            log.info("人脸注册成功(已对齐): faceId={}, name={}, personId={}", faceId, name, personId);
             
-            return results;
+            return faceId;
             
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("人脸识别失败", e);
-            throw new RuntimeException("人脸识别失败: " + e.getMessage());
+            log.error("人脸注册失败", e);
+            throw new RuntimeException("人脸注册失败: " + e.getMessage());
         }
     }
     
+    /**
+     * 识别人脸
+     * 
+     * @param imageBase64 Base64编码的图片
+     * @param threshold 相似度阈值
+     * @param topK 返回Top-K个结果
+     * @param profile 检索配置名称 (fast / balanced / exact)，为空时使用默认配置
+     * @param groupId 分组ID，为空时检索全库
+     * @return 识别结果列表
+     */
+    public List<RecognizeResult> recognizeFace(String imageBase64, float threshold, int topK, String profile,
+                                               String groupId) {
+        String cacheKey = recognitionResultCache.key(imageBase64.getBytes(StandardCharsets.US_ASCII), threshold, topK,
+                profile, groupId);
+        return recognitionResultCache.get(cacheKey,
+                () -> recognize(() -> ImageUtils.decodeBase64ToMat(imageBase64), threshold, topK, profile, groupId));
+    }
+    
     /**
      * 识别人脸（从字节数组）
      * 
      * @param imageBytes 图片字节数组
      * @param threshold 相似度阈值
      * @param topK 返回Top-K个结果
+     * @param profile 检索配置名称 (fast / balanced / exact)，为空时使用默认配置
+     * @param groupId 分组ID，为空时检索全库
+     * @return 识别结果列表
+     */
+    public List<RecognizeResult> recognizeFaceFromBytes(byte[] imageBytes, float threshold, int topK, String profile,
+                                                        String groupId) {
+        String cacheKey = recognitionResultCache.key(imageBytes, threshold, topK, profile, groupId);
+        return recognitionResultCache.get(cacheKey,
+                () -> recognize(() -> ImageUtils.decodeBytesToMat(imageBytes), threshold, topK, profile, groupId));
+    }
+    
+    /**
+     * 识别已对齐的人脸（边缘设备已完成检测），跳过人脸检测
+     * 
+     * @param imageBase64 Base64编码的人脸图片
+     * @param landmarks 图片中的五点关键点坐标 (x1,y1,...,x5,y5)，为空时图片须为已对齐人脸
+     * @param threshold 相似度阈值
+     * @param topK 返回Top-K个结果
+     * @param profile 检索配置名称，为空时使用默认配置
+     * @param groupId 分组ID，为空时检索全库
      * @return 识别结果列表
      */
-    public List<RecognizeResult> recognizeFaceFromBytes(byte[] imageBytes, float threshold, int topK) {
+    public List<RecognizeResult> recognizeAlignedFace(String imageBase64, List<Float> landmarks, float threshold,
+                                                      int topK, String profile, String groupId) {
+        String cacheKey = recognitionResultCache.key(imageBase64.getBytes(StandardCharsets.US_ASCII),
+                alignedVariant(landmarks), threshold, topK, profile, groupId);
+        return recognitionResultCache.get(cacheKey, () -> recognizeAligned(() -> ImageUtils.decodeBase64ToMat(imageBase64),
+                landmarks, threshold, topK, profile, groupId));
+    }
+    
+    /**
+     * 识别已对齐的人脸（从字节数组），跳过人脸检测
+     * 
+     * @param imageBytes 人脸图片字节数组
+     * @param landmarks 图片中的五点关键点坐标 (x1,y1,...,x5,y5)，为空时图片须为已对齐人脸
+     * @param threshold 相似度阈值
+     * @param topK 返回Top-K个结果
+     * @param profile 检索配置名称，为空时使用默认配置
+     * @param groupId 分组ID，为空时检索全库
+     * @return 识别结果列表
+     */
+    public List<RecognizeResult> recognizeAlignedFaceFromBytes(byte[] imageBytes, List<Float> landmarks, float threshold,
+                                                               int topK, String profile, String groupId) {
+        String cacheKey = recognitionResultCache.key(imageBytes, alignedVariant(landmarks), threshold, topK, profile,
+                groupId);
+        return recognitionResultCache.get(cacheKey, () -> recognizeAligned(() -> ImageUtils.decodeBytesToMat(imageBytes),
+                landmarks, threshold, topK, profile, groupId));
+    }
+    
+    /**
+     * 已对齐人脸识别的缓存键区分：关键点不同则对齐结果不同
+     */
+    private static String alignedVariant(List<Float> landmarks) {
+        return landmarks == null || landmarks.isEmpty() ? "aligned" : "aligned:" + landmarks;
+    }
+    
+    /**
+     * 经识别流水线执行，跳过检测阶段：解码+对齐后直接进入特征提取与向量检索
+     */
+    private List<RecognizeResult> recognizeAligned(Supplier<Mat> decoder, List<Float> landmarks, float threshold,
+                                                   int topK, String profile, String groupId) {
         try {
-            // 1. 解码图片
-            Mat image = ImageUtils.decodeBytesToMat(imageBytes);
-            
-            // 2. 检测人脸
-            List<FaceDetectionResult> detectionResults = faceDetectionService.detectFaces(image);
+            return recognitionPipeline.executeAligned(() -> alignCrop(decoder.get(), landmarks), extraction -> {
+                List<RecognizeResult> results = searchFaces(extraction.getFeature(), threshold, topK, profile, groupId);
+                
+                log.info("人脸识别完成(已对齐)，找到 {} 个匹配结果", results.size());
+                
+                return results;
+            });
             
-            if (detectionResults.isEmpty()) {
-                throw new RuntimeException("未检测到人脸");
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("人脸识别失败", e);
+            throw new RuntimeException("人脸识别失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 边缘设备上传的人脸图转为对齐人脸：带关键点时按关键点仿射对齐，
+     * 否则视为已对齐人脸（须为正方形，尺寸与对齐输出不一致时缩放）
+     */
+    private Mat alignCrop(Mat crop, List<Float> landmarks) {
+        int outputSize = faceConfig.getAlignment().getOutputSize();
+        
+        if (landmarks != null && !landmarks.isEmpty()) {
+            if (landmarks.size() != 10) {
+                throw new IllegalArgumentException("关键点须为5个点的10个坐标值");
             }
             
-            if (detectionResults.size() > 1) {
-                log.warn("检测到多张人脸，仅识别第一张");
+            Point[] points = new Point[5];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = new Point(landmarks.get(2 * i), landmarks.get(2 * i + 1));
             }
-            
-            FaceDetectionResult detection = detectionResults.get(0);
-            
-            // 3. 人脸对齐
-            Mat alignedFace = faceAlignmentService.alignFace(image, detection.getLandmarks());
-            
-            // 4. 提取特征
-            float[] feature = faceRecognitionService.extractFeature(alignedFace);
-            
-            // 5. 向量检索
-            List<MilvusService.SearchResult> searchResults = milvusService.searchSimilarFaces(feature, topK);
-            
-            // 6. 过滤并转换结果
-            List<RecognizeResult> results = new ArrayList<>();
-            
-            for (MilvusService.SearchResult searchResult : searchResults) {
-                float similarity = searchResult.similarity;
+            return faceAlignmentService.alignFace(crop, points);
+        }
+        
+        if (crop.width() != crop.height()) {
+            throw new IllegalArgumentException("已对齐人脸须为" + outputSize + "x" + outputSize + "正方形图片，否则请提供关键点");
+        }
+        
+        if (crop.width() != outputSize) {
+            return ImageUtils.directResize(crop, outputSize, outputSize);
+        }
+        return crop;
+    }
+    
+    /**
+     * 批量识别人脸
+     * 各图片并行检测+对齐，人脸分块合并为批量特征提取，L1缓存未命中的查询合并为一次多向量检索；
+     * 单张图片失败只记录在该图片的结果中
+     * 
+     * @param fileNames 图片文件名
+     * @param images 图片字节数组，与文件名一一对应
+     * @param threshold 相似度阈值
+     * @param topK 返回Top-K个结果
+     * @param profile 检索配置名称，为空时使用默认配置
+     * @param groupId 分组ID，为空时检索全库
+     * @return 按输入顺序排列的各图片识别结果
+     */
+    public List<BatchRecognizeResult> recognizeBatch(List<String> fileNames, List<byte[]> images, float threshold,
+                                                     int topK, String profile, String groupId) {
+        long startTime = System.currentTimeMillis();
+        
+        List<Supplier<Mat>> decoders = new ArrayList<>(images.size());
+        for (byte[] image : images) {
+            decoders.add(() -> ImageUtils.decodeBytesToMat(image));
+        }
+        
+        List<RecognitionPipeline.BatchItem> items = recognitionPipeline.extractBatch(decoders);
+        
+        List<float[]> features = new ArrayList<>();
+        for (RecognitionPipeline.BatchItem item : items) {
+            if (item.isSuccess()) {
+                features.add(item.getExtraction().getFeature());
+            }
+        }
+        
+        List<List<RecognizeResult>> searchResults = features.isEmpty()
+                ? Collections.emptyList()
+                : searchFacesBatch(features, threshold, topK, profile, groupId);
+        
+        List<BatchRecognizeResult> results = new ArrayList<>(items.size());
+        int next = 0;
+        for (int i = 0; i < items.size(); i++) {
+            RecognitionPipeline.BatchItem item = items.get(i);
+            BatchRecognizeResult.BatchRecognizeResultBuilder result = BatchRecognizeResult.builder()
+                    .index(i)
+                    .fileName(fileNames.get(i))
+                    .success(item.isSuccess());
+            
+            if (item.isSuccess()) {
+                result.results(searchResults.get(next++));
                 
-                if (similarity >= threshold) {
-                    FaceInfo faceInfo = searchResult.faceInfo;
-                    
-                    RecognizeResult result = RecognizeResult.builder()
-                            .faceId(faceInfo.getFaceId())
-                            .name(faceInfo.getName())
-                            .personId(faceInfo.getPersonId())
-                            .similarity(similarity)
-                            .remark(faceInfo.getRemark())
-                            .build();
-                    
-                    results.add(result);
+                if (faceConfig.getDebug().isEnabled()) {
+                    RecognitionPipeline.Extraction extraction = item.getExtraction();
+                    String debugId = UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+                    saveDebugImages(extraction.getImage(), extraction.getDetectionResults(),
+                            extraction.getAlignedFace(), "recognize_batch_" + debugId);
                 }
+            } else {
+                log.warn("批量识别第{}张图片失败: {}", i, item.getError().getMessage());
+                result.error(item.getError().getMessage());
             }
             
-            // 7. 调试：保存检测和对齐结果图
-            if (faceConfig.getDebug().isEnabled()) {
-                String debugId = UUID.randomUUID().toString().replace("-", "").substring(0, 8);
-                saveDebugImages(image, detectionResults, alignedFace, "recognize_" + debugId);
+            results.add(result.build());
+        }
+        
+        log.info("批量识别完成: images={}, faces={}, 耗时={}ms", images.size(), features.size(),
+                System.currentTimeMillis() - startTime);
+        
+        return results;
+    }
+    
+    /**
+     * 1:1人脸比对，不做全库检索
+     * 与第二张图片比对时两张图片并行检测、合并为一次特征提取；与已注册人脸/人员比对时按主键取回库中特征
+     * 
+     * @param imageBase64 Base64编码的图片
+     * @param otherImageBase64 比对的第二张图片，与faceId、personId三选一
+     * @param faceId 比对的已注册人脸ID
+     * @param personId 比对的已注册人员ID (取该人员所有人脸中的最高相似度)
+     * @param threshold 相似度阈值
+     * @return 比对结果
+     */
+    public VerifyResult verifyFaces(String imageBase64, String otherImageBase64, String faceId, String personId,
+                                    float threshold) {
+        return verify(() -> ImageUtils.decodeBase64ToMat(imageBase64),
+                otherImageBase64 != null && !otherImageBase64.isEmpty()
+                        ? () -> ImageUtils.decodeBase64ToMat(otherImageBase64) : null,
+                faceId, personId, threshold);
+    }
+    
+    /**
+     * 1:1人脸比对（从字节数组）
+     * 
+     * @param imageBytes 图片字节数组
+     * @param otherImageBytes 比对的第二张图片，与faceId、personId三选一
+     * @param faceId 比对的已注册人脸ID
+     * @param personId 比对的已注册人员ID (取该人员所有人脸中的最高相似度)
+     * @param threshold 相似度阈值
+     * @return 比对结果
+     */
+    public VerifyResult verifyFacesFromBytes(byte[] imageBytes, byte[] otherImageBytes, String faceId, String personId,
+                                             float threshold) {
+        return verify(() -> ImageUtils.decodeBytesToMat(imageBytes),
+                otherImageBytes != null ? () -> ImageUtils.decodeBytesToMat(otherImageBytes) : null,
+                faceId, personId, threshold);
+    }
+    
+    private VerifyResult verify(Supplier<Mat> decoder, Supplier<Mat> otherDecoder, String faceId, String personId,
+                                float threshold) {
+        int targets = (otherDecoder != null ? 1 : 0) + (isPresent(faceId) ? 1 : 0) + (isPresent(personId) ? 1 : 0);
+        if (targets != 1) {
+            throw new IllegalArgumentException("第二张图片、faceId、personId须且只能提供一个");
+        }
+        
+        try {
+            if (otherDecoder != null) {
+                return verifyImages(decoder, otherDecoder, threshold);
+            }
+            
+            return recognitionPipeline.execute(decoder,
+                    extraction -> verifyStored(extraction.getFeature(), faceId, personId, threshold));
+            
+        } catch (ServiceOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("人脸比对失败", e);
+            throw new RuntimeException("人脸比对失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 两张图片比对：作为一个批次并行检测、合并特征提取后本地计算相似度
+     */
+    private VerifyResult verifyImages(Supplier<Mat> decoder, Supplier<Mat> otherDecoder, float threshold) {
+        List<RecognitionPipeline.BatchItem> items = recognitionPipeline.extractBatch(Arrays.asList(decoder, otherDecoder));
+        
+        for (int i = 0; i < items.size(); i++) {
+            if (!items.get(i).isSuccess()) {
+                throw new RuntimeException("第" + (i + 1) + "张图片" + items.get(i).getError().getMessage());
+            }
+        }
+        
+        float similarity = milvusService.similarityOf(items.get(0).getExtraction().getFeature(),
+                items.get(1).getExtraction().getFeature());
+        
+        log.info("人脸比对完成(图片): similarity={}, threshold={}", similarity, threshold);
+        
+        return VerifyResult.builder()
+                .match(similarity >= threshold)
+                .similarity(similarity)
+                .threshold(threshold)
+                .build();
+    }
+    
+    /**
+     * 与已注册人脸比对：按主键取回库中特征后本地计算相似度
+     */
+    private VerifyResult verifyStored(float[] feature, String faceId, String personId, float threshold) {
+        List<String> faceIds = new ArrayList<>();
+        if (isPresent(faceId)) {
+            faceIds.add(faceId);
+        } else {
+            for (FaceInfo face : milvusService.queryFacesByPersonId(personId)) {
+                faceIds.add(face.getFaceId());
+            }
+        }
+        
+        Map<String, float[]> stored = faceIds.isEmpty()
+                ? Collections.emptyMap()
+                : milvusService.queryFeaturesByFaceIds(faceIds);
+        
+        if (stored.isEmpty()) {
+            throw new RuntimeException(isPresent(faceId) ? "人脸不存在: " + faceId : "人员没有已注册人脸: " + personId);
+        }
+        
+        String bestFaceId = null;
+        float best = -1.0f;
+        for (Map.Entry<String, float[]> entry : stored.entrySet()) {
+            float similarity = milvusService.similarityOf(feature, entry.getValue());
+            if (similarity > best) {
+                best = similarity;
+                bestFaceId = entry.getKey();
             }
+        }
+        
+        log.info("人脸比对完成: faceId={}, personId={}, similarity={}, threshold={}", bestFaceId, personId, best, threshold);
+        
+        return VerifyResult.builder()
+                .match(best >= threshold)
+                .similarity(best)
+                .threshold(threshold)
+                .faceId(bestFaceId)
+                .personId(personId)
+                .comparedFaces(stored.size())
+                .build();
+    }
+    
+    private boolean isPresent(String value) {
+        return value != null && !value.isEmpty();
+    }
+    
+    /**
+     * 按特征向量检索（特征由设备端提取，不做图片推理）
+     * 校验维度与数值并L2归一化后，走与图片识别相同的L1缓存、批量检索与阈值过滤
+     * 
+     * @param embeddings 原始特征向量
+     * @param threshold 相似度阈值
+     * @param topK 返回Top-K个结果
+     * @param profile 检索配置名称，为空时使用默认配置
+     * @param groupId 分组ID，为空时检索全库
+     * @return 与输入一一对应的识别结果
+     */
+    public List<List<RecognizeResult>> searchByEmbeddings(List<float[]> embeddings, float threshold, int topK,
+                                                          String profile, String groupId) {
+        int maxEmbeddings = faceConfig.getBatch().getMaxEmbeddings();
+        if (embeddings.size() > maxEmbeddings) {
+            throw new IllegalArgumentException("单次最多检索 " + maxEmbeddings + " 个特征向量");
+        }
+        
+        int dimension = milvusConfig.getCollection().getDimension();
+        List<float[]> features = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            try {
+                features.add(VectorUtils.normalize(embeddings.get(i), dimension));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("第" + (i + 1) + "个" + e.getMessage());
+            }
+        }
+        
+        List<List<RecognizeResult>> results = searchFacesBatch(features, threshold, topK, profile, groupId);
+        
+        log.info("特征向量检索完成: embeddings={}", features.size());
+        
+        return results;
+    }
+    
+    /**
+     * 按特征向量检索（连续存放的小端float32二进制数据）
+     * 
+     * @param data 特征向量数据，长度为 维度 * 4 的整数倍
+     * @return 与输入向量一一对应的识别结果
+     */
+    public List<List<RecognizeResult>> searchByEmbeddingBytes(byte[] data, float threshold, int topK, String profile,
+                                                              String groupId) {
+        List<float[]> embeddings = VectorUtils.fromLittleEndianBytes(data, milvusConfig.getCollection().getDimension());
+        return searchByEmbeddings(embeddings, threshold, topK, profile, groupId);
+    }
+    
+    /**
+     * 经识别流水线执行：解码、检测、对齐、特征提取、向量检索分阶段在各自线程池中完成
+     */
+    private List<RecognizeResult> recognize(Supplier<Mat> decoder, float threshold, int topK, String profile,
+                                            String groupId) {
+        try {
+            return recognitionPipeline.execute(decoder, extraction -> {
+                // 向量检索并按阈值过滤
+                List<RecognizeResult> results = searchFaces(extraction.getFeature(), threshold, topK, profile, groupId);
+            
+                // 调试：保存检测和对齐结果图
+                if (faceConfig.getDebug().isEnabled()) {
+                    String debugId = UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+                    saveDebugImages(extraction.getImage(), extraction.getDetectionResults(),
+                            extraction.getAlignedFace(), "recognize_" + debugId);
+                }
             
-            log.info("人脸识别完成，找到 {} 个匹配结果", results.size());
+                log.info("人脸识别完成，找到 {} 个匹配结果", results.size());
             
-            return results;
+                return results;
+            });
             
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("人脸识别失败", e);
             throw new RuntimeException("人脸识别失败: " + e.getMessage());
         }
     }
     
+    /**
+     * 向量检索并按阈值过滤
+     * 先精确扫描热点人员L1缓存，最佳相似度高于阈值一定余量时直接返回，否则查询Milvus
+     * 
+     * @param feature 查询特征向量
+     * @param threshold 相似度阈值
+     * @param topK 返回Top-K个结果
+     * @param profileName 检索配置名称
+     * @param groupId 分组ID，为空时检索全库
+     * @return 识别结果列表
+     */
+    private List<RecognizeResult> searchFaces(float[] feature, float threshold, int topK, String profileName,
+                                              String groupId) {
+        MilvusConfig.Profile profile = faceSearchService.resolveProfile(profileName);
+        List<MilvusService.SearchResult> searchResults = searchHotCache(feature, threshold, topK, profile, groupId);
+        
+        if (searchResults == null) {
+            Deadline.checkCurrent("向量检索");
+            long generation = faceMetadataCache.getGeneration();
+            searchResults = faceSearchService.search(feature, threshold, topK, profile, groupId);
+            admitBestMatch(searchResults, threshold, generation);
+        }
+            
+        return toRecognizeResults(searchResults, threshold);
+    }
+    
+    /**
+     * 批量向量检索并按阈值过滤：L1缓存未命中的查询合并为一次批量检索
+     * 
+     * @return 与查询向量一一对应的识别结果
+     */
+    private List<List<RecognizeResult>> searchFacesBatch(List<float[]> features, float threshold, int topK,
+                                                         String profileName, String groupId) {
+        MilvusConfig.Profile profile = faceSearchService.resolveProfile(profileName);
+        
+        List<List<MilvusService.SearchResult>> searchResults = new ArrayList<>(features.size());
+        List<float[]> misses = new ArrayList<>();
+        List<Integer> missIndexes = new ArrayList<>();
+        for (int i = 0; i < features.size(); i++) {
+            List<MilvusService.SearchResult> hotResults = searchHotCache(features.get(i), threshold, topK, profile, groupId);
+            searchResults.add(hotResults);
+            if (hotResults == null) {
+                misses.add(features.get(i));
+                missIndexes.add(i);
+            }
+        }
+        
+        if (!misses.isEmpty()) {
+            Deadline.checkCurrent("向量检索");
+            long generation = faceMetadataCache.getGeneration();
+            List<List<MilvusService.SearchResult>> missResults = faceSearchService.searchBatch(misses, threshold, topK,
+                    profile, groupId);
+            for (int i = 0; i < missIndexes.size(); i++) {
+                searchResults.set(missIndexes.get(i), missResults.get(i));
+                admitBestMatch(missResults.get(i), threshold, generation);
+            }
+        }
+        
+        List<List<RecognizeResult>> results = new ArrayList<>(features.size());
+        for (List<MilvusService.SearchResult> searchResult : searchResults) {
+            results.add(toRecognizeResults(searchResult, threshold));
+        }
+        
+        log.debug("批量检索完成: queries={}, l1Hits={}", features.size(), features.size() - misses.size());
+        
+        return results;
+    }
+    
+    /**
+     * 精确扫描热点人员L1缓存，最佳相似度高于阈值一定余量时返回缓存结果，否则返回null
+     * 仅用于topK=1：L1只保存热点人脸，topK>1时其余名次未必在缓存中，须查询Milvus
+     */
+    private List<MilvusService.SearchResult> searchHotCache(float[] feature, float threshold, int topK,
+                                                           MilvusConfig.Profile profile, String groupId) {
+        boolean useHotCache = hotFaceCache.isEnabled() && (profile == null || profile.isHotCache());
+        if (!useHotCache || topK != 1) {
+            return null;
+        }
+        
+        List<MilvusService.SearchResult> hotResults = hotFaceCache.search(feature, topK, groupId);
+        float confidentScore = Math.max(threshold, faceConfig.getRecognition().getThreshold())
+                + faceConfig.getHotCache().getMargin();
+        
+        if (!hotResults.isEmpty() && hotResults.get(0).similarity >= confidentScore) {
+            hotFaceCache.touch(hotResults.get(0).faceInfo.getFaceId());
+            log.debug("L1缓存命中: faceId={}, similarity={}",
+                    hotResults.get(0).faceInfo.getFaceId(), hotResults.get(0).similarity);
+            return hotResults;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * @param generation 检索开始前的人脸库变更代数
+     */
+    private void admitBestMatch(List<MilvusService.SearchResult> searchResults, float threshold, long generation) {
+        if (hotFaceCache.isEnabled() && !searchResults.isEmpty() && searchResults.get(0).similarity >= threshold) {
+            admitToHotCache(searchResults.get(0).faceInfo, generation);
+        }
+    }
+    
+    private List<RecognizeResult> toRecognizeResults(List<MilvusService.SearchResult> searchResults, float threshold) {
+        List<RecognizeResult> results = new ArrayList<>();
+        
+        for (MilvusService.SearchResult searchResult : searchResults) {
+            float similarity = searchResult.similarity;
+            
+            if (similarity >= threshold) {
+                FaceInfo faceInfo = searchResult.faceInfo;
+                
+                RecognizeResult result = RecognizeResult.builder()
+                        .faceId(faceInfo.getFaceId())
+                        .name(faceInfo.getName())
+                        .personId(faceInfo.getPersonId())
+                        .similarity(similarity)
+                        .remark(faceInfo.getRemark())
+                        .build();
+                
+                results.add(result);
+            }
+        }
+        
+        return results;
+    }
+    
+    /**
+     * 将Milvus匹配到的人脸加入L1缓存（取回库中特征）
+     * 检索期间该人脸可能已被删除（Bounded一致性下仍能查到特征），加入后再次确认，已删除时撤回
+     * 
+     * @param generation 检索开始前的人脸库变更代数
+     */
+    private void admitToHotCache(FaceInfo faceInfo, long generation) {
+        String faceId = faceInfo.getFaceId();
+        if (hotFaceCache.contains(faceId)) {
+            hotFaceCache.touch(faceId);
+            return;
+        }
+        
+        if (!stillRegistered(faceId, generation)) {
+            return;
+        }
+        
+        float[] stored = faceSearchService.fetchFeatures(Collections.singletonList(faceInfo)).get(faceId);
+        
+        if (stored != null) {
+            hotFaceCache.admit(faceInfo, stored);
+            
+            // 删除可能发生在上面的检查与加入之间：删除先移除元数据再失效L1，此处复查即可覆盖
+            if (!stillRegistered(faceId, generation)) {
+                hotFaceCache.invalidateFace(faceId);
+            }
+        }
+    }
+    
+    /**
+     * 人脸库自检索开始后未变化，或人脸仍在元数据缓存中
+     */
+    private boolean stillRegistered(String faceId, long generation) {
+        return faceMetadataCache.getGeneration() == generation
+                || (faceMetadataCache.isReady() && faceMetadataCache.get(faceId) != null);
+    }
+    
     /**
      * 删除人脸
      * 
@@ -323,7 +853,10 @@ public class FaceService {
      * @return 是否成功
      */
     public boolean deleteFace(String faceId) {
-        return milvusService.deleteFace(faceId);
+        boolean success = milvusService.deleteFace(faceId);
+        hotFaceCache.invalidateFace(faceId);
+        faceSearchService.invalidateFace(faceId);
+        return success;
     }
     
     /**
@@ -333,7 +866,44 @@ public class FaceService {
      * @return 是否成功
      */
     public boolean deletePersonFaces(String personId) {
-        return milvusService.deletePersonFaces(personId);
+        boolean success = milvusService.deletePersonFaces(personId);
+        hotFaceCache.invalidatePerson(personId);
+        faceSearchService.invalidatePerson(personId);
+        return success;
+    }
+    
+    /**
+     * 批量删除人脸
+     * 
+     * @param faceIds 人脸ID列表
+     * @return 删除的行数与失败的ID
+     */
+    public BulkDeleteResult deleteFaces(List<String> faceIds) {
+        try {
+            return milvusService.deleteFaces(faceIds);
+        } finally {
+            for (String faceId : faceIds) {
+                hotFaceCache.invalidateFace(faceId);
+                faceSearchService.invalidateFace(faceId);
+            }
+        }
+    }
+    
+    /**
+     * 批量删除人员的所有人脸
+     * 
+     * @param personIds 人员ID列表
+     * @return 删除的行数与失败的人员ID
+     */
+    public BulkDeleteResult deletePersons(List<String> personIds) {
+        try {
+            return milvusService.deletePersons(personIds);
+        } finally {
+            for (String personId : personIds) {
+                hotFaceCache.invalidatePerson(personId);
+                faceSearchService.invalidatePerson(personId);
+            }
+        }
     }
     
     /**
@@ -342,7 +912,10 @@ public class FaceService {
      * @return 是否成功
      */
     public boolean resetDatabase() {
-        return milvusService.resetDatabase();
+        boolean success = milvusService.resetDatabase();
+        hotFaceCache.clear();
+        faceSearchService.clear();
+        return success;
     }
     
     /**
@@ -355,6 +928,31 @@ public class FaceService {
         return milvusService.queryAllFaces(limit);
     }
     
+    /**
+     * 按face_id游标分页查询人脸
+     * 
+     * @param personId 人员ID过滤，可为空
+     * @param name 姓名过滤，可为空
+     * @param cursor 上一页返回的游标，为空时从第一页开始
+     * @param limit 每页数量，为空时使用默认值，超过上限时按上限截断
+     * @return 当前页及下一页游标
+     */
+    public FacePage listFacesPage(String personId, String name, String cursor, Integer limit) {
+        FaceConfig.Listing listing = faceConfig.getListing();
+        int pageSize = limit != null ? limit : listing.getDefaultPageSize();
+        pageSize = Math.max(1, Math.min(pageSize, listing.getMaxPageSize()));
+        
+        List<FaceInfo> faces = milvusService.queryFacesPage(personId, name, cursor, pageSize);
+        
+        // 不足一页说明已到末尾
+        String nextCursor = faces.size() < pageSize ? null : faces.get(faces.size() - 1).getFaceId();
+        
+        return FacePage.builder()
+                .items(faces)
+                .nextCursor(nextCursor)
+                .build();
+    }
+    
     /**
      * 根据person_id查询人脸
      * 
@@ -0,0 +1,315 @@
+package com.facerecognition.service;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.facerecognition.config.FaceConfig;
+import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.dto.GalleryTransferRequest;
+import com.facerecognition.dto.GalleryTransferStatus;
+import com.facerecognition.model.FaceInfo;
+import com.facerecognition.util.EmbeddingFile;
+import com.facerecognition.util.Priority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 人脸库导出/导入服务
+ * 导出：逐个分片按face_id游标分页读取（含特征向量），特征写入二进制文件、人员信息写入JSON Lines旁路文件；
+ * 导入：内存映射读取特征文件，按人员路由分片后批量写入（按主键幂等，可重复执行）
+ */
+@Slf4j
+@Service
+public class GalleryTransferService {
+    
+    private static final String EMBEDDING_SUFFIX = ".emb";
+    private static final String META_SUFFIX = ".meta.jsonl";
+    private static final String TMP_SUFFIX = ".tmp";
+    
+    /**
+     * 每批行数上限，避免单批特征占用过多堆内存
+     */
+    private static final int MAX_BATCH_SIZE = 100_000;
+    
+    @Autowired
+    private FaceConfig faceConfig;
+    
+    @Autowired
+    private MilvusConfig milvusConfig;
+    
+    @Autowired
+    private MilvusService milvusService;
+    
+    @Autowired
+    private FaceMetadataCache faceMetadataCache;
+    
+    @Autowired
+    private HotFaceCache hotFaceCache;
+    
+    @Autowired
+    private FaceSearchService faceSearchService;
+    
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(Priority.bind(Priority.BULK, r), "gallery-transfer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private volatile GalleryTransferStatus status = GalleryTransferStatus.builder()
+            .state("IDLE")
+            .build();
+    
+    /**
+     * 启动导出（异步执行）
+     */
+    public synchronized GalleryTransferStatus startExport(GalleryTransferRequest request) {
+        checkIdle();
+        
+        if (milvusService.isRebalancing()) {
+            throw new RuntimeException("重新分片进行中，请完成后再导出");
+        }
+        
+        status = GalleryTransferStatus.builder()
+                .operation("EXPORT")
+                .state("RUNNING")
+                .name(request.getName())
+                .startTime(System.currentTimeMillis())
+                .build();
+        
+        log.info("开始导出人脸库: name={}", request.getName());
+        
+        executor.submit(() -> runExport(request.getName(), batchSize(request)));
+        
+        return status;
+    }
+    
+    /**
+     * 启动导入（异步执行）
+     */
+    public synchronized GalleryTransferStatus startImport(GalleryTransferRequest request) {
+        checkIdle();
+        
+        if (milvusService.isMirroring() || milvusService.isRebalancing()) {
+            throw new RuntimeException("索引重建或重新分片进行中，请完成后再导入");
+        }
+        
+        Path embeddingFile = resolve(request.getName(), EMBEDDING_SUFFIX);
+        Path metaFile = resolve(request.getName(), META_SUFFIX);
+        if (!Files.exists(embeddingFile) || !Files.exists(metaFile)) {
+            throw new RuntimeException("导入文件不存在: " + embeddingFile + ", " + metaFile);
+        }
+        
+        status = GalleryTransferStatus.builder()
+                .operation("IMPORT")
+                .state("RUNNING")
+                .name(request.getName())
+                .startTime(System.currentTimeMillis())
+                .build();
+        
+        log.info("开始导入人脸库: name={}", request.getName());
+        
+        executor.submit(() -> runImport(embeddingFile, metaFile, batchSize(request)));
+        
+        return status;
+    }
+    
+    public GalleryTransferStatus getStatus() {
+        return status;
+    }
+    
+    private void checkIdle() {
+        if ("RUNNING".equals(status.getState())) {
+            throw new RuntimeException("人脸库" + ("EXPORT".equals(status.getOperation()) ? "导出" : "导入") + "进行中");
+        }
+    }
+    
+    /**
+     * 每批行数：导入时一批特征按一次内存映射读取，映射区域不能超过2GB
+     */
+    private int batchSize(GalleryTransferRequest request) {
+        int batchSize = request.getBatchSize() != null ? request.getBatchSize() : faceConfig.getGallery().getBatchSize();
+        int maxBatchSize = Integer.MAX_VALUE / (Math.max(milvusConfig.getCollection().getDimension(), 1) * Float.BYTES);
+        return Math.min(Math.max(batchSize, 1), Math.min(maxBatchSize, MAX_BATCH_SIZE));
+    }
+    
+    private Path resolve(String name, String suffix) {
+        return Paths.get(faceConfig.getGallery().getDir()).resolve(name + suffix);
+    }
+    
+    private void runExport(String name, int batchSize) {
+        Path embeddingFile = resolve(name, EMBEDDING_SUFFIX);
+        Path metaFile = resolve(name, META_SUFFIX);
+        Path embeddingTmp = resolve(name, EMBEDDING_SUFFIX + TMP_SUFFIX);
+        Path metaTmp = resolve(name, META_SUFFIX + TMP_SUFFIX);
+        long exportedRows = 0;
+        
+        try {
+            Files.createDirectories(embeddingFile.getParent());
+            
+            // 先写临时文件，全部成功后再替换，避免留下半截的导出文件
+            try (EmbeddingFile.Writer writer = new EmbeddingFile.Writer(embeddingTmp, milvusConfig.getCollection().getDimension());
+                 BufferedWriter metaWriter = Files.newBufferedWriter(metaTmp, StandardCharsets.UTF_8)) {
+                
+                for (int shard = 0; shard < milvusService.getShardCount(); shard++) {
+                    String cursor = null;
+                    while (true) {
+                        List<FaceInfo> page = milvusService.queryShardAfter(shard, cursor, batchSize);
+                        if (page.isEmpty()) {
+                            break;
+                        }
+                        
+                        float[][] features = new float[page.size()][];
+                        for (int i = 0; i < page.size(); i++) {
+                            FaceInfo face = page.get(i);
+                            features[i] = face.getFeature();
+                            metaWriter.write(toMetaLine(face));
+                            metaWriter.newLine();
+                        }
+                        writer.write(features);
+                        
+                        exportedRows += page.size();
+                        cursor = page.get(page.size() - 1).getFaceId();
+                        status = status.toBuilder().processedRows(exportedRows).build();
+                    }
+                }
+            }
+            
+            Files.move(embeddingTmp, embeddingFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(metaTmp, metaFile, StandardCopyOption.REPLACE_EXISTING);
+            
+            status = status.toBuilder()
+                    .state("COMPLETED")
+                    .totalRows(exportedRows)
+                    .finishTime(System.currentTimeMillis())
+                    .message("导出 " + exportedRows + " 行: " + embeddingFile)
+                    .build();
+            
+            log.info("人脸库导出完成: {} 行, file={}", exportedRows, embeddingFile);
+            
+        } catch (Exception e) {
+            log.error("人脸库导出失败", e);
+            
+            deleteQuietly(embeddingTmp);
+            deleteQuietly(metaTmp);
+            
+            status = status.toBuilder()
+                    .state("FAILED")
+                    .finishTime(System.currentTimeMillis())
+                    .message(e.getMessage())
+                    .build();
+        }
+    }
+    
+    private void runImport(Path embeddingFile, Path metaFile, int batchSize) {
+        long importedRows = 0;
+        
+        try (EmbeddingFile.Reader reader = new EmbeddingFile.Reader(embeddingFile);
+             BufferedReader metaReader = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+            
+            int dimension = milvusConfig.getCollection().getDimension();
+            if (reader.getDimension() != dimension) {
+                throw new RuntimeException("特征维度不匹配: 文件为 " + reader.getDimension() + "，集合为 " + dimension);
+            }
+            
+            status = status.toBuilder().totalRows(reader.getRows()).build();
+            
+            while (importedRows < reader.getRows()) {
+                float[][] features = reader.read(importedRows, batchSize);
+                
+                // 按目标分片归组后批量写入
+                Map<Integer, List<FaceInfo>> batches = new HashMap<>();
+                List<FaceInfo> faces = new ArrayList<>(features.length);
+                for (float[] feature : features) {
+                    String line = metaReader.readLine();
+                    if (line == null) {
+                        throw new RuntimeException("元数据文件行数少于特征文件: 第 " + (importedRows + faces.size() + 1) + " 行缺失");
+                    }
+                    
+                    FaceInfo face = fromMetaLine(line);
+                    face.setFeature(feature);
+                    faces.add(face);
+                    batches.computeIfAbsent(milvusService.shardOf(face.getPersonId()), k -> new ArrayList<>()).add(face);
+                }
+                
+                for (Map.Entry<Integer, List<FaceInfo>> entry : batches.entrySet()) {
+                    milvusService.upsertToShard(entry.getKey(), entry.getValue());
+                }
+                
+                for (FaceInfo face : faces) {
+                    faceMetadataCache.put(face);
+                    hotFaceCache.invalidateFace(face.getFaceId());
+                    faceSearchService.invalidateFace(face.getFaceId());
+                }
+                
+                importedRows += faces.size();
+                status = status.toBuilder().processedRows(importedRows).build();
+            }
+            
+            status = status.toBuilder()
+                    .state("COMPLETED")
+                    .finishTime(System.currentTimeMillis())
+                    .message("导入 " + importedRows + " 行")
+                    .build();
+            
+            log.info("人脸库导入完成: {} 行, file={}", importedRows, embeddingFile);
+            
+        } catch (Exception e) {
+            log.error("人脸库导入失败: 已导入 {} 行", importedRows, e);
+            
+            status = status.toBuilder()
+                    .state("FAILED")
+                    .finishTime(System.currentTimeMillis())
+                    .message(e.getMessage())
+                    .build();
+        }
+    }
+    
+    private String toMetaLine(FaceInfo face) {
+        JSONObject json = new JSONObject();
+        json.set("faceId", face.getFaceId());
+        json.set("personId", face.getPersonId());
+        json.set("name", face.getName());
+        json.set("remark", face.getRemark());
+        json.set("registerTime", face.getRegisterTime());
+        json.set("groupId", face.getGroupId());
+        return json.toString();
+    }
+    
+    private FaceInfo fromMetaLine(String line) {
+        JSONObject json = JSONUtil.parseObj(line);
+        return FaceInfo.builder()
+                .faceId(json.getStr("faceId"))
+                .personId(json.getStr("personId"))
+                .name(json.getStr("name"))
+                .remark(json.getStr("remark"))
+                .registerTime(json.getLong("registerTime"))
+                .groupId(json.getStr("groupId"))
+                .build();
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", path);
+        }
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,305 @@
+package com.facerecognition.service;
+
+import com.facerecognition.config.FaceConfig;
+import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.model.FaceInfo;
+import com.facerecognition.util.VectorUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 热点人员L1缓存
+ * 将最近/频繁匹配到的人脸向量保存在进程内的连续float矩阵中，识别时先做精确扫描，
+ * topK=1 的识别命中且置信度足够高时无需再查询Milvus
+ */
+@Slf4j
+@Service
+public class HotFaceCache {
+    
+    @Autowired
+    private FaceConfig faceConfig;
+    
+    @Autowired
+    private MilvusConfig milvusConfig;
+    
+    @Autowired
+    private MilvusService milvusService;
+    
+    private int capacity;
+    private int dimension;
+    private boolean lfu;
+    
+    /**
+     * 向量矩阵，第i个槽位占用 [i * dimension, (i + 1) * dimension)
+     */
+    private float[] matrix;
+    private FaceInfo[] slots;
+    private long[] lastAccess;
+    private long[] hitCounts;
+    private final Map<String, Integer> slotIndex = new HashMap<>();
+    private int size;
+    private long clock;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    @PostConstruct
+    public void init() {
+        FaceConfig.HotCache config = faceConfig.getHotCache();
+        
+        capacity = Math.max(config.getCapacity(), 1);
+        dimension = milvusConfig.getCollection().getDimension();
+        lfu = "LFU".equalsIgnoreCase(config.getEviction());
+        
+        if (config.isEnabled()) {
+            matrix = new float[capacity * dimension];
+            slots = new FaceInfo[capacity];
+            lastAccess = new long[capacity];
+            hitCounts = new long[capacity];
+            log.info("热点人员L1缓存已启用: capacity={}, eviction={}, margin={}",
+                    capacity, lfu ? "LFU" : "LRU", config.getMargin());
+        }
+    }
+    
+    public boolean isEnabled() {
+        return faceConfig.getHotCache().isEnabled();
+    }
+    
+    /**
+     * L1精确检索
+     * 
+     * @param feature 查询特征向量
+     * @param topK 返回前K个结果
+     * @param groupId 分组ID，为空时不过滤
+     * @return 按相似度降序排列的结果
+     */
+    public List<MilvusService.SearchResult> search(float[] feature, int topK, String groupId) {
+        if (!isEnabled() || topK <= 0) {
+            return Collections.emptyList();
+        }
+        
+        int k = Math.min(topK, capacity);
+        int[] bestSlots = new int[k];
+        float[] bestScores = new float[k];
+        int found = 0;
+        
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                if (slots[slot] == null) {
+                    continue;
+                }
+                if (groupId != null && !groupId.isEmpty() && !groupId.equals(slots[slot].getGroupId())) {
+                    continue;
+                }
+                
+                float score = VectorUtils.dot(feature, matrix, slot * dimension, dimension);
+                
+                if (found < k) {
+                    found++;
+                } else if (score <= bestScores[k - 1]) {
+                    continue;
+                }
+                
+                // 插入排序，维护降序的前K个
+                int pos = found - 1;
+                while (pos > 0 && bestScores[pos - 1] < score) {
+                    bestScores[pos] = bestScores[pos - 1];
+                    bestSlots[pos] = bestSlots[pos - 1];
+                    pos--;
+                }
+                bestScores[pos] = score;
+                bestSlots[pos] = slot;
+            }
+            
+            List<MilvusService.SearchResult> results = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                int slot = bestSlots[i];
+                float[] stored = Arrays.copyOfRange(matrix, slot * dimension, (slot + 1) * dimension);
+                
+                MilvusService.SearchResult result = new MilvusService.SearchResult();
+                result.faceInfo = slots[slot];
+                result.similarity = milvusService.similarityOf(feature, stored);
+                results.add(result);
+            }
+            
+            return results;
+            
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 记录一次L1命中（更新LRU/LFU统计）
+     * 
+     * @param faceId 人脸ID
+     */
+    public void touch(String faceId) {
+        if (!isEnabled()) {
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotIndex.get(faceId);
+            if (slot != null) {
+                lastAccess[slot] = ++clock;
+                hitCounts[slot]++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 判断人脸是否已在L1缓存中
+     */
+    public boolean contains(String faceId) {
+        if (!isEnabled()) {
+            return false;
+        }
+        
+        lock.readLock().lock();
+        try {
+            return slotIndex.containsKey(faceId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 将人脸加入L1缓存，缓存已满时按淘汰策略替换
+     * 
+     * @param faceInfo 人脸信息 (不含特征)
+     * @param feature 库中保存的特征向量
+     */
+    public void admit(FaceInfo faceInfo, float[] feature) {
+        if (!isEnabled() || feature == null || feature.length != dimension) {
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotIndex.get(faceInfo.getFaceId());
+            if (existing != null) {
+                lastAccess[existing] = ++clock;
+                hitCounts[existing]++;
+                return;
+            }
+            
+            int slot = size < capacity ? findFreeSlot() : findVictim();
+            
+            if (slots[slot] != null) {
+                slotIndex.remove(slots[slot].getFaceId());
+                log.debug("L1缓存淘汰: faceId={}", slots[slot].getFaceId());
+            } else {
+                size++;
+            }
+            
+            System.arraycopy(feature, 0, matrix, slot * dimension, dimension);
+            slots[slot] = faceInfo;
+            lastAccess[slot] = ++clock;
+            hitCounts[slot] = 1;
+            slotIndex.put(faceInfo.getFaceId(), slot);
+            
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 失效指定人脸
+     */
+    public void invalidateFace(String faceId) {
+        if (!isEnabled()) {
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotIndex.get(faceId);
+            if (slot != null) {
+                removeSlot(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 失效指定人员的所有人脸
+     */
+    public void invalidatePerson(String personId) {
+        if (!isEnabled()) {
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                if (slots[slot] != null && Objects.equals(slots[slot].getPersonId(), personId)) {
+                    removeSlot(slot);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 清空L1缓存
+     */
+    public void clear() {
+        if (!isEnabled()) {
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(slots, null);
+            slotIndex.clear();
+            size = 0;
+            log.info("热点人员L1缓存已清空");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void removeSlot(int slot) {
+        slotIndex.remove(slots[slot].getFaceId());
+        slots[slot] = null;
+        size--;
+    }
+    
+    private int findFreeSlot() {
+        for (int slot = 0; slot < capacity; slot++) {
+            if (slots[slot] == null) {
+                return slot;
+            }
+        }
+        return findVictim();
+    }
+    
+    /**
+     * 选择淘汰槽位：LFU取命中次数最少者（相同时取最久未访问），LRU取最久未访问者
+     */
+    private int findVictim() {
+        int victim = 0;
+        for (int slot = 1; slot < capacity; slot++) {
+            if (lfu) {
+                if (hitCounts[slot] < hitCounts[victim]
+                        || (hitCounts[slot] == hitCounts[victim] && lastAccess[slot] < lastAccess[victim])) {
+                    victim = slot;
+                }
+            } else if (lastAccess[slot] < lastAccess[victim]) {
+                victim = slot;
+            }
+        }
+        return victim;
+    }
+}
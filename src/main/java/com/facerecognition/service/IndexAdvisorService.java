@@ -0,0 +1,269 @@
+package com.facerecognition.service;
+
+import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.dto.IndexAdvice;
+import com.facerecognition.dto.IndexRebuildRequest;
+import com.facerecognition.model.FaceInfo;
+import com.facerecognition.model.SearchOptions;
+import com.facerecognition.util.Priority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 索引顾问
+ * 按集合行数建议索引类型与nlist (≈ factor * sqrt(N))，并以库中抽样向量为查询，
+ * 对比 nprobe=nlist 的全量检索结果实测各nprobe的Recall@K，找出达到目标召回率的最小nprobe；
+ * 启用自动应用时调整默认nprobe，并在规模变化超过阈值时触发在线索引重建
+ */
+@Slf4j
+@Service
+public class IndexAdvisorService {
+    
+    @Autowired
+    private MilvusConfig milvusConfig;
+    
+    @Autowired
+    private MilvusService milvusService;
+    
+    @Autowired
+    private IndexManagementService indexManagementService;
+    
+    /**
+     * Milvus支持的nlist上限
+     */
+    private static final int MAX_NLIST = 65536;
+    
+    private volatile IndexAdvice lastAdvice;
+    
+    /**
+     * 定时执行索引顾问（以批量优先级访问Milvus，不与线上检索争抢许可）
+     */
+    @Scheduled(initialDelayString = "${milvus.advisor.interval-ms:3600000}",
+            fixedDelayString = "${milvus.advisor.interval-ms:3600000}")
+    public void scheduledAdvise() {
+        MilvusConfig.Advisor advisor = milvusConfig.getAdvisor();
+        if (!advisor.isEnabled()) {
+            return;
+        }
+        
+        try {
+            Priority.callWith(Priority.BULK, () -> advise(advisor.isAutoApply()));
+        } catch (Exception e) {
+            log.error("索引顾问执行失败", e);
+        }
+    }
+    
+    /**
+     * 获取最近一次建议
+     */
+    public IndexAdvice getLastAdvice() {
+        return lastAdvice;
+    }
+    
+    /**
+     * 生成索引建议
+     * 
+     * @param apply 是否应用建议
+     * @return 索引建议
+     */
+    public synchronized IndexAdvice advise(boolean apply) {
+        MilvusConfig.Advisor advisor = milvusConfig.getAdvisor();
+        
+        String physicalCollection = milvusService.resolvePhysicalCollection();
+        long rowCount = milvusService.getRowCount(physicalCollection);
+        String currentIndexType = milvusService.getActiveIndexType();
+        int currentNlist = milvusService.getActiveNlist();
+        
+        String recommendedIndexType = recommendIndexType(rowCount, currentIndexType);
+        int recommendedNlist = recommendNlist(rowCount);
+        
+        IndexAdvice advice = IndexAdvice.builder()
+                .rowCount(rowCount)
+                .currentIndexType(currentIndexType)
+                .currentNlist(currentNlist)
+                .recommendedIndexType(recommendedIndexType)
+                .recommendedNlist(recommendedNlist)
+                .measuredRecall(new LinkedHashMap<>())
+                .timestamp(System.currentTimeMillis())
+                .build();
+        
+        // 只有IVF类索引需要测量nprobe
+        if (currentIndexType.startsWith("IVF") && rowCount > 0) {
+            measureNprobe(advice, advisor);
+        }
+        
+        if (apply) {
+            applyAdvice(advice, advisor);
+        }
+        
+        log.info("索引建议: rows={}, 当前={}/nlist={}, 建议={}/nlist={}, nprobe={}, recall={}",
+                rowCount, currentIndexType, currentNlist, recommendedIndexType, recommendedNlist,
+                advice.getRecommendedNprobe(), advice.getMeasuredRecall());
+        
+        lastAdvice = advice;
+        return advice;
+    }
+    
+    private String recommendIndexType(long rowCount, String currentIndexType) {
+        MilvusConfig.Advisor advisor = milvusConfig.getAdvisor();
+        
+        if (rowCount <= advisor.getFlatMaxRows()) {
+            return "FLAT";
+        }
+        
+        // 保留运维选择的IVF/HNSW变体，仅在当前为FLAT时回到配置的索引类型
+        if (!"FLAT".equals(currentIndexType)) {
+            return currentIndexType;
+        }
+        
+        String configured = milvusConfig.getCollection().getIndexType().toUpperCase();
+        return "FLAT".equals(configured) ? "IVF_FLAT" : configured;
+    }
+    
+    private int recommendNlist(long rowCount) {
+        double nlist = milvusConfig.getAdvisor().getNlistFactor() * Math.sqrt(rowCount);
+        return (int) Math.max(1, Math.min(MAX_NLIST, Math.round(nlist)));
+    }
+    
+    /**
+     * 以抽样向量实测不同nprobe的Recall@K，nprobe从1开始倍增直到达到目标召回率
+     */
+    private void measureNprobe(IndexAdvice advice, MilvusConfig.Advisor advisor) {
+        int nlist = advice.getCurrentNlist();
+        int topK = Math.max(advisor.getTopK(), 1);
+        
+        List<float[]> samples = sampleFeatures(advisor.getSampleSize());
+        advice.setSampleSize(samples.size());
+        if (samples.isEmpty()) {
+            return;
+        }
+        
+        // 基准：探测全部聚类的检索结果
+        List<Set<String>> groundTruth = new ArrayList<>(samples.size());
+        for (float[] sample : samples) {
+            groundTruth.add(searchIds(sample, topK, nlist));
+        }
+        
+        for (int nprobe = 1; ; nprobe = Math.min(nprobe * 2, nlist)) {
+            float recall = measureRecall(samples, groundTruth, topK, nprobe);
+            advice.getMeasuredRecall().put(nprobe, recall);
+            
+            if (recall >= advisor.getTargetRecall() || nprobe >= nlist) {
+                advice.setRecommendedNprobe(nprobe);
+                return;
+            }
+        }
+    }
+    
+    private float measureRecall(List<float[]> samples, List<Set<String>> groundTruth, int topK, int nprobe) {
+        long hits = 0;
+        long total = 0;
+        
+        for (int i = 0; i < samples.size(); i++) {
+            Set<String> expected = groundTruth.get(i);
+            if (expected.isEmpty()) {
+                continue;
+            }
+            
+            Set<String> actual = searchIds(samples.get(i), topK, nprobe);
+            for (String faceId : expected) {
+                if (actual.contains(faceId)) {
+                    hits++;
+                }
+            }
+            total += expected.size();
+        }
+        
+        return total == 0 ? 1.0f : (float) hits / total;
+    }
+    
+    private Set<String> searchIds(float[] feature, int topK, int nprobe) {
+        List<MilvusService.SearchResult> results = milvusService.searchSimilarFaces(feature, SearchOptions.builder()
+                .topK(topK)
+                .nprobe(nprobe)
+                .build());
+        
+        Set<String> faceIds = new HashSet<>();
+        for (MilvusService.SearchResult result : results) {
+            faceIds.add(result.faceInfo.getFaceId());
+        }
+        return faceIds;
+    }
+    
+    /**
+     * 从随机face_id游标处抽取一段库中向量，不足时从头补齐
+     */
+    private List<float[]> sampleFeatures(int sampleSize) {
+        String collection = milvusService.getActiveCollection();
+        String cursor = UUID.randomUUID().toString().replace("-", "");
+        
+        List<FaceInfo> faces = new ArrayList<>(milvusService.queryFacesAfter(collection, cursor, sampleSize, true));
+        if (faces.size() < sampleSize) {
+            faces.addAll(milvusService.queryFacesAfter(collection, null, sampleSize - faces.size(), true));
+        }
+        
+        List<float[]> features = new ArrayList<>(faces.size());
+        Set<String> seen = new HashSet<>();
+        for (FaceInfo face : faces) {
+            if (face.getFeature() != null && seen.add(face.getFaceId())) {
+                features.add(face.getFeature());
+            }
+        }
+        return features;
+    }
+    
+    private void applyAdvice(IndexAdvice advice, MilvusConfig.Advisor advisor) {
+        // nprobe与重建都只作用于主集合，而检索参数会下发到所有分片
+        if (milvusService.getShardCount() > 1) {
+            advice.setMessage("已启用人脸分片，不自动应用建议");
+            log.warn("已启用人脸分片 (共 {} 个)，索引顾问不应用nprobe与重建建议", milvusService.getShardCount());
+            return;
+        }
+        
+        if (advice.getRecommendedNprobe() != null) {
+            milvusService.setTunedNprobe(advice.getRecommendedNprobe());
+            advice.setNprobeApplied(true);
+        }
+        
+        if (!needsRebuild(advice, advisor)) {
+            return;
+        }
+        
+        if (!milvusService.isAliasEnabled()) {
+            advice.setMessage("建议重建索引，但未配置集合别名，无法自动切换");
+            log.warn("索引顾问建议重建索引 ({} -> {})，但未配置 milvus.collection.alias",
+                    advice.getCurrentIndexType(), advice.getRecommendedIndexType());
+            return;
+        }
+        
+        try {
+            indexManagementService.startRebuild(IndexRebuildRequest.builder()
+                    .indexType(advice.getRecommendedIndexType())
+                    .nlist(advice.getRecommendedNlist())
+                    .build());
+            advice.setRebuildTriggered(true);
+            advice.setMessage("已触发索引重建");
+        } catch (RuntimeException e) {
+            advice.setMessage("触发索引重建失败: " + e.getMessage());
+            log.warn("索引顾问触发重建失败: {}", e.getMessage());
+        }
+    }
+    
+    private boolean needsRebuild(IndexAdvice advice, MilvusConfig.Advisor advisor) {
+        if (!advice.getRecommendedIndexType().equals(advice.getCurrentIndexType())) {
+            return true;
+        }
+        
+        if (!advice.getCurrentIndexType().startsWith("IVF")) {
+            return false;
+        }
+        
+        float current = Math.max(advice.getCurrentNlist(), 1);
+        float recommended = advice.getRecommendedNlist();
+        return Math.max(current, recommended) / Math.min(current, recommended) >= advisor.getRebuildRatio();
+    }
+}
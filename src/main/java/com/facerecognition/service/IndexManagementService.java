@@ -0,0 +1,217 @@
+package com.facerecognition.service;
+
+import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.dto.IndexRebuildRequest;
+import com.facerecognition.dto.IndexRebuildStatus;
+import com.facerecognition.model.FaceInfo;
+import com.facerecognition.model.IndexSpec;
+import com.facerecognition.util.Priority;
+import io.milvus.param.IndexType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 向量索引在线重建服务
+ * 在新的物理集合上按目标索引建表，回填期间镜像实时写入/删除，回填完成后原子切换别名，
+ * 整个过程中识别与注册请求持续经由别名访问旧集合，不中断服务
+ */
+@Slf4j
+@Service
+public class IndexManagementService {
+    
+    @Autowired
+    private MilvusConfig milvusConfig;
+    
+    @Autowired
+    private MilvusService milvusService;
+    
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(Priority.bind(Priority.BULK, r), "index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private volatile IndexRebuildStatus status = IndexRebuildStatus.builder()
+            .state("IDLE")
+            .build();
+    
+    /**
+     * 启动索引重建（异步执行）
+     * 
+     * @param request 重建请求
+     * @return 初始状态
+     */
+    public synchronized IndexRebuildStatus startRebuild(IndexRebuildRequest request) {
+        if ("RUNNING".equals(status.getState())) {
+            throw new RuntimeException("索引重建进行中: " + status.getTargetCollection());
+        }
+        
+        if (milvusService.isRebalancing()) {
+            throw new RuntimeException("重新分片进行中，请完成后再重建索引");
+        }
+        
+        // 远程分片按静态配置建索引，检索参数却取自主集合的当前索引，只重建主集合会让各分片索引不一致
+        if (milvusService.getShardCount() > 1) {
+            throw new RuntimeException("已启用人脸分片 (共 " + milvusService.getShardCount() + " 个)，不支持在线重建索引");
+        }
+        
+        if (!milvusService.isAliasEnabled()) {
+            throw new RuntimeException("未配置集合别名 (milvus.collection.alias)，无法在线切换索引");
+        }
+        
+        String indexType = request.getIndexType().toUpperCase();
+        try {
+            IndexType.valueOf(indexType);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("不支持的索引类型: " + request.getIndexType());
+        }
+        
+        IndexSpec indexSpec = buildIndexSpec(request, indexType);
+        
+        String sourceCollection = milvusService.resolvePhysicalCollection();
+        String targetCollection = milvusConfig.getCollection().getName() + "_" + System.currentTimeMillis();
+        int batchSize = request.getBatchSize() != null && request.getBatchSize() > 0 ? request.getBatchSize() : 1000;
+        boolean dropOld = Boolean.TRUE.equals(request.getDropOld());
+        
+        status = IndexRebuildStatus.builder()
+                .state("RUNNING")
+                .sourceCollection(sourceCollection)
+                .targetCollection(targetCollection)
+                .targetIndexType(indexType)
+                .startTime(System.currentTimeMillis())
+                .build();
+        
+        log.info("开始索引重建: {} -> {}, indexType={}", sourceCollection, targetCollection, indexType);
+        
+        executor.submit(() -> runRebuild(sourceCollection, targetCollection, indexSpec, batchSize, dropOld));
+        
+        return getStatus();
+    }
+    
+    /**
+     * 获取重建状态
+     */
+    public IndexRebuildStatus getStatus() {
+        IndexRebuildStatus.IndexRebuildStatusBuilder builder = status.toBuilder()
+                .activeIndexType(milvusService.getActiveIndexType());
+        
+        try {
+            builder.activeCollection(milvusService.resolvePhysicalCollection());
+        } catch (Exception e) {
+            log.warn("查询当前集合失败: {}", e.getMessage());
+        }
+        
+        return builder.build();
+    }
+    
+    private IndexSpec buildIndexSpec(IndexRebuildRequest request, String indexType) {
+        IndexSpec indexSpec = IndexSpec.fromConfig(milvusConfig.getCollection());
+        indexSpec.setIndexType(indexType);
+        
+        if (request.getNlist() != null) {
+            indexSpec.setNlist(request.getNlist());
+        }
+        if (request.getHnswM() != null) {
+            indexSpec.setHnswM(request.getHnswM());
+        }
+        if (request.getEfConstruction() != null) {
+            indexSpec.setEfConstruction(request.getEfConstruction());
+        }
+        if (request.getPqM() != null) {
+            indexSpec.setPqM(request.getPqM());
+        }
+        if (request.getNbits() != null) {
+            indexSpec.setNbits(request.getNbits());
+        }
+        
+        return indexSpec;
+    }
+    
+    private void runRebuild(String sourceCollection, String targetCollection, IndexSpec indexSpec,
+                            int batchSize, boolean dropOld) {
+        boolean mirroring = false;
+        
+        try {
+            // 1. 创建目标集合并建立新索引
+            milvusService.createPhysicalCollection(targetCollection, indexSpec);
+            
+            // 2. 开始镜像实时写入，此后新注册/删除的人脸同时作用于目标集合
+            milvusService.startMirroring(targetCollection);
+            mirroring = true;
+            
+            // 3. 按face_id游标分批回填（upsert幂等，与镜像写入重叠的行不会重复）
+            long totalRows = milvusService.getRowCount(sourceCollection);
+            status = status.toBuilder().totalRows(totalRows).build();
+            
+            long copiedRows = 0;
+            String cursor = null;
+            while (true) {
+                List<FaceInfo> page = milvusService.queryFacesAfter(sourceCollection, cursor, batchSize, true);
+                if (page.isEmpty()) {
+                    break;
+                }
+                
+                milvusService.upsertFaces(targetCollection, page);
+                
+                copiedRows += page.size();
+                cursor = page.get(page.size() - 1).getFaceId();
+                status = status.toBuilder().copiedRows(copiedRows).build();
+                
+                log.debug("索引重建回填进度: {}/{}", copiedRows, totalRows);
+            }
+            
+            // 4. 按face_id在目标集合重放回填期间的删除（防止回填写回已删除的行），此后镜像删除直接生效
+            List<String> deleteExprs = milvusService.drainMirroredDeleteExprs();
+            for (String expr : deleteExprs) {
+                milvusService.deleteByExpr(targetCollection, expr);
+            }
+            
+            milvusService.flush(targetCollection);
+            
+            if (milvusService.isMirrorDirty()) {
+                throw new RuntimeException("重建期间有写入未能同步到目标集合，放弃切换，请重新发起重建");
+            }
+            
+            // 5. 原子切换别名，切换完成后再停止镜像，避免切换窗口内的写入丢失
+            milvusService.switchAlias(targetCollection);
+            milvusService.stopMirroring();
+            mirroring = false;
+            
+            if (dropOld) {
+                milvusService.dropCollection(sourceCollection);
+            }
+            
+            status = status.toBuilder()
+                    .state("COMPLETED")
+                    .finishTime(System.currentTimeMillis())
+                    .message("回填 " + copiedRows + " 行，重放删除 " + deleteExprs.size() + " 次")
+                    .build();
+            
+            log.info("索引重建完成: {} -> {}, 回填 {} 行", sourceCollection, targetCollection, copiedRows);
+            
+        } catch (Exception e) {
+            log.error("索引重建失败", e);
+            
+            if (mirroring) {
+                milvusService.stopMirroring();
+            }
+            
+            status = status.toBuilder()
+                    .state("FAILED")
+                    .finishTime(System.currentTimeMillis())
+                    .message(e.getMessage())
+                    .build();
+        }
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
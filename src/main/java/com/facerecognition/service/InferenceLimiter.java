@@ -0,0 +1,83 @@
+package com.facerecognition.service;
+
+import ai.onnxruntime.OrtException;
+import com.facerecognition.config.OnnxConfig;
+import com.facerecognition.exception.DeadlineExceededException;
+import com.facerecognition.exception.ServiceOverloadedException;
+import com.facerecognition.util.Priority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * ONNX推理并发限制
+ * 检测与识别会话共用一组按优先级分配的许可：请求线程（含虚拟线程）再多，同时占用CPU推理的也不超过许可数；
+ * 启用 prioritized 时交互式请求优先获得许可，批量任务占用的许可数受 bulk-share 限制，否则按到达顺序排队；
+ * 等待超时时快速拒绝，等待时间不超过请求剩余的截止时间
+ */
+@Slf4j
+@Service
+public class InferenceLimiter {
+    
+    @Autowired
+    private OnnxConfig onnxConfig;
+    
+    private PriorityScheduler scheduler;
+    
+    @PostConstruct
+    public void init() {
+        OnnxConfig.Limiter config = onnxConfig.getLimiter();
+        if (!config.isEnabled()) {
+            return;
+        }
+        
+        // JVM只能获得逻辑处理器数，开启超线程时可通过permits显式配置为物理核心数
+        int permits = config.getPermits() > 0 ? config.getPermits() : Runtime.getRuntime().availableProcessors();
+        scheduler = new PriorityScheduler("推理资源", "推理", permits, config.getBulkShare());
+        
+        log.info("推理并发限制已启用: permits={}, prioritized={}, bulkPermits={}", permits, config.isPrioritized(),
+                scheduler.getBulkPermits());
+    }
+    
+    /**
+     * 按当前线程的优先级在许可内执行一次推理
+     * 
+     * @throws ServiceOverloadedException 等待许可超时
+     * @throws DeadlineExceededException 等待许可期间请求超过截止时间
+     */
+    public <T> T run(Inference<T> inference) throws OrtException {
+        if (scheduler == null) {
+            return inference.run();
+        }
+        
+        // 未按优先级分配时统一排在同一队列中
+        Priority priority = onnxConfig.getLimiter().isPrioritized() ? Priority.current() : Priority.STANDARD;
+        scheduler.acquire(priority, onnxConfig.getLimiter().getAcquireTimeoutMs());
+        try {
+            return inference.run();
+        } finally {
+            scheduler.release(priority);
+        }
+    }
+    
+    /**
+     * 推理许可调度器，未启用时为null
+     */
+    public PriorityScheduler getScheduler() {
+        return scheduler;
+    }
+    
+    /**
+     * 当前等待推理许可的线程数（估计值）
+     */
+    public int getQueueLength() {
+        return scheduler != null ? scheduler.getQueueLength() : 0;
+    }
+    
+    @FunctionalInterface
+    public interface Inference<T> {
+        T run() throws OrtException;
+    }
+}
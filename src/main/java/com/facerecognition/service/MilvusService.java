@@ -1,28 +1,55 @@
 package com.facerecognition.service;
 
 import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.dto.BulkDeleteResult;
 import com.facerecognition.model.FaceInfo;
+import com.facerecognition.model.IndexSpec;
+import com.facerecognition.model.SearchOptions;
+import com.facerecognition.util.Priority;
+import com.facerecognition.util.VectorUtils;
+import cn.hutool.core.lang.hash.MurmurHash;
+import cn.hutool.json.JSONUtil;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.milvus.common.clientenum.ConsistencyLevelEnum;
+import io.milvus.client.MilvusClient;
 import io.milvus.client.MilvusServiceClient;
-import io.milvus.grpc.DataType;
-import io.milvus.grpc.MutationResult;
-import io.milvus.grpc.QueryResults;
-import io.milvus.grpc.SearchResults;
+import io.milvus.grpc.*;
 import io.milvus.param.*;
+import io.milvus.param.alias.AlterAliasParam;
+import io.milvus.param.alias.CreateAliasParam;
+import io.milvus.param.alias.DropAliasParam;
 import io.milvus.param.collection.*;
+import io.milvus.param.control.ManualCompactParam;
 import io.milvus.param.dml.DeleteParam;
 import io.milvus.param.dml.InsertParam;
 import io.milvus.param.dml.QueryParam;
 import io.milvus.param.dml.SearchParam;
+import io.milvus.param.dml.UpsertParam;
 import io.milvus.param.index.CreateIndexParam;
+import io.milvus.param.index.DescribeIndexParam;
+import io.milvus.response.DescCollResponseWrapper;
+import io.milvus.response.DescIndexResponseWrapper;
+import io.milvus.response.GetCollStatResponseWrapper;
 import io.milvus.response.QueryResultsWrapper;
 import io.milvus.response.SearchResultsWrapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * Milvus向量数据库服务
@@ -35,14 +62,101 @@ public class MilvusService {
     @Autowired
     private MilvusConfig milvusConfig;
     
+    @Autowired
+    private FaceMetadataCache faceMetadataCache;
+    
     private MilvusServiceClient milvusClient;
     
-    private static final String FIELD_FACE_ID = "face_id";
-    private static final String FIELD_PERSON_ID = "person_id";
-    private static final String FIELD_NAME = "name";
-    private static final String FIELD_FEATURE = "feature";
-    private static final String FIELD_REMARK = "remark";
-    private static final String FIELD_REGISTER_TIME = "register_time";
+    /**
+     * 客户端池：每个客户端独立一条gRPC通道，检索/写入轮询选用；milvusClient为池中第一个，负责建表、别名等管理操作
+     */
+    private final List<MilvusServiceClient> clientPool = new ArrayList<>();
+    private final List<MilvusClient> searchClients = new ArrayList<>();
+    private final List<MilvusClient> writeClients = new ArrayList<>();
+    private final AtomicInteger nextClient = new AtomicInteger();
+    
+    /**
+     * 检索与批量读写的许可调度：交互式检索优先，批量任务占用受限；未启用时为null
+     */
+    private PriorityScheduler clientScheduler;
+    
+    /**
+     * 当前生效的索引类型与nlist（由describeIndex读取，索引切换后更新）
+     */
+    private volatile String activeIndexType;
+    private volatile int activeNlist;
+    
+    /**
+     * 索引顾问按实测召回率调整的默认nprobe，为null时使用collection.nprobe
+     */
+    private volatile Integer tunedNprobe;
+    
+    /**
+     * 索引重建期间的镜像写入目标集合，为null表示未在重建
+     */
+    private volatile String mirrorCollection;
+    private final Set<String> mirroredDeletedFaceIds = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * 镜像写入失败过 (目标集合不完整，重建不得切换别名)
+     */
+    private volatile boolean mirrorDirty;
+    
+    static final String FIELD_FACE_ID = "face_id";
+    static final String FIELD_PERSON_ID = "person_id";
+    static final String FIELD_NAME = "name";
+    static final String FIELD_FEATURE = "feature";
+    static final String FIELD_REMARK = "remark";
+    static final String FIELD_REGISTER_TIME = "register_time";
+    static final String FIELD_GROUP_ID = "group_id";
+    
+    /**
+     * 集合是否包含分组字段 (旧版本创建的集合没有该字段，需在线重建升级)
+     */
+    private final Map<String, Boolean> groupFieldCache = new ConcurrentHashMap<>();
+    
+    private static final float RADIUS_EPSILON = 1e-6f;
+    
+    /**
+     * 远端分片 (1..N号)，未启用分片时为空；主集合为0号分片
+     */
+    private final List<MilvusShard> remoteShards = new ArrayList<>();
+    private ExecutorService shardExecutor;
+    
+    /**
+     * RPC返回后可能阻塞的后续处理（元数据补查、镜像写入），不在gRPC回调线程上执行
+     */
+    private final ExecutorService callbackExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "milvus-callback");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * 重新分片进行中：按人员路由的删除/查询需广播到所有分片
+     */
+    private volatile boolean rebalancing;
+    
+    /**
+     * 重新分片迁移一页时持有写锁，删除持有读锁：
+     * 防止读取一页后、写入目标分片前发生的删除被迁移重新写回
+     */
+    private final ReadWriteLock shardMoveLock = new ReentrantReadWriteLock();
+    
+    /**
+     * 主集合自上次压缩以来删除的行数（远端分片各自计数）
+     */
+    private final AtomicLong deletedSinceCompaction = new AtomicLong();
+    
+    /**
+     * 压缩检查在独立的批量 (BULK) 线程上执行，定时任务与批量删除只提交检查
+     */
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(Priority.bind(Priority.BULK, r), "milvus-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compactionPending = new AtomicBoolean();
     
     @PostConstruct
     public void init() {
@@ -56,13 +170,35 @@ public class MilvusService {
                     .withAuthorization(milvusConfig.getUsername(), milvusConfig.getPassword())
                     .build();
             
-            milvusClient = new MilvusServiceClient(connectParam);
+            MilvusConfig.ClientPool poolConfig = milvusConfig.getClientPool();
+            for (int i = 0; i < Math.max(poolConfig.getSize(), 1); i++) {
+                MilvusServiceClient client = new MilvusServiceClient(connectParam);
+                clientPool.add(client);
+                searchClients.add(client.withTimeout(poolConfig.getSearchTimeoutMs(), TimeUnit.MILLISECONDS));
+                writeClients.add(client.withTimeout(poolConfig.getWriteTimeoutMs(), TimeUnit.MILLISECONDS));
+            }
+            milvusClient = clientPool.get(0);
+            
+            if (poolConfig.getMaxInFlight() > 0) {
+                clientScheduler = new PriorityScheduler("向量数据库", "向量数据库访问", poolConfig.getMaxInFlight(),
+                        poolConfig.getBulkShare());
+            }
+            
+            log.info("Milvus连接成功: {}:{}, clientPool={}, maxInFlight={}", milvusConfig.getHost(), milvusConfig.getPort(),
+                    clientPool.size(), poolConfig.getMaxInFlight());
             
-            log.info("Milvus连接成功: {}:{}", milvusConfig.getHost(), milvusConfig.getPort());
+            activeIndexType = milvusConfig.getCollection().getIndexType();
+            activeNlist = milvusConfig.getCollection().getNlist();
             
             // 创建集合（如果不存在）
             createCollectionIfNotExists();
             
+            // 连接远端分片
+            initShards();
+            
+            // 加载人脸元数据缓存
+            loadMetadataCache();
+            
         } catch (Exception e) {
             log.error("Milvus初始化失败", e);
             throw new RuntimeException("Milvus初始化失败: " + e.getMessage());
@@ -71,29 +207,81 @@ public class MilvusService {
     
     /**
      * 创建集合（如果不存在）
+     * 配置了别名时，读写均经由别名；旧部署中已存在的物理集合会被直接挂到别名上
      */
     private void createCollectionIfNotExists() {
-        String collectionName = milvusConfig.getCollection().getName();
+        MilvusConfig.Collection config = milvusConfig.getCollection();
+        String collectionName = getActiveCollection();
         
         // 检查集合是否存在
-        R<Boolean> hasCollectionResp = milvusClient.hasCollection(
-                HasCollectionParam.newBuilder()
-                        .withCollectionName(collectionName)
-                        .build()
-        );
-        
-        if (hasCollectionResp.getData()) {
+        if (hasCollection(collectionName)) {
             log.info("Milvus集合已存在: {}", collectionName);
             
             // 加载集合到内存
-            milvusClient.loadCollection(
-                    LoadCollectionParam.newBuilder()
-                            .withCollectionName(collectionName)
-                            .build()
-            );
+            loadCollection(collectionName);
+            refreshIndexInfo();
+            return;
+        }
+        
+        if (isAliasEnabled()) {
+            if (!hasCollection(config.getName())) {
+                createPhysicalCollection(config.getName(), IndexSpec.fromConfig(config));
+            } else {
+                loadCollection(config.getName());
+            }
+            createAlias(config.getAlias(), config.getName());
+        } else {
+            createPhysicalCollection(collectionName, IndexSpec.fromConfig(config));
+        }
+        
+        refreshIndexInfo();
+    }
+    
+    /**
+     * 连接并初始化远端分片
+     */
+    private void initShards() {
+        MilvusConfig.Sharding sharding = milvusConfig.getSharding();
+        
+        if (!sharding.isEnabled() || sharding.getShards().isEmpty()) {
             return;
         }
         
+        IndexSpec indexSpec = IndexSpec.fromConfig(milvusConfig.getCollection());
+        List<MilvusConfig.Shard> shards = sharding.getShards();
+        MilvusConfig.ClientPool poolConfig = milvusConfig.getClientPool();
+        
+        for (int i = 0; i < shards.size(); i++) {
+            MilvusConfig.Shard shard = shards.get(i);
+            remoteShards.add(new MilvusShard(i + 1, shard.getHost(), shard.getPort(),
+                    shard.getUsername(), shard.getPassword(), shard.getCollection(), indexSpec,
+                    poolConfig.getSearchTimeoutMs(), poolConfig.getWriteTimeoutMs(), this));
+        }
+        
+        // 远端分片检索走异步RPC不占线程，此线程池只承载远端分片的单条写入，按同时访问数上限定大小
+        shardExecutor = Executors.newFixedThreadPool(Math.max(poolConfig.getMaxInFlight(), remoteShards.size() + 1), r -> {
+            Thread thread = new Thread(r, "milvus-shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        log.info("人脸分片已启用: 共 {} 个分片", getShardCount());
+    }
+    
+    /**
+     * 创建物理集合、向量索引并加载到内存
+     * 
+     * @param collectionName 物理集合名称
+     * @param indexSpec 索引定义
+     */
+    public void createPhysicalCollection(String collectionName, IndexSpec indexSpec) {
+        createPhysicalCollection(milvusClient, collectionName, indexSpec);
+    }
+    
+    /**
+     * 在指定Milvus实例上创建物理集合、向量索引并加载到内存
+     */
+    void createPhysicalCollection(MilvusServiceClient client, String collectionName, IndexSpec indexSpec) {
         // 创建集合Schema
         log.info("创建Milvus集合: {}", collectionName);
         
@@ -134,6 +322,14 @@ public class MilvusService {
                 .withDataType(DataType.Int64)
                 .build();
         
+        // 分组字段作为partition key，按分组过滤检索时Milvus只扫描对应分区
+        FieldType groupIdField = FieldType.newBuilder()
+                .withName(FIELD_GROUP_ID)
+                .withDataType(DataType.VarChar)
+                .withMaxLength(64)
+                .withPartitionKey(true)
+                .build();
+        
         CreateCollectionParam createCollectionReq = CreateCollectionParam.newBuilder()
                 .withCollectionName(collectionName)
                 .withDescription("人脸特征向量集合")
@@ -144,9 +340,11 @@ public class MilvusService {
                 .addFieldType(featureField)
                 .addFieldType(remarkField)
                 .addFieldType(registerTimeField)
+                .addFieldType(groupIdField)
+                .withPartitionsNum(milvusConfig.getCollection().getGroupPartitions())
                 .build();
         
-        R<RpcStatus> createCollectionResp = milvusClient.createCollection(createCollectionReq);
+        R<RpcStatus> createCollectionResp = client.createCollection(createCollectionReq);
         
         if (createCollectionResp.getStatus() != R.Status.Success.getCode()) {
             throw new RuntimeException("创建集合失败: " + createCollectionResp.getMessage());
@@ -155,14 +353,10 @@ public class MilvusService {
         log.info("Milvus集合创建成功: {}", collectionName);
         
         // 创建向量索引
-        createIndex();
+        createIndex(client, collectionName, indexSpec);
         
         // 加载集合到内存
-        milvusClient.loadCollection(
-                LoadCollectionParam.newBuilder()
-                        .withCollectionName(collectionName)
-                        .build()
-        );
+        loadCollection(client, collectionName);
         
         log.info("Milvus集合已加载到内存");
     }
@@ -170,14 +364,13 @@ public class MilvusService {
     /**
      * 创建向量索引
      */
-    private void createIndex() {
-        String collectionName = milvusConfig.getCollection().getName();
-        String indexType = milvusConfig.getCollection().getIndexType();
+    private void createIndex(MilvusServiceClient client, String collectionName, IndexSpec indexSpec) {
+        String indexType = indexSpec.getIndexType();
         String metricType = milvusConfig.getCollection().getMetricType();
         
-        log.info("创建向量索引: indexType={}, metricType={}", indexType, metricType);
+        String indexParamsJson = buildIndexParams(indexSpec);
         
-        String indexParamsJson = "{\"nlist\":" + milvusConfig.getCollection().getNlist() + "}";
+        log.info("创建向量索引: indexType={}, metricType={}, params={}", indexType, metricType, indexParamsJson);
         
         CreateIndexParam createIndexParam = CreateIndexParam.newBuilder()
                 .withCollectionName(collectionName)
@@ -188,7 +381,7 @@ public class MilvusService {
                 .withSyncMode(Boolean.TRUE)
                 .build();
         
-        R<RpcStatus> createIndexResp = milvusClient.createIndex(createIndexParam);
+        R<RpcStatus> createIndexResp = client.createIndex(createIndexParam);
         
         if (createIndexResp.getStatus() != R.Status.Success.getCode()) {
             throw new RuntimeException("创建索引失败: " + createIndexResp.getMessage());
@@ -198,277 +391,1895 @@ public class MilvusService {
     }
     
     /**
-     * 插入人脸向量
-     * 
-     * @param faceInfo 人脸信息
-     * @return 是否成功
+     * 按索引类型构建建索引参数JSON
+     * IVF系列使用nlist (IVF_PQ另需m/nbits)，HNSW使用M/efConstruction，FLAT无参数
      */
-    public boolean insertFace(FaceInfo faceInfo) {
-        try {
-            String collectionName = milvusConfig.getCollection().getName();
-            
-            List<String> faceIds = Collections.singletonList(faceInfo.getFaceId());
-            List<String> personIds = Collections.singletonList(faceInfo.getPersonId());
-            List<String> names = Collections.singletonList(faceInfo.getName());
-            List<List<Float>> features = Collections.singletonList(toFloatList(faceInfo.getFeature()));
-            List<String> remarks = Collections.singletonList(faceInfo.getRemark() != null ? faceInfo.getRemark() : "");
-            List<Long> registerTimes = Collections.singletonList(faceInfo.getRegisterTime());
-            
-            List<InsertParam.Field> fields = new ArrayList<>();
-            fields.add(new InsertParam.Field(FIELD_FACE_ID, faceIds));
-            fields.add(new InsertParam.Field(FIELD_PERSON_ID, personIds));
-            fields.add(new InsertParam.Field(FIELD_NAME, names));
-            fields.add(new InsertParam.Field(FIELD_FEATURE, features));
-            fields.add(new InsertParam.Field(FIELD_REMARK, remarks));
-            fields.add(new InsertParam.Field(FIELD_REGISTER_TIME, registerTimes));
-            
-            InsertParam insertParam = InsertParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .withFields(fields)
-                    .build();
-            
-            R<MutationResult> insertResp = milvusClient.insert(insertParam);
-            
-            if (insertResp.getStatus() != R.Status.Success.getCode()) {
-                log.error("插入人脸向量失败: {}", insertResp.getMessage());
-                return false;
-            }
-            
-            log.info("人脸向量插入成功: faceId={}, personId={}", faceInfo.getFaceId(), faceInfo.getPersonId());
-            return true;
-            
-        } catch (Exception e) {
-            log.error("插入人脸向量异常", e);
-            return false;
+    private String buildIndexParams(IndexSpec indexSpec) {
+        String indexType = indexSpec.getIndexType();
+        
+        if ("HNSW".equals(indexType)) {
+            return "{\"M\":" + indexSpec.getHnswM() + ",\"efConstruction\":" + indexSpec.getEfConstruction() + "}";
+        } else if ("IVF_PQ".equals(indexType)) {
+            return "{\"nlist\":" + indexSpec.getNlist() + ",\"m\":" + indexSpec.getPqM()
+                    + ",\"nbits\":" + indexSpec.getNbits() + "}";
+        } else if (indexType.startsWith("IVF")) {
+            return "{\"nlist\":" + indexSpec.getNlist() + "}";
         }
+        
+        return "{}";
     }
     
     /**
-     * 搜索相似人脸
-     * 
-     * @param feature 查询特征向量
-     * @param topK 返回前K个结果
-     * @return 搜索结果列表（包含相似度分数）
+     * 读取当前提供服务的集合的索引信息（索引类型、nlist）
+     * 定期执行，使多实例部署中其他实例完成的索引切换也能被感知
      */
-    public List<SearchResult> searchSimilarFaces(float[] feature, int topK) {
+    @Scheduled(initialDelay = 60000, fixedDelay = 60000)
+    public void refreshIndexInfo() {
         try {
-            String collectionName = milvusConfig.getCollection().getName();
-            
-            List<List<Float>> searchVectors = Collections.singletonList(toFloatList(feature));
-            
-            String searchParamsJson = "{\"nprobe\":" + milvusConfig.getCollection().getNprobe() + "}";
-            
-            SearchParam searchParam = SearchParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .withMetricType(MetricType.valueOf(milvusConfig.getCollection().getMetricType()))
-                    .withOutFields(Arrays.asList(FIELD_FACE_ID, FIELD_PERSON_ID, FIELD_NAME, FIELD_REMARK))
-                    .withTopK(topK)
-                    .withVectors(searchVectors)
-                    .withVectorFieldName(FIELD_FEATURE)
-                    .withParams(searchParamsJson)
-                    .build();
-            
-            R<SearchResults> searchResp = milvusClient.search(searchParam);
+            R<DescribeIndexResponse> describeResp = milvusClient.describeIndex(
+                    DescribeIndexParam.newBuilder()
+                            .withCollectionName(getActiveCollection())
+                            .build()
+            );
             
-            if (searchResp.getStatus() != R.Status.Success.getCode()) {
-                log.error("搜索人脸向量失败: {}", searchResp.getMessage());
-                return Collections.emptyList();
+            if (describeResp.getStatus() != R.Status.Success.getCode()) {
+                log.warn("查询索引信息失败: {}", describeResp.getMessage());
+                return;
             }
             
-            SearchResultsWrapper wrapper = new SearchResultsWrapper(searchResp.getData().getResults());
+            DescIndexResponseWrapper.IndexDesc indexDesc = new DescIndexResponseWrapper(describeResp.getData())
+                    .getIndexDescByFieldName(FIELD_FEATURE);
             
-            List<SearchResult> results = new ArrayList<>();
-            
-            List<SearchResultsWrapper.IDScore> idScores = wrapper.getIDScore(0);
+            if (indexDesc == null) {
+                return;
+            }
             
-            for (int i = 0; i < idScores.size(); i++) {
-                SearchResultsWrapper.IDScore idScore = idScores.get(i);
-                
-                // 获取字段值
-                Object faceIdObj = idScore.get(FIELD_FACE_ID);
-                Object personIdObj = idScore.get(FIELD_PERSON_ID);
-                Object nameObj = idScore.get(FIELD_NAME);
-                Object remarkObj = idScore.get(FIELD_REMARK);
-                
-                FaceInfo faceInfo = FaceInfo.builder()
-                        .faceId(faceIdObj != null ? faceIdObj.toString() : "")
-                        .personId(personIdObj != null ? personIdObj.toString() : "")
-                        .name(nameObj != null ? nameObj.toString() : "")
-                        .remark(remarkObj != null ? remarkObj.toString() : "")
-                        .build();
-                
-                // 获取相似度分数
-                float score = idScore.getScore();
-                
-                // COSINE相似度转换：Milvus返回的是距离，需要转换为相似度
-                // 对于COSINE距离，相似度 = (1 + distance) / 2 或 1 - distance
-                float similarity = convertScoreToSimilarity(score);
-                
-                SearchResult searchResult = new SearchResult();
-                searchResult.faceInfo = faceInfo;
-                searchResult.similarity = similarity;
-                
-                results.add(searchResult);
+            String indexType = indexDesc.getIndexType().name();
+            int nlist = milvusConfig.getCollection().getNlist();
+            String extraParam = indexDesc.getExtraParam();
+            if (extraParam != null && JSONUtil.isTypeJSONObject(extraParam)) {
+                nlist = JSONUtil.parseObj(extraParam).getInt("nlist", nlist);
             }
             
-            log.debug("搜索到 {} 个相似人脸", results.size());
+            if (!indexType.equals(activeIndexType) || nlist != activeNlist) {
+                // 索引变化后原有的nprobe调优结果不再适用
+                tunedNprobe = null;
+                log.info("当前索引: collection={}, indexType={}, nlist={}", getActiveCollection(), indexType, nlist);
+            }
             
-            return results;
+            activeIndexType = indexType;
+            activeNlist = nlist;
             
         } catch (Exception e) {
-            log.error("搜索人脸向量异常", e);
-            return Collections.emptyList();
+            log.warn("查询索引信息异常: {}", e.getMessage());
         }
     }
     
     /**
-     * 将Milvus距离分数转换为相似度
+     * 插入人脸向量
      * 
-     * @param score Milvus返回的距离分数
-     * @return 相似度 (0-1，越大越相似)
-     */
-    private float convertScoreToSimilarity(float score) {
-        String metricType = milvusConfig.getCollection().getMetricType();
-        
-        if ("COSINE".equals(metricType)) {
-            // COSINE相似度直接就是[-1, 1]，转换到[0, 1]
-            return (score + 1.0f) / 2.0f;
-        } else if ("IP".equals(metricType)) {
-            // 内积，分数越大越相似，已经是相似度
-            return score;
-        } else if ("L2".equals(metricType)) {
-            // L2距离，距离越小越相似，转换为相似度
-            return 1.0f / (1.0f + score);
-        }
-        
-        return score;
-    }
-    
-    /**
-     * 搜索结果包装类
+     * @param faceInfo 人脸信息
+     * @return 是否成功
      */
-    public static class SearchResult {
-        public FaceInfo faceInfo;
-        public float similarity;
+    public boolean insertFace(FaceInfo faceInfo) {
+        return insertFaceAsync(faceInfo).join();
     }
     
     /**
-     * 删除人脸
+     * 异步插入人脸向量（不等待Milvus响应，失败时结果为false）
+     * 写入许可按当前优先级获取：主集合在调用线程上获取 (可能阻塞至acquire-timeout-ms)，写入完成时归还
      * 
-     * @param faceId 人脸ID
+     * @param faceInfo 人脸信息
      * @return 是否成功
+     * @throws com.facerecognition.exception.ServiceOverloadedException 等待写入许可超时
      */
-    public boolean deleteFace(String faceId) {
+    public CompletableFuture<Boolean> insertFaceAsync(FaceInfo faceInfo) {
+        Priority priority = Priority.current();
+        int shard = shardOf(faceInfo.getPersonId());
+        if (shard > 0) {
+            return CompletableFuture.supplyAsync(
+                    () -> scheduled(priority, () -> insertToRemoteShard(remoteShards.get(shard - 1), faceInfo)), shardExecutor);
+        }
+        
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        if (clientScheduler != null) {
+            clientScheduler.acquire(priority, milvusConfig.getClientPool().getAcquireTimeoutMs());
+            result.whenComplete((r, e) -> clientScheduler.release(priority));
+        }
+        
         try {
-            String collectionName = milvusConfig.getCollection().getName();
-            String expr = FIELD_FACE_ID + " == \"" + faceId + "\"";
+            String collectionName = getActiveCollection();
             
-            DeleteParam deleteParam = DeleteParam.newBuilder()
+            List<InsertParam.Field> fields = buildInsertFields(Collections.singletonList(faceInfo), hasGroupField(collectionName));
+            
+            InsertParam insertParam = InsertParam.newBuilder()
                     .withCollectionName(collectionName)
-                    .withExpr(expr)
+                    .withFields(fields)
                     .build();
             
-            R<MutationResult> deleteResp = milvusClient.delete(deleteParam);
-            
-            if (deleteResp.getStatus() != R.Status.Success.getCode()) {
-                log.error("删除人脸失败: {}", deleteResp.getMessage());
-                return false;
-            }
+            Futures.addCallback(nextClient(writeClients).insertAsync(insertParam), new FutureCallback<R<MutationResult>>() {
+                @Override
+                public void onSuccess(R<MutationResult> insertResp) {
+                    try {
+                        result.complete(afterLocalInsert(faceInfo, insertResp));
+                    } catch (Exception e) {
+                        log.error("插入人脸向量异常", e);
+                        result.complete(false);
+                    }
+                }
             
-            log.info("人脸删除成功: faceId={}", faceId);
-            return true;
+                @Override
+                public void onFailure(Throwable t) {
+                    log.error("插入人脸向量异常", t);
+                    result.complete(false);
+                }
+            }, callbackExecutor);
             
         } catch (Exception e) {
-            log.error("删除人脸异常", e);
-            return false;
+            log.error("插入人脸向量异常", e);
+            result.complete(false);
         }
+        return result;
     }
     
     /**
-     * 删除某人员的所有人脸
-     * 
-     * @param personId 人员ID
-     * @return 是否成功
+     * 主集合写入返回后：更新元数据缓存，重建期间同步写入目标集合（在回调线程池上执行）
      */
-    public boolean deletePersonFaces(String personId) {
-        try {
-            String collectionName = milvusConfig.getCollection().getName();
-            String expr = FIELD_PERSON_ID + " == \"" + personId + "\"";
+    private boolean afterLocalInsert(FaceInfo faceInfo, R<MutationResult> insertResp) {
+        if (insertResp.getStatus() != R.Status.Success.getCode()) {
+            log.error("插入人脸向量失败: {}", insertResp.getMessage());
+            return false;
+        }
+        
+        faceMetadataCache.put(faceInfo);
             
-            DeleteParam deleteParam = DeleteParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .withExpr(expr)
-                    .build();
+        // 索引重建期间同步写入目标集合；主集合已写入成功，镜像失败不影响本次注册结果
+        mirrorUpsert(Collections.singletonList(faceInfo));
             
-            R<MutationResult> deleteResp = milvusClient.delete(deleteParam);
+        log.info("人脸向量插入成功: faceId={}, personId={}", faceInfo.getFaceId(), faceInfo.getPersonId());
+        return true;
+    }
+    
+    /**
+     * 插入人脸到远端分片
+     */
+    private boolean insertToRemoteShard(MilvusShard shard, FaceInfo faceInfo) {
+        try {
+            shard.upsert(Collections.singletonList(faceInfo));
             
-            if (deleteResp.getStatus() != R.Status.Success.getCode()) {
-                log.error("删除人员人脸失败: {}", deleteResp.getMessage());
-                return false;
-            }
+            faceMetadataCache.put(faceInfo);
             
-            log.info("人员人脸删除成功: personId={}", personId);
+            log.info("人脸向量插入成功: faceId={}, personId={}, shard={}",
+                    faceInfo.getFaceId(), faceInfo.getPersonId(), shard.getIndex());
             return true;
             
         } catch (Exception e) {
-            log.error("删除人员人脸异常", e);
+            log.error("插入人脸向量到分片{}异常", shard.getIndex(), e);
             return false;
         }
     }
     
     /**
-     * 重置人脸库（删除所有数据）
+     * 批量插入人脸向量：按人员路由分片，每个分片一次写入；写入成功后更新元数据缓存，重建期间同步写入目标集合
      * 
-     * @return 是否成功
+     * @param faces 人脸信息列表 (需包含特征)
      */
-    public boolean resetDatabase() {
-        try {
-            String collectionName = milvusConfig.getCollection().getName();
-            
-            // 删除集合
-            R<RpcStatus> dropResp = milvusClient.dropCollection(
-                    DropCollectionParam.newBuilder()
-                            .withCollectionName(collectionName)
-                            .build()
-            );
+    public void insertFaces(List<FaceInfo> faces) {
+        Map<Integer, List<FaceInfo>> batches = new HashMap<>();
+        for (FaceInfo face : faces) {
+            batches.computeIfAbsent(shardOf(face.getPersonId()), k -> new ArrayList<>()).add(face);
+        }
+        
+        for (Map.Entry<Integer, List<FaceInfo>> entry : batches.entrySet()) {
+            List<FaceInfo> batch = entry.getValue();
             
-            if (dropResp.getStatus() != R.Status.Success.getCode()) {
-                log.error("删除集合失败: {}", dropResp.getMessage());
-                return false;
+            if (entry.getKey() > 0) {
+                MilvusShard shard = remoteShards.get(entry.getKey() - 1);
+                scheduled(Priority.current(), () -> {
+                    shard.upsert(batch);
+                    return null;
+                });
+            } else {
+                String collectionName = getActiveCollection();
+                List<InsertParam.Field> fields = buildInsertFields(batch, hasGroupField(collectionName));
+                
+                R<MutationResult> insertResp = scheduled(Priority.current(), () -> nextClient(writeClients).insert(
+                        InsertParam.newBuilder()
+                                .withCollectionName(collectionName)
+                                .withFields(fields)
+                                .build()));
+                
+                if (insertResp.getStatus() != R.Status.Success.getCode()) {
+                    throw new RuntimeException("批量插入人脸向量失败: " + insertResp.getMessage());
+                }
+                
+                // 索引重建期间同步写入目标集合
+                mirrorUpsert(batch);
             }
             
-            // 重新创建集合
-            createCollectionIfNotExists();
-            
-            log.info("人脸库重置成功");
-            return true;
-            
+            for (FaceInfo face : batch) {
+                faceMetadataCache.put(face);
+            }
+        }
+        
+        log.debug("批量插入人脸向量: {} 条", faces.size());
+    }
+    
+    /**
+     * 索引重建期间把主集合已写入的人脸同步写入目标集合
+     * 失败时不影响调用方（主集合写入已生效），只标记镜像不完整，重建据此放弃切换别名
+     */
+    private void mirrorUpsert(List<FaceInfo> faces) {
+        String mirror = mirrorCollection;
+        if (mirror == null) {
+            return;
+        }
+        
+        try {
+            upsertFaces(mirror, faces);
         } catch (Exception e) {
-            log.error("重置人脸库异常", e);
-            return false;
+            mirrorDirty = true;
+            log.error("镜像写入失败，本次索引重建将不会切换: {}", e.getMessage());
         }
     }
     
     /**
-     * 查询所有人脸
+     * 按主键写入或覆盖人脸向量（用于索引重建回填，可重复执行）
      * 
-     * @param limit 最大返回数量
-     * @return 人脸信息列表
+     * @param collectionName 目标集合
+     * @param faces 人脸信息列表 (需包含特征)
+     */
+    public void upsertFaces(String collectionName, List<FaceInfo> faces) {
+        UpsertParam upsertParam = UpsertParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withFields(buildInsertFields(faces, hasGroupField(collectionName)))
+                .build();
+        
+        R<MutationResult> upsertResp = scheduled(Priority.current(), () -> milvusClient.upsert(upsertParam));
+        
+        if (upsertResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("写入人脸向量失败: " + upsertResp.getMessage());
+        }
+    }
+    
+    /**
+     * 构建按列写入的字段数据
+     * 
+     * @param withGroup 目标集合是否包含分组字段
+     */
+    List<InsertParam.Field> buildInsertFields(List<FaceInfo> faces, boolean withGroup) {
+        List<String> faceIds = new ArrayList<>(faces.size());
+        List<String> personIds = new ArrayList<>(faces.size());
+        List<String> names = new ArrayList<>(faces.size());
+        List<List<Float>> features = new ArrayList<>(faces.size());
+        List<String> remarks = new ArrayList<>(faces.size());
+        List<Long> registerTimes = new ArrayList<>(faces.size());
+        List<String> groupIds = new ArrayList<>(faces.size());
+        
+        for (FaceInfo faceInfo : faces) {
+            faceIds.add(faceInfo.getFaceId());
+            personIds.add(faceInfo.getPersonId());
+            names.add(faceInfo.getName());
+            features.add(toFloatList(faceInfo.getFeature()));
+            remarks.add(faceInfo.getRemark() != null ? faceInfo.getRemark() : "");
+            registerTimes.add(faceInfo.getRegisterTime());
+            groupIds.add(faceInfo.getGroupId() != null ? faceInfo.getGroupId() : "");
+        }
+        
+        List<InsertParam.Field> fields = new ArrayList<>();
+        fields.add(new InsertParam.Field(FIELD_FACE_ID, faceIds));
+        fields.add(new InsertParam.Field(FIELD_PERSON_ID, personIds));
+        fields.add(new InsertParam.Field(FIELD_NAME, names));
+        fields.add(new InsertParam.Field(FIELD_FEATURE, features));
+        fields.add(new InsertParam.Field(FIELD_REMARK, remarks));
+        fields.add(new InsertParam.Field(FIELD_REGISTER_TIME, registerTimes));
+        if (withGroup) {
+            fields.add(new InsertParam.Field(FIELD_GROUP_ID, groupIds));
+        } else if (groupIds.stream().anyMatch(groupId -> !groupId.isEmpty())) {
+            throw new RuntimeException("当前集合不支持分组，请先在线重建索引以升级集合结构");
+        }
+        
+        return fields;
+    }
+    
+    /**
+     * 搜索相似人脸
+     * 
+     * @param feature 查询特征向量
+     * @param topK 返回前K个结果
+     * @return 搜索结果列表（包含相似度分数）
+     */
+    public List<SearchResult> searchSimilarFaces(float[] feature, int topK) {
+        return searchSimilarFaces(feature, SearchOptions.builder().topK(topK).build());
+    }
+    
+    /**
+     * 搜索相似人脸（指定检索参数）
+     * 
+     * @param feature 查询特征向量
+     * @param options 检索参数
+     * @return 搜索结果列表（包含相似度分数）
+     */
+    public List<SearchResult> searchSimilarFaces(float[] feature, SearchOptions options) {
+        return join(searchSimilarFacesAsync(feature, options));
+    }
+    
+    /**
+     * 异步搜索相似人脸：请求经由客户端池发出，调用线程不等待Milvus响应；
+     * 但检索许可在调用线程上获取，许可紧张时会阻塞至多acquire-timeout-ms
+     * 检索失败或超时时结果以异常完成，不会把故障当作"未匹配"返回
+     * 
+     * @param feature 查询特征向量
+     * @param options 检索参数
+     * @return 搜索结果列表（包含相似度分数）
+     */
+    public CompletableFuture<List<SearchResult>> searchSimilarFacesAsync(float[] feature, SearchOptions options) {
+        String groupExpr = buildGroupExpr(options.getGroupId());
+        
+        if (remoteShards.isEmpty()) {
+            return searchLocalAsync(feature, options, groupExpr);
+        }
+        
+        return searchAllShardsAsync(feature, options, groupExpr);
+    }
+    
+    /**
+     * 并行检索所有分片，用最小堆合并各分片的Top-K
+     * 超时或失败的分片记录告警；0号分片失败、过半分片失败，或有分片失败且其余分片无结果时，整次检索失败，
+     * 避免把故障当作权威的"未匹配"返回
+     */
+    private CompletableFuture<List<SearchResult>> searchAllShardsAsync(float[] feature, SearchOptions options, String groupExpr) {
+        List<CompletableFuture<List<SearchResult>>> futures = new ArrayList<>(getShardCount());
+        futures.add(withShardDeadline(0, searchLocalAsync(feature, options, groupExpr)));
+        for (MilvusShard shard : remoteShards) {
+            futures.add(withShardDeadline(shard.getIndex(), searchRemoteAsync(shard, feature, options, groupExpr)));
+        }
+        
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(v -> mergeShardResults(futures, options.getTopK()));
+    }
+    
+    /**
+     * 异步检索远端分片：许可在调用线程上获取（可能等待），RPC完成时归还；获取许可失败视为该分片失败
+     */
+    private CompletableFuture<List<SearchResult>> searchRemoteAsync(MilvusShard shard, float[] feature,
+                                                                    SearchOptions options, String groupExpr) {
+        if (clientScheduler == null) {
+            return shard.searchAsync(feature, options, groupExpr);
+        }
+        
+        Priority priority = Priority.current();
+        try {
+            clientScheduler.acquire(priority, milvusConfig.getClientPool().getAcquireTimeoutMs());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        return shard.searchAsync(feature, options, groupExpr)
+                .whenComplete((r, e) -> clientScheduler.release(priority));
+    }
+    
+    /**
+     * 分片检索超时或失败时结果为null（由合并阶段判断整次检索是否可信）
+     */
+    private CompletableFuture<List<SearchResult>> withShardDeadline(int shard, CompletableFuture<List<SearchResult>> future) {
+        return future
+                .orTimeout(milvusConfig.getSharding().getSearchTimeoutMs(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        log.warn("分片{}检索超时，结果已丢弃", shard);
+                    } else {
+                        log.warn("分片{}检索失败: {}", shard, cause.getMessage());
+                    }
+                    return null;
+                });
+    }
+    
+    List<SearchResult> mergeShardResults(List<CompletableFuture<List<SearchResult>>> futures, int topK) {
+        int failed = 0;
+        PriorityQueue<SearchResult> heap = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(r -> r.similarity));
+        for (CompletableFuture<List<SearchResult>> future : futures) {
+            List<SearchResult> shardResults = future.join();
+            if (shardResults == null) {
+                failed++;
+                continue;
+            }
+            
+            for (SearchResult result : shardResults) {
+                heap.offer(result);
+                if (heap.size() > topK) {
+                    heap.poll();
+                }
+            }
+        }
+        
+        if (futures.get(0).join() == null || failed * 2 > futures.size() || (failed > 0 && heap.isEmpty())) {
+            throw new RuntimeException("向量检索失败: " + failed + "/" + futures.size() + " 个分片不可用");
+        }
+        
+        List<SearchResult> merged = new ArrayList<>(heap);
+        merged.sort((a, b) -> Float.compare(b.similarity, a.similarity));
+        
+        if (failed > 0) {
+            log.warn("分片检索部分失败: {}/{} 个分片不可用，返回其余分片的结果", failed, futures.size());
+        }
+        log.debug("分片检索合并完成: shards={}, results={}", futures.size(), merged.size());
+        
+        return merged;
+    }
+    
+    /**
+     * 异步检索主集合 (0号分片)
+     */
+    private CompletableFuture<List<SearchResult>> searchLocalAsync(float[] feature, SearchOptions options, String groupExpr) {
+        return searchLocalBatchAsync(Collections.singletonList(feature), options, groupExpr)
+                .thenApply(results -> results.get(0));
+    }
+    
+    /**
+     * 多向量批量检索：一次请求提交多个查询向量
+     * 未启用分片时整批合并为一次Milvus检索；启用分片时每个查询各自扇出到所有分片并合并
+     * 
+     * @param features 查询特征向量
+     * @param options 检索参数 (对每个查询生效)
+     * @return 与查询向量一一对应的结果列表
+     * @throws RuntimeException 检索失败
+     */
+    public List<List<SearchResult>> searchSimilarFacesBatch(List<float[]> features, SearchOptions options) {
+        if (features.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        String groupExpr = buildGroupExpr(options.getGroupId());
+        
+        if (remoteShards.isEmpty()) {
+            return join(searchLocalBatchAsync(features, options, groupExpr));
+        }
+        
+        List<CompletableFuture<List<SearchResult>>> futures = new ArrayList<>(features.size());
+        for (float[] feature : features) {
+            futures.add(searchAllShardsAsync(feature, options, groupExpr));
+        }
+        
+        List<List<SearchResult>> results = new ArrayList<>(features.size());
+        for (CompletableFuture<List<SearchResult>> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+    
+    /**
+     * 等待检索结果，检索异常按原异常抛出
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 异步多向量检索主集合 (0号分片)
+     * 许可在调用线程上按当前优先级同步获取 (阻塞至获得许可或超时)，检索完成 (成功或失败) 时归还；
+     * 检索结果的解析与元数据补查在回调线程池上执行
+     * 
+     * @throws com.facerecognition.exception.ServiceOverloadedException 等待检索许可超时
+     */
+    private CompletableFuture<List<List<SearchResult>>> searchLocalBatchAsync(List<float[]> features, SearchOptions options,
+                                                                              String groupExpr) {
+        CompletableFuture<List<List<SearchResult>>> result = new CompletableFuture<>();
+        int count = features.size();
+        
+        Priority priority = Priority.current();
+        if (clientScheduler != null) {
+            clientScheduler.acquire(priority, milvusConfig.getClientPool().getAcquireTimeoutMs());
+            result.whenComplete((r, e) -> clientScheduler.release(priority));
+        }
+        
+        try {
+            String collectionName = getActiveCollection();
+            
+            List<List<Float>> searchVectors = new ArrayList<>(count);
+            for (float[] feature : features) {
+                searchVectors.add(toFloatList(feature));
+            }
+            
+            String searchParamsJson = buildSearchParams(options);
+            
+            // 元数据缓存就绪时只返回ID和分数，由本地缓存补全人员信息
+            boolean hydrate = faceMetadataCache.isReady();
+            List<String> outFields = hydrate
+                    ? Collections.emptyList()
+                    : metadataOutFields(collectionName);
+            
+            SearchParam.Builder searchParamBuilder = SearchParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withMetricType(MetricType.valueOf(milvusConfig.getCollection().getMetricType()))
+                    .withOutFields(outFields)
+                    .withTopK(options.getTopK())
+                    .withVectors(searchVectors)
+                    .withVectorFieldName(FIELD_FEATURE)
+                    .withParams(searchParamsJson);
+            
+            if (options.getConsistencyLevel() != null) {
+                searchParamBuilder.withConsistencyLevel(options.getConsistencyLevel());
+            }
+            
+            if (groupExpr != null) {
+                searchParamBuilder.withExpr(groupExpr);
+            }
+            
+            ListenableFuture<R<SearchResults>> searchFuture = nextClient(searchClients).searchAsync(searchParamBuilder.build());
+            
+            Futures.addCallback(searchFuture, new FutureCallback<R<SearchResults>>() {
+                @Override
+                public void onSuccess(R<SearchResults> searchResp) {
+                    try {
+                        result.complete(parseSearchResponse(searchResp, hydrate, count));
+                    } catch (Exception e) {
+                        log.error("搜索人脸向量异常", e);
+                        result.completeExceptionally(e);
+                    }
+                }
+                
+                @Override
+                public void onFailure(Throwable t) {
+                    log.error("搜索人脸向量异常", t);
+                    result.completeExceptionally(new RuntimeException("向量检索失败: " + t.getMessage(), t));
+                }
+            }, callbackExecutor);
+            
+        } catch (Exception e) {
+            log.error("搜索人脸向量异常", e);
+            result.completeExceptionally(new RuntimeException("向量检索失败: " + e.getMessage(), e));
+        }
+        return result;
+    }
+    
+    /**
+     * @throws RuntimeException 检索返回失败状态
+     */
+    private List<List<SearchResult>> parseSearchResponse(R<SearchResults> searchResp, boolean hydrate, int count) {
+        if (searchResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("向量检索失败: " + searchResp.getMessage());
+        }
+            
+        SearchResultsWrapper wrapper = new SearchResultsWrapper(searchResp.getData().getResults());
+            
+        List<List<SearchResult>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(hydrate ? hydrateSearchResults(wrapper, i) : parseSearchResults(wrapper, i));
+        }
+            
+        log.debug("搜索到相似人脸: queries={}, firstResults={}", count, results.get(0).size());
+            
+        return results;
+    }
+    
+    /**
+     * 在检索/读写许可内执行一次Milvus调用
+     * 
+     * @param priority 调用方的优先级 (在其他线程上执行时由调用方捕获)
+     */
+    private <T> T scheduled(Priority priority, Supplier<T> call) {
+        if (clientScheduler == null) {
+            return call.get();
+        }
+        
+        clientScheduler.acquire(priority, milvusConfig.getClientPool().getAcquireTimeoutMs());
+        try {
+            return call.get();
+        } finally {
+            clientScheduler.release(priority);
+        }
+    }
+    
+    /**
+     * 检索/读写许可调度器，未启用时为null
+     */
+    public PriorityScheduler getClientScheduler() {
+        return clientScheduler;
+    }
+    
+    /**
+     * 轮询选取池中的客户端
+     */
+    private MilvusClient nextClient(List<MilvusClient> clients) {
+        return clients.get(Math.floorMod(nextClient.getAndIncrement(), clients.size()));
+    }
+    
+    /**
+     * 解析检索结果（人员信息取自Milvus返回的输出字段）
+     * 
+     * @param wrapper 检索结果
+     * @param index 查询向量下标
+     */
+    List<SearchResult> parseSearchResults(SearchResultsWrapper wrapper, int index) {
+        List<SearchResult> results = new ArrayList<>();
+        
+        List<SearchResultsWrapper.IDScore> idScores = wrapper.getIDScore(index);
+        
+        for (int i = 0; i < idScores.size(); i++) {
+            SearchResultsWrapper.IDScore idScore = idScores.get(i);
+            
+            // 获取字段值
+            Object faceIdObj = idScore.get(FIELD_FACE_ID);
+            Object personIdObj = idScore.get(FIELD_PERSON_ID);
+            Object nameObj = idScore.get(FIELD_NAME);
+            Object remarkObj = idScore.get(FIELD_REMARK);
+            Object groupIdObj = idScore.getFieldValues().get(FIELD_GROUP_ID);
+            
+            FaceInfo faceInfo = FaceInfo.builder()
+                    .faceId(faceIdObj != null ? faceIdObj.toString() : "")
+                    .personId(personIdObj != null ? personIdObj.toString() : "")
+                    .name(nameObj != null ? nameObj.toString() : "")
+                    .remark(remarkObj != null ? remarkObj.toString() : "")
+                    .groupId(groupIdObj != null ? groupIdObj.toString() : "")
+                    .build();
+            
+            // 获取相似度分数
+            float score = idScore.getScore();
+            
+            // COSINE相似度转换：Milvus返回的是距离，需要转换为相似度
+            // 对于COSINE距离，相似度 = (1 + distance) / 2 或 1 - distance
+            float similarity = convertScoreToSimilarity(score);
+            
+            SearchResult searchResult = new SearchResult();
+            searchResult.faceInfo = faceInfo;
+            searchResult.similarity = similarity;
+            
+            results.add(searchResult);
+        }
+        
+        return results;
+    }
+    
+    /**
+     * 解析检索结果（只含ID和分数，人员信息由元数据缓存补全）
+     * 缓存未命中的ID按主键补查一次Milvus，补查不到或已被删除的命中直接丢弃
+     * 
+     * @param wrapper 检索结果
+     * @param index 查询向量下标
+     */
+    private List<SearchResult> hydrateSearchResults(SearchResultsWrapper wrapper, int index) {
+        List<SearchResultsWrapper.IDScore> idScores = wrapper.getIDScore(index);
+        List<SearchResult> results = new ArrayList<>(idScores.size());
+        List<String> missing = new ArrayList<>();
+        
+        for (SearchResultsWrapper.IDScore idScore : idScores) {
+            String faceId = idScore.getStrID();
+            FaceInfo faceInfo = faceMetadataCache.get(faceId);
+            
+            if (faceInfo == null) {
+                missing.add(faceId);
+            }
+            
+            // 未命中的先占位保持分数顺序，补查后填充
+            SearchResult searchResult = new SearchResult();
+            searchResult.faceInfo = faceInfo != null ? faceInfo : FaceInfo.builder().faceId(faceId).build();
+            searchResult.similarity = convertScoreToSimilarity(idScore.getScore());
+            results.add(searchResult);
+        }
+        
+        if (missing.isEmpty()) {
+            return results;
+        }
+            
+        log.debug("元数据缓存未命中 {} 条，按主键补查", missing.size());
+        
+        Set<String> unresolved = new HashSet<>(missing);
+        Map<String, FaceInfo> loaded = new HashMap<>();
+        for (FaceInfo faceInfo : queryFacesByIds(missing)) {
+            if (faceMetadataCache.isRemoved(faceInfo)) {
+                continue;
+            }
+            if (milvusConfig.getMetadataCache().isEnabled()) {
+                faceMetadataCache.admit(faceInfo);
+            }
+            loaded.put(faceInfo.getFaceId(), faceInfo);
+        }
+            
+        List<SearchResult> hydrated = new ArrayList<>(results.size());
+        for (SearchResult result : results) {
+            String faceId = result.faceInfo.getFaceId();
+            if (!unresolved.contains(faceId)) {
+                hydrated.add(result);
+            } else if (loaded.containsKey(faceId)) {
+                result.faceInfo = loaded.get(faceId);
+                hydrated.add(result);
+            }
+        }
+        return hydrated;
+    }
+    
+    String getMetricType() {
+        return milvusConfig.getCollection().getMetricType();
+    }
+    
+    /**
+     * 构建检索参数JSON
+     * HNSW索引使用ef，IVF系列索引使用nprobe；
+     * 设置了最低相似度时附加radius，Milvus只返回落在该半径内的结果（topK仍为上限）
+     * 
+     * @param options 检索参数
+     * @return 检索参数JSON
+     */
+    String buildSearchParams(SearchOptions options) {
+        MilvusConfig.Collection collection = milvusConfig.getCollection();
+        StringBuilder params = new StringBuilder("{");
+        
+        if (activeIndexType.startsWith("HNSW")) {
+            int ef = options.getEf() != null ? options.getEf() : collection.getEf();
+            // HNSW要求 ef >= topK
+            params.append("\"ef\":").append(Math.max(ef, options.getTopK()));
+        } else {
+            Integer tuned = tunedNprobe;
+            int nprobe = options.getNprobe() != null ? options.getNprobe()
+                    : (tuned != null ? tuned : collection.getNprobe());
+            params.append("\"nprobe\":").append(nprobe);
+        }
+        
+        Float minSimilarity = options.getMinSimilarity();
+        if (minSimilarity != null && minSimilarity > 0) {
+            params.append(",\"radius\":").append(similarityToRadius(minSimilarity));
+        }
+        
+        return params.append('}').toString();
+    }
+    
+    /**
+     * 将相似度阈值反推为度量空间的检索半径（convertScoreToSimilarity的逆变换）
+     * Milvus的radius为开区间边界，这里略微放宽以保证相似度恰好等于阈值的结果也被返回
+     * 
+     * @param similarity 相似度阈值 (0-1)
+     * @return 检索半径
+     */
+    float similarityToRadius(float similarity) {
+        String metricType = milvusConfig.getCollection().getMetricType();
+        
+        if ("COSINE".equals(metricType)) {
+            // similarity = (score + 1) / 2，分数越大越相似，返回 score > radius 的结果
+            return 2.0f * similarity - 1.0f - RADIUS_EPSILON;
+        } else if ("L2".equals(metricType)) {
+            // similarity = 1 / (1 + distance)，距离越小越相似，返回 distance < radius 的结果
+            return 1.0f / similarity - 1.0f + RADIUS_EPSILON;
+        }
+        
+        // IP: 分数即相似度
+        return similarity - RADIUS_EPSILON;
+    }
+    
+    /**
+     * 将Milvus距离分数转换为相似度
+     * 
+     * @param score Milvus返回的距离分数
+     * @return 相似度 (0-1，越大越相似)
+     */
+    float convertScoreToSimilarity(float score) {
+        String metricType = milvusConfig.getCollection().getMetricType();
+        
+        if ("COSINE".equals(metricType)) {
+            // COSINE相似度直接就是[-1, 1]，转换到[0, 1]
+            return (score + 1.0f) / 2.0f;
+        } else if ("IP".equals(metricType)) {
+            // 内积，分数越大越相似，已经是相似度
+            return score;
+        } else if ("L2".equals(metricType)) {
+            // L2距离，距离越小越相似，转换为相似度
+            return 1.0f / (1.0f + score);
+        }
+        
+        return score;
+    }
+    
+    /**
+     * 在本地按集合的度量类型计算两个向量的相似度
+     * 与Milvus检索结果经 convertScoreToSimilarity 转换后的取值范围一致
+     * 
+     * @param query 查询特征向量 (已L2归一化)
+     * @param stored 库中特征向量 (已L2归一化)
+     * @return 相似度 (0-1，越大越相似)
+     */
+    public float similarityOf(float[] query, float[] stored) {
+        String metricType = milvusConfig.getCollection().getMetricType();
+        
+        if ("L2".equals(metricType)) {
+            // Milvus的L2度量返回的是距离平方
+            return convertScoreToSimilarity(VectorUtils.squaredL2(query, stored));
+        }
+        
+        return convertScoreToSimilarity(VectorUtils.dot(query, stored));
+    }
+    
+    /**
+     * 搜索结果包装类
+     */
+    public static class SearchResult {
+        public FaceInfo faceInfo;
+        public float similarity;
+    }
+    
+    /**
+     * 删除人脸
+     * 
+     * @param faceId 人脸ID
+     * @return 是否成功
+     */
+    public boolean deleteFace(String faceId) {
+        Lock lock = shardMoveLock.readLock();
+        lock.lock();
+        try {
+            String collectionName = getActiveCollection();
+            String expr = FIELD_FACE_ID + " == \"" + faceId + "\"";
+            
+            DeleteParam deleteParam = DeleteParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withExpr(expr)
+                    .build();
+            
+            R<MutationResult> deleteResp = milvusClient.delete(deleteParam);
+            
+            if (deleteResp.getStatus() != R.Status.Success.getCode()) {
+                log.error("删除人脸失败: {}", deleteResp.getMessage());
+                return false;
+            }
+            
+            deletedSinceCompaction.addAndGet(deleteResp.getData().getDeleteCnt());
+            
+            FaceInfo cached = faceMetadataCache.get(faceId);
+            deleteOnRemoteShards(expr, cached != null ? cached.getPersonId() : null);
+            
+            faceMetadataCache.removeFace(faceId);
+            mirrorDelete(expr, Collections.singletonList(faceId));
+            
+            log.info("人脸删除成功: faceId={}", faceId);
+            return true;
+            
+        } catch (Exception e) {
+            log.error("删除人脸异常", e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 删除某人员的所有人脸
+     * 
+     * @param personId 人员ID
+     * @return 是否成功
+     */
+    public boolean deletePersonFaces(String personId) {
+        Lock lock = shardMoveLock.readLock();
+        lock.lock();
+        try {
+            String collectionName = getActiveCollection();
+            String expr = FIELD_PERSON_ID + " == \"" + personId + "\"";
+            List<String> mirroredFaceIds = faceIdsForMirror(collectionName, expr);
+            
+            DeleteParam deleteParam = DeleteParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withExpr(expr)
+                    .build();
+            
+            R<MutationResult> deleteResp = milvusClient.delete(deleteParam);
+            
+            if (deleteResp.getStatus() != R.Status.Success.getCode()) {
+                log.error("删除人员人脸失败: {}", deleteResp.getMessage());
+                return false;
+            }
+            
+            deletedSinceCompaction.addAndGet(deleteResp.getData().getDeleteCnt());
+            
+            deleteOnRemoteShards(expr, personId);
+            
+            faceMetadataCache.removePerson(personId);
+            mirrorDelete(expr, mirroredFaceIds);
+            
+            log.info("人员人脸删除成功: personId={}", personId);
+            return true;
+            
+        } catch (Exception e) {
+            log.error("删除人员人脸异常", e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 批量删除人脸：按 delete.chunk-size 拆分为 face_id in [...] 表达式，每批一次RPC
+     * 某一批失败时记录该批ID并继续删除其余批次
+     * 
+     * @param faceIds 人脸ID列表
+     * @return 删除的行数与失败的ID
+     */
+    public BulkDeleteResult deleteFaces(List<String> faceIds) {
+        validateExprValues(faceIds);
+        
+        long deleted = 0;
+        List<String> failedIds = new ArrayList<>();
+        String error = null;
+        int chunkSize = Math.max(milvusConfig.getDelete().getChunkSize(), 1);
+        
+        Lock lock = shardMoveLock.readLock();
+        lock.lock();
+        try {
+            for (int from = 0; from < faceIds.size(); from += chunkSize) {
+                List<String> chunk = faceIds.subList(from, Math.min(from + chunkSize, faceIds.size()));
+                String expr = buildInExpr(FIELD_FACE_ID, chunk);
+                
+                try {
+                    long primaryDeleted = deleteByExpr(getActiveCollection(), expr);
+                    deletedSinceCompaction.addAndGet(primaryDeleted);
+                    deleted += primaryDeleted;
+                
+                    for (MilvusShard shard : remoteShardsForFaces(chunk)) {
+                        deleted += shard.delete(expr);
+                    }
+                    
+                    for (String faceId : chunk) {
+                        faceMetadataCache.removeFace(faceId);
+                    }
+                    mirrorDelete(expr, chunk);
+                    
+                } catch (Exception e) {
+                    log.error("批量删除人脸失败: 本批 {} 个", chunk.size(), e);
+                    failedIds.addAll(chunk);
+                    if (error == null) {
+                        error = e.getMessage();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        log.info("批量删除人脸完成: 请求 {} 个，删除 {} 行，失败 {} 个", faceIds.size(), deleted, failedIds.size());
+        
+        compactIfNeeded();
+        
+        return BulkDeleteResult.builder()
+                .deleted(deleted)
+                .failedIds(failedIds)
+                .error(error)
+                .build();
+    }
+    
+    /**
+     * 批量删除人员的所有人脸：按 delete.chunk-size 拆分为 person_id in [...] 表达式，
+     * 远端分片只接收哈希归属于该分片的人员；某一批失败时记录该批ID并继续删除其余批次
+     * 
+     * @param personIds 人员ID列表
+     * @return 删除的行数与失败的人员ID
+     */
+    public BulkDeleteResult deletePersons(List<String> personIds) {
+        validateExprValues(personIds);
+        
+        long deleted = 0;
+        List<String> failedIds = new ArrayList<>();
+        String error = null;
+        int chunkSize = Math.max(milvusConfig.getDelete().getChunkSize(), 1);
+        
+        Lock lock = shardMoveLock.readLock();
+        lock.lock();
+        try {
+            for (int from = 0; from < personIds.size(); from += chunkSize) {
+                List<String> chunk = personIds.subList(from, Math.min(from + chunkSize, personIds.size()));
+                String expr = buildInExpr(FIELD_PERSON_ID, chunk);
+                
+                try {
+                    String collectionName = getActiveCollection();
+                    List<String> mirroredFaceIds = faceIdsForMirror(collectionName, expr);
+                
+                    long primaryDeleted = deleteByExpr(collectionName, expr);
+                    deletedSinceCompaction.addAndGet(primaryDeleted);
+                    deleted += primaryDeleted;
+                    
+                    for (MilvusShard shard : remoteShards) {
+                        List<String> owned = new ArrayList<>();
+                        for (String personId : chunk) {
+                            if (rebalancing || shardOf(personId) == shard.getIndex()) {
+                                owned.add(personId);
+                            }
+                        }
+                        if (!owned.isEmpty()) {
+                            deleted += shard.delete(buildInExpr(FIELD_PERSON_ID, owned));
+                        }
+                    }
+                    
+                    for (String personId : chunk) {
+                        faceMetadataCache.removePerson(personId);
+                    }
+                    mirrorDelete(expr, mirroredFaceIds);
+                    
+                } catch (Exception e) {
+                    log.error("批量删除人员人脸失败: 本批 {} 人", chunk.size(), e);
+                    failedIds.addAll(chunk);
+                    if (error == null) {
+                        error = e.getMessage();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        log.info("批量删除人员人脸完成: 请求 {} 人，删除 {} 行，失败 {} 人", personIds.size(), deleted, failedIds.size());
+        
+        compactIfNeeded();
+        
+        return BulkDeleteResult.builder()
+                .deleted(deleted)
+                .failedIds(failedIds)
+                .error(error)
+                .build();
+    }
+    
+    /**
+     * 待删除人脸所在的远端分片（按元数据缓存中的人员归属路由，归属未知或重新分片中时广播）
+     */
+    private Collection<MilvusShard> remoteShardsForFaces(List<String> faceIds) {
+        if (remoteShards.isEmpty() || rebalancing) {
+            return remoteShards;
+        }
+        
+        Set<MilvusShard> shards = new LinkedHashSet<>();
+        for (String faceId : faceIds) {
+            FaceInfo cached = faceMetadataCache.get(faceId);
+            if (cached == null) {
+                return remoteShards;
+            }
+            shards.addAll(routeRemoteShards(cached.getPersonId()));
+        }
+        return shards;
+    }
+    
+    private void validateExprValues(Collection<String> values) {
+        for (String value : values) {
+            quoteExprValue(value);
+        }
+    }
+    
+    /**
+     * 检查主集合与各分片的删除比例，达到阈值时触发压缩
+     * 批量删除后立即提交检查，其余删除由定时任务兜底；检查在压缩线程上以批量优先级执行，已有待执行的检查时不重复提交
+     */
+    @Scheduled(initialDelayString = "${milvus.compaction.check-interval-ms:60000}",
+            fixedDelayString = "${milvus.compaction.check-interval-ms:60000}")
+    public void compactIfNeeded() {
+        if (!milvusConfig.getCompaction().isEnabled() || milvusClient == null) {
+            return;
+        }
+        
+        if (compactionPending.compareAndSet(false, true)) {
+            compactionExecutor.execute(this::checkCompaction);
+        }
+    }
+    
+    private void checkCompaction() {
+        compactionPending.set(false);
+        
+        try {
+            String collectionName = isAliasEnabled() ? resolvePhysicalCollection() : getActiveCollection();
+            compactIfNeeded(milvusClient, collectionName, deletedSinceCompaction, "主集合");
+            
+            for (MilvusShard shard : remoteShards) {
+                shard.compactIfNeeded();
+            }
+        } catch (Exception e) {
+            log.warn("检查压缩失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 自上次压缩以来删除的行数占集合行数的比例达到阈值时提交压缩（压缩由Milvus后台执行）
+     * 
+     * @param deletedCounter 该集合的删除计数，提交成功后扣减
+     * @param label 日志中的集合标识
+     */
+    void compactIfNeeded(MilvusServiceClient client, String collectionName, AtomicLong deletedCounter, String label) {
+        MilvusConfig.Compaction config = milvusConfig.getCompaction();
+        
+        long deleted = deletedCounter.get();
+        if (deleted <= 0 || deleted < config.getMinDeletedRows()) {
+            return;
+        }
+        
+        // 压缩前集合统计的行数仍包含已删除的行
+        long rows = scheduled(Priority.current(), () -> getRowCount(client, collectionName));
+        double ratio = (double) deleted / Math.max(rows, 1);
+        if (ratio < config.getDeletedRatio()) {
+            return;
+        }
+        
+        R<ManualCompactionResponse> compactResp = scheduled(Priority.current(), () -> client.manualCompact(
+                ManualCompactParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build()
+        ));
+        
+        if (compactResp.getStatus() != R.Status.Success.getCode()) {
+            log.warn("{}触发压缩失败: {}", label, compactResp.getMessage());
+            return;
+        }
+        
+        deletedCounter.addAndGet(-deleted);
+        
+        log.info("{}已触发压缩: collection={}, deleted={}, rows={}, compactionId={}",
+                label, collectionName, deleted, rows, compactResp.getData().getCompactionID());
+    }
+    
+    /**
+     * 重置人脸库（删除所有数据）
+     * 
+     * @return 是否成功
+     */
+    public boolean resetDatabase() {
+        try {
+            if (mirrorCollection != null) {
+                log.error("索引重建进行中，拒绝重置人脸库");
+                return false;
+            }
+            
+            MilvusConfig.Collection config = milvusConfig.getCollection();
+            String collectionName = resolvePhysicalCollection();
+            
+            if (isAliasEnabled()) {
+                dropAlias(config.getAlias());
+            }
+            
+            // 删除集合
+            if (!dropCollection(collectionName)) {
+                return false;
+            }
+            
+            // 别名曾切换到重建后的集合时，一并删除保留的原始集合，避免重建别名时挂回旧数据
+            if (isAliasEnabled() && !collectionName.equals(config.getName()) && hasCollection(config.getName())) {
+                dropCollection(config.getName());
+            }
+            
+            faceMetadataCache.clear();
+            deletedSinceCompaction.set(0);
+            
+            // 重新创建集合
+            createCollectionIfNotExists();
+            
+            IndexSpec indexSpec = IndexSpec.fromConfig(config);
+            for (MilvusShard shard : remoteShards) {
+                shard.reset(indexSpec);
+            }
+            
+            loadMetadataCache();
+            
+            log.info("人脸库重置成功");
+            return true;
+            
+        } catch (Exception e) {
+            log.error("重置人脸库异常", e);
+            return false;
+        }
+    }
+    
+    /**
+     * 查询所有人脸
+     * 
+     * @param limit 最大返回数量
+     * @return 人脸信息列表
      */
     public List<FaceInfo> queryAllFaces(int limit) {
         try {
-            String collectionName = milvusConfig.getCollection().getName();
-            
-            List<String> outFields = Arrays.asList(
-                    FIELD_FACE_ID, FIELD_PERSON_ID, FIELD_NAME, 
-                    FIELD_REMARK, FIELD_REGISTER_TIME
-            );
+            String collectionName = getActiveCollection();
+            
+            List<String> outFields = metadataOutFields(collectionName);
+            
+            QueryParam queryParam = QueryParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withExpr("")  // 空表达式表示查询所有
+                    .withOutFields(outFields)
+                    .withLimit((long) limit)
+                    .build();
+            
+            R<QueryResults> queryResp = milvusClient.query(queryParam);
+            
+            if (queryResp.getStatus() != R.Status.Success.getCode()) {
+                log.error("查询人脸失败: {}", queryResp.getMessage());
+                return Collections.emptyList();
+            }
+            
+            List<FaceInfo> faces = parseFaceInfoList(queryResp.getData());
+            faces.addAll(queryRemoteShards(remoteShards, FIELD_FACE_ID + " != \"\"", (long) limit));
+            
+            return faces.size() > limit ? new ArrayList<>(faces.subList(0, limit)) : faces;
+            
+        } catch (Exception e) {
+            log.error("查询所有人脸异常", e);
+            return Collections.emptyList();
+        }
+    }
+    
+    /**
+     * 根据person_id查询人脸
+     * 
+     * @param personId 人员ID
+     * @return 人脸信息列表
+     */
+    public List<FaceInfo> queryFacesByPersonId(String personId) {
+        try {
+            String collectionName = getActiveCollection();
+            
+            List<String> outFields = metadataOutFields(collectionName);
+            
+            String expr = FIELD_PERSON_ID + " == \"" + personId + "\"";
+            
+            QueryParam queryParam = QueryParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withExpr(expr)
+                    .withOutFields(outFields)
+                    .build();
+            
+            R<QueryResults> queryResp = milvusClient.query(queryParam);
+            
+            if (queryResp.getStatus() != R.Status.Success.getCode()) {
+                log.error("查询人脸失败: {}", queryResp.getMessage());
+                return Collections.emptyList();
+            }
+            
+            List<FaceInfo> faces = parseFaceInfoList(queryResp.getData());
+            faces.addAll(queryRemoteShards(routeRemoteShards(personId), expr, null));
+            
+            return faces;
+            
+        } catch (Exception e) {
+            log.error("根据personId查询人脸异常", e);
+            return Collections.emptyList();
+        }
+    }
+    
+    /**
+     * 根据姓名查询人脸
+     * 
+     * @param name 姓名
+     * @return 人脸信息列表
+     */
+    public List<FaceInfo> queryFacesByName(String name) {
+        try {
+            String collectionName = getActiveCollection();
+            
+            List<String> outFields = metadataOutFields(collectionName);
+            
+            String expr = FIELD_NAME + " == \"" + name + "\"";
+            
+            QueryParam queryParam = QueryParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withExpr(expr)
+                    .withOutFields(outFields)
+                    .build();
+            
+            R<QueryResults> queryResp = milvusClient.query(queryParam);
+            
+            if (queryResp.getStatus() != R.Status.Success.getCode()) {
+                log.error("查询人脸失败: {}", queryResp.getMessage());
+                return Collections.emptyList();
+            }
+            
+            List<FaceInfo> faces = parseFaceInfoList(queryResp.getData());
+            faces.addAll(queryRemoteShards(remoteShards, expr, null));
+            
+            return faces;
+            
+        } catch (Exception e) {
+            log.error("根据name查询人脸异常", e);
+            return Collections.emptyList();
+        }
+    }
+    
+    /**
+     * 按face_id游标分页查询人脸（各分片分别取前limit行后按face_id归并）
+     * 
+     * @param personId 人员ID过滤，为空时不过滤
+     * @param name 姓名过滤，为空时不过滤
+     * @param afterFaceId 游标（上一页最后一个face_id），为空时从头开始
+     * @param limit 每页数量
+     * @return 按face_id升序排列的人脸信息列表（不含特征）
+     */
+    public List<FaceInfo> queryFacesPage(String personId, String name, String afterFaceId, int limit) {
+        String collectionName = getActiveCollection();
+        
+        StringBuilder expr = new StringBuilder(FIELD_FACE_ID).append(" > ")
+                .append(quoteExprValue(afterFaceId != null ? afterFaceId : ""));
+        if (personId != null && !personId.isEmpty()) {
+            expr.append(" && ").append(FIELD_PERSON_ID).append(" == ").append(quoteExprValue(personId));
+        }
+        if (name != null && !name.isEmpty()) {
+            expr.append(" && ").append(FIELD_NAME).append(" == ").append(quoteExprValue(name));
+        }
+        
+        QueryParam queryParam = QueryParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withExpr(expr.toString())
+                .withOutFields(metadataOutFields(collectionName))
+                .withLimit((long) limit)
+                .build();
+        
+        R<QueryResults> queryResp = scheduled(Priority.current(), () -> milvusClient.query(queryParam));
+        
+        if (queryResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("分页查询人脸失败: " + queryResp.getMessage());
+        }
+        
+        List<FaceInfo> faces = parseFaceInfoList(queryResp.getData());
+        List<MilvusShard> shards = personId != null && !personId.isEmpty() ? routeRemoteShards(personId) : remoteShards;
+        faces.addAll(queryRemoteShards(shards, expr.toString(), (long) limit));
+        faces.sort(Comparator.comparing(FaceInfo::getFaceId));
+        
+        return faces.size() > limit ? new ArrayList<>(faces.subList(0, limit)) : faces;
+    }
+    
+    /**
+     * 将请求参数转为表达式中的字符串字面量
+     */
+    private String quoteExprValue(String value) {
+        if (value.contains("\"") || value.contains("\\")) {
+            throw new IllegalArgumentException("查询参数包含非法字符: " + value);
+        }
+        return "\"" + value + "\"";
+    }
+    
+    /**
+     * 分片总数（含主集合），未启用分片时为1
+     */
+    public int getShardCount() {
+        return remoteShards.size() + 1;
+    }
+    
+    /**
+     * 按person_id哈希计算人脸所属分片
+     * 
+     * @param personId 人员ID
+     * @return 分片序号，0为主集合
+     */
+    public int shardOf(String personId) {
+        if (remoteShards.isEmpty()) {
+            return 0;
+        }
+        return Math.floorMod(MurmurHash.hash32(personId != null ? personId : ""), getShardCount());
+    }
+    
+    public List<MilvusShard> getRemoteShards() {
+        return Collections.unmodifiableList(remoteShards);
+    }
+    
+    public boolean isRebalancing() {
+        return rebalancing;
+    }
+    
+    public void setRebalancing(boolean rebalancing) {
+        this.rebalancing = rebalancing;
+    }
+    
+    /**
+     * 是否处于索引重建的镜像写入阶段
+     */
+    public boolean isMirroring() {
+        return mirrorCollection != null;
+    }
+    
+    /**
+     * 按人员计算需要访问的远端分片：人员未知或重新分片进行中时为全部分片
+     */
+    private List<MilvusShard> routeRemoteShards(String personId) {
+        if (remoteShards.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (personId == null || rebalancing) {
+            return remoteShards;
+        }
+        
+        int shard = shardOf(personId);
+        return shard == 0 ? Collections.emptyList() : Collections.singletonList(remoteShards.get(shard - 1));
+    }
+    
+    /**
+     * 在远端分片上执行删除（主集合的删除由调用方完成）
+     */
+    private void deleteOnRemoteShards(String expr, String personId) {
+        for (MilvusShard shard : routeRemoteShards(personId)) {
+            shard.delete(expr);
+        }
+    }
+    
+    private List<FaceInfo> queryRemoteShards(List<MilvusShard> shards, String expr, Long limit) {
+        List<FaceInfo> faces = new ArrayList<>();
+        for (MilvusShard shard : shards) {
+            faces.addAll(shard.query(expr, false, limit));
+        }
+        return faces;
+    }
+    
+    /**
+     * 按face_id游标分页查询指定分片（含特征，用于重新分片）
+     */
+    public List<FaceInfo> queryShardAfter(int shard, String afterFaceId, int limit) {
+        if (shard == 0) {
+            return queryFacesAfter(getActiveCollection(), afterFaceId, limit, true);
+        }
+        return scheduled(Priority.current(), () -> remoteShards.get(shard - 1).queryAfter(afterFaceId, limit, true));
+    }
+    
+    /**
+     * 在阻塞删除的情况下执行一步迁移（读取一页并完成写入/删除），保证迁移期间的删除不会被写回
+     */
+    public <T> T withDeletesBlocked(Supplier<T> step) {
+        Lock lock = shardMoveLock.writeLock();
+        lock.lock();
+        try {
+            return step.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 写入指定分片（按主键幂等）
+     */
+    public void upsertToShard(int shard, List<FaceInfo> faces) {
+        if (shard == 0) {
+            upsertFaces(getActiveCollection(), faces);
+        } else {
+            scheduled(Priority.current(), () -> {
+                remoteShards.get(shard - 1).upsert(faces);
+                return null;
+            });
+        }
+    }
+    
+    /**
+     * 从指定分片删除人脸
+     */
+    public void deleteFromShard(int shard, List<String> faceIds) {
+        String expr = buildInExpr(FIELD_FACE_ID, faceIds);
+        if (shard == 0) {
+            deletedSinceCompaction.addAndGet(deleteByExpr(getActiveCollection(), expr));
+        } else {
+            remoteShards.get(shard - 1).delete(expr);
+        }
+    }
+    
+    /**
+     * 当前读写使用的集合名称（配置了别名时为别名）
+     */
+    public String getActiveCollection() {
+        MilvusConfig.Collection config = milvusConfig.getCollection();
+        return isAliasEnabled() ? config.getAlias() : config.getName();
+    }
+    
+    public boolean isAliasEnabled() {
+        String alias = milvusConfig.getCollection().getAlias();
+        return alias != null && !alias.isEmpty();
+    }
+    
+    /**
+     * 判断集合是否包含分组字段
+     */
+    public boolean hasGroupField(String collectionName) {
+        return groupFieldCache.computeIfAbsent(collectionName, name -> {
+            R<DescribeCollectionResponse> describeResp = milvusClient.describeCollection(
+                    DescribeCollectionParam.newBuilder()
+                            .withCollectionName(name)
+                            .build()
+            );
+            
+            if (describeResp.getStatus() != R.Status.Success.getCode()) {
+                throw new RuntimeException("查询集合信息失败: " + describeResp.getMessage());
+            }
+            
+            boolean present = new DescCollResponseWrapper(describeResp.getData()).getFieldByName(FIELD_GROUP_ID) != null;
+            if (!present) {
+                log.warn("集合 {} 不包含分组字段，按分组注册/识别前需在线重建索引以升级集合结构", name);
+            }
+            return present;
+        });
+    }
+    
+    /**
+     * 人员元数据输出字段（集合包含分组字段时一并返回）
+     */
+    private List<String> metadataOutFields(String collectionName) {
+        List<String> outFields = new ArrayList<>(Arrays.asList(
+                FIELD_FACE_ID, FIELD_PERSON_ID, FIELD_NAME,
+                FIELD_REMARK, FIELD_REGISTER_TIME
+        ));
+        if (hasGroupField(collectionName)) {
+            outFields.add(FIELD_GROUP_ID);
+        }
+        return outFields;
+    }
+    
+    /**
+     * 构建分组过滤表达式
+     * 
+     * @param groupId 分组ID，为空时不过滤
+     * @return 过滤表达式，不过滤时返回null
+     */
+    private String buildGroupExpr(String groupId) {
+        if (groupId == null || groupId.isEmpty()) {
+            return null;
+        }
+        
+        if (groupId.contains("\"") || groupId.contains("\\")) {
+            throw new IllegalArgumentException("非法的分组ID: " + groupId);
+        }
+        
+        if (!hasGroupField(getActiveCollection())) {
+            throw new RuntimeException("当前集合不支持分组，请先在线重建索引以升级集合结构");
+        }
+        
+        return FIELD_GROUP_ID + " == \"" + groupId + "\"";
+    }
+    
+    public String getActiveIndexType() {
+        return activeIndexType;
+    }
+    
+    public int getActiveNlist() {
+        return activeNlist;
+    }
+    
+    public Integer getTunedNprobe() {
+        return tunedNprobe;
+    }
+    
+    /**
+     * 设置默认nprobe（未显式指定nprobe的检索使用该值）
+     */
+    public void setTunedNprobe(Integer nprobe) {
+        tunedNprobe = nprobe;
+        log.info("默认nprobe已调整为: {}", nprobe);
+    }
+    
+    /**
+     * 解析当前别名指向的物理集合名称（未启用别名时即集合名称）
+     */
+    public String resolvePhysicalCollection() {
+        R<DescribeCollectionResponse> describeResp = milvusClient.describeCollection(
+                DescribeCollectionParam.newBuilder()
+                        .withCollectionName(getActiveCollection())
+                        .build()
+        );
+        
+        if (describeResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("查询集合信息失败: " + describeResp.getMessage());
+        }
+        
+        return new DescCollResponseWrapper(describeResp.getData()).getCollectionName();
+    }
+    
+    public boolean hasCollection(String collectionName) {
+        return hasCollection(milvusClient, collectionName);
+    }
+    
+    boolean hasCollection(MilvusServiceClient client, String collectionName) {
+        R<Boolean> hasCollectionResp = client.hasCollection(
+                HasCollectionParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build()
+        );
+        
+        if (hasCollectionResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("检查集合失败: " + hasCollectionResp.getMessage());
+        }
+        
+        return hasCollectionResp.getData();
+    }
+    
+    private void loadCollection(String collectionName) {
+        loadCollection(milvusClient, collectionName);
+    }
+    
+    void loadCollection(MilvusServiceClient client, String collectionName) {
+        R<RpcStatus> loadResp = client.loadCollection(
+                LoadCollectionParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build()
+        );
+        
+        if (loadResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("加载集合失败: " + loadResp.getMessage());
+        }
+    }
+    
+    /**
+     * 删除物理集合
+     */
+    public boolean dropCollection(String collectionName) {
+        return dropCollection(milvusClient, collectionName);
+    }
+    
+    boolean dropCollection(MilvusServiceClient client, String collectionName) {
+        R<RpcStatus> dropResp = client.dropCollection(
+                DropCollectionParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build()
+        );
+        
+        if (dropResp.getStatus() != R.Status.Success.getCode()) {
+            log.error("删除集合失败: {}", dropResp.getMessage());
+            return false;
+        }
+        
+        groupFieldCache.clear();
+        log.info("集合已删除: {}", collectionName);
+        return true;
+    }
+    
+    private void createAlias(String alias, String collectionName) {
+        R<RpcStatus> aliasResp = milvusClient.createAlias(
+                CreateAliasParam.newBuilder()
+                        .withAlias(alias)
+                        .withCollectionName(collectionName)
+                        .build()
+        );
+        
+        if (aliasResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("创建别名失败: " + aliasResp.getMessage());
+        }
+        
+        log.info("集合别名已创建: {} -> {}", alias, collectionName);
+    }
+    
+    private void dropAlias(String alias) {
+        R<RpcStatus> aliasResp = milvusClient.dropAlias(
+                DropAliasParam.newBuilder()
+                        .withAlias(alias)
+                        .build()
+        );
+        
+        if (aliasResp.getStatus() != R.Status.Success.getCode()) {
+            log.warn("删除别名失败: {}", aliasResp.getMessage());
+        }
+    }
+    
+    /**
+     * 将别名原子切换到目标集合
+     * 
+     * @param collectionName 目标物理集合
+     */
+    public void switchAlias(String collectionName) {
+        String alias = milvusConfig.getCollection().getAlias();
+        
+        R<RpcStatus> aliasResp = milvusClient.alterAlias(
+                AlterAliasParam.newBuilder()
+                        .withAlias(alias)
+                        .withCollectionName(collectionName)
+                        .build()
+        );
+        
+        if (aliasResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("切换别名失败: " + aliasResp.getMessage());
+        }
+        
+        log.info("集合别名已切换: {} -> {}", alias, collectionName);
+        
+        groupFieldCache.clear();
+        deletedSinceCompaction.set(0);
+        
+        refreshIndexInfo();
+    }
+    
+    /**
+     * 获取集合行数
+     */
+    public long getRowCount(String collectionName) {
+        return getRowCount(milvusClient, collectionName);
+    }
+    
+    long getRowCount(MilvusServiceClient client, String collectionName) {
+        R<GetCollectionStatisticsResponse> statsResp = client.getCollectionStatistics(
+                GetCollectionStatisticsParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build()
+        );
+        
+        if (statsResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("查询集合统计失败: " + statsResp.getMessage());
+        }
+        
+        return new GetCollStatResponseWrapper(statsResp.getData()).getRowCount();
+    }
+    
+    /**
+     * 将集合的增量数据落盘（同步等待）
+     */
+    public void flush(String collectionName) {
+        R<FlushResponse> flushResp = milvusClient.flush(
+                FlushParam.newBuilder()
+                        .withCollectionNames(Collections.singletonList(collectionName))
+                        .withSyncFlush(Boolean.TRUE)
+                        .build()
+        );
+        
+        if (flushResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("集合落盘失败: " + flushResp.getMessage());
+        }
+    }
+    
+    /**
+     * 开始将写入/删除同步镜像到目标集合（索引重建回填期间使用）
+     */
+    public void startMirroring(String collectionName) {
+        mirroredDeletedFaceIds.clear();
+        mirrorDirty = false;
+        mirrorCollection = collectionName;
+        log.info("开始镜像写入: {}", collectionName);
+    }
+    
+    /**
+     * 镜像期间是否有写入未能同步到目标集合
+     */
+    public boolean isMirrorDirty() {
+        return mirrorDirty;
+    }
+    
+    /**
+     * 停止镜像写入，并返回镜像期间删除的人脸对应的删除表达式（回填完成后需在目标集合重放）
+     */
+    public List<String> stopMirroring() {
+        mirrorCollection = null;
+        return drainMirroredDeleteExprs();
+    }
+    
+    /**
+     * 取出并清空镜像期间删除的face_id，按 delete.chunk-size 组装为 face_id in [...] 表达式
+     * 按face_id而非原删除条件重放：回填期间删除后又重新注册的人员，其新人脸不会被误删
+     */
+    public List<String> drainMirroredDeleteExprs() {
+        List<String> faceIds = new ArrayList<>(mirroredDeletedFaceIds);
+        mirroredDeletedFaceIds.removeAll(faceIds);
+        
+        List<String> exprs = new ArrayList<>();
+        int chunkSize = Math.max(milvusConfig.getDelete().getChunkSize(), 1);
+        for (int from = 0; from < faceIds.size(); from += chunkSize) {
+            exprs.add(buildInExpr(FIELD_FACE_ID, faceIds.subList(from, Math.min(from + chunkSize, faceIds.size()))));
+        }
+        return exprs;
+    }
+    
+    /**
+     * 在目标集合上执行删除表达式
+     * 
+     * @return 删除的行数
+     */
+    public long deleteByExpr(String collectionName, String expr) {
+        R<MutationResult> deleteResp = milvusClient.delete(
+                DeleteParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .withExpr(expr)
+                        .build()
+        );
+        
+        if (deleteResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("删除失败: " + deleteResp.getMessage());
+        }
+        
+        return deleteResp.getData().getDeleteCnt();
+    }
+    
+    /**
+     * 索引重建期间，按条件删除前查出主集合中将被删除的face_id（用于回填后重放）；未在重建时返回空列表
+     */
+    private List<String> faceIdsForMirror(String collectionName, String expr) {
+        if (mirrorCollection == null) {
+            return Collections.emptyList();
+        }
+        
+        R<QueryResults> queryResp = milvusClient.query(QueryParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withExpr(expr)
+                .withOutFields(Collections.singletonList(FIELD_FACE_ID))
+                .withConsistencyLevel(ConsistencyLevelEnum.STRONG)
+                .build());
+        
+        if (queryResp.getStatus() != R.Status.Success.getCode()) {
+            mirrorDirty = true;
+            log.error("查询待镜像删除的人脸失败，本次索引重建将不会切换: {}", queryResp.getMessage());
+            return Collections.emptyList();
+        }
+        
+        List<String> faceIds = new ArrayList<>();
+        for (QueryResultsWrapper.RowRecord record : new QueryResultsWrapper(queryResp.getData()).getRowRecords()) {
+            faceIds.add((String) record.get(FIELD_FACE_ID));
+        }
+        return faceIds;
+    }
+    
+    /**
+     * 索引重建期间将删除同步到目标集合，并记录被删除的face_id以便回填后重放
+     */
+    private void mirrorDelete(String expr, Collection<String> faceIds) {
+        String mirror = mirrorCollection;
+        if (mirror == null) {
+            return;
+        }
+        
+        mirroredDeletedFaceIds.addAll(faceIds);
+        try {
+            deleteByExpr(mirror, expr);
+        } catch (Exception e) {
+            log.warn("镜像删除失败，将在回填后重放: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 按face_id游标分页查询人脸
+     * 返回 face_id > afterFaceId 的至多limit条记录，按face_id升序排列
+     * 
+     * @param afterFaceId 游标 (上一页最后一条的faceId)，为空时从头开始
+     * @param limit 每页数量
+     * @return 人脸信息列表
+     * @throws RuntimeException 查询失败时抛出，避免调用方把失败误判为已到末页
+     */
+    public List<FaceInfo> queryFacesAfter(String afterFaceId, int limit) {
+        return queryFacesAfter(getActiveCollection(), afterFaceId, limit, false);
+    }
+        
+    /**
+     * 按face_id游标分页查询指定集合中的人脸
+     * 强一致读取：索引重建回填、导出、重新分片按游标扫描，默认的Bounded一致性可能漏掉刚写入的行
+     * 
+     * @param collectionName 集合名称
+     * @param afterFaceId 游标，为空时从头开始
+     * @param limit 每页数量
+     * @param withFeature 是否返回特征向量
+     * @return 按face_id升序排列的人脸信息列表
+     */
+    public List<FaceInfo> queryFacesAfter(String collectionName, String afterFaceId, int limit, boolean withFeature) {
+        String expr = FIELD_FACE_ID + " > \"" + (afterFaceId != null ? afterFaceId : "") + "\"";
+        
+        List<String> outFields = new ArrayList<>(metadataOutFields(collectionName));
+        if (withFeature) {
+            outFields.add(FIELD_FEATURE);
+        }
+        
+        QueryParam queryParam = QueryParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withExpr(expr)
+                .withOutFields(outFields)
+                .withLimit((long) limit)
+                .withConsistencyLevel(ConsistencyLevelEnum.STRONG)
+                .build();
+        
+        R<QueryResults> queryResp = scheduled(Priority.current(), () -> milvusClient.query(queryParam));
+        
+        if (queryResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("分页查询人脸失败: " + queryResp.getMessage());
+        }
+        
+        List<FaceInfo> faceInfoList = parseFaceInfoList(queryResp.getData());
+        faceInfoList.sort(Comparator.comparing(FaceInfo::getFaceId));
+        
+        return faceInfoList;
+    }
+    
+    /**
+     * 根据face_id批量查询人脸元数据（不含特征）
+     * 
+     * @param faceIds 人脸ID列表
+     * @return 人脸信息列表
+     */
+    public List<FaceInfo> queryFacesByIds(List<String> faceIds) {
+        try {
+            String collectionName = getActiveCollection();
             
             QueryParam queryParam = QueryParam.newBuilder()
                     .withCollectionName(collectionName)
-                    .withExpr("")  // 空表达式表示查询所有
-                    .withOutFields(outFields)
-                    .withLimit((long) limit)
+                    .withExpr(buildInExpr(FIELD_FACE_ID, faceIds))
+                    .withOutFields(metadataOutFields(collectionName))
                     .build();
             
             R<QueryResults> queryResp = milvusClient.query(queryParam);
@@ -478,94 +2289,147 @@ public class MilvusService {
                 return Collections.emptyList();
             }
             
-            return parseFaceInfoList(queryResp.getData());
+            List<FaceInfo> faces = parseFaceInfoList(queryResp.getData());
+            if (!remoteShards.isEmpty() && faces.size() < faceIds.size()) {
+                faces.addAll(queryRemoteShards(remoteShards, buildInExpr(FIELD_FACE_ID, faceIds), null));
+            }
+            
+            return faces;
             
         } catch (Exception e) {
-            log.error("查询所有人脸异常", e);
+            log.error("根据faceId查询人脸异常", e);
             return Collections.emptyList();
         }
     }
     
     /**
-     * 根据person_id查询人脸
-     * 
-     * @param personId 人员ID
-     * @return 人脸信息列表
+     * 全量加载人脸元数据缓存（按face_id游标分页）
+     * 加载失败时缓存保持未就绪，检索仍由Milvus返回输出字段
      */
-    public List<FaceInfo> queryFacesByPersonId(String personId) {
+    private void loadMetadataCache() {
+        MilvusConfig.MetadataCache config = milvusConfig.getMetadataCache();
+        
+        if (!config.isEnabled()) {
+            return;
+        }
+        
         try {
-            String collectionName = milvusConfig.getCollection().getName();
-            
-            List<String> outFields = Arrays.asList(
-                    FIELD_FACE_ID, FIELD_PERSON_ID, FIELD_NAME, 
-                    FIELD_REMARK, FIELD_REGISTER_TIME
-            );
-            
-            String expr = FIELD_PERSON_ID + " == \"" + personId + "\"";
-            
-            QueryParam queryParam = QueryParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .withExpr(expr)
-                    .withOutFields(outFields)
-                    .build();
+            faceMetadataCache.clear();
             
-            R<QueryResults> queryResp = milvusClient.query(queryParam);
+            String cursor = "";
+            while (true) {
+                List<FaceInfo> page = queryFacesAfter(cursor, config.getLoadBatchSize());
+                
+                for (FaceInfo faceInfo : page) {
+                    faceMetadataCache.put(faceInfo);
+                }
+                
+                if (page.size() < config.getLoadBatchSize()) {
+                    break;
+                }
+                cursor = page.get(page.size() - 1).getFaceId();
+            }
             
-            if (queryResp.getStatus() != R.Status.Success.getCode()) {
-                log.error("查询人脸失败: {}", queryResp.getMessage());
-                return Collections.emptyList();
+            for (MilvusShard shard : remoteShards) {
+                String shardCursor = "";
+                while (true) {
+                    List<FaceInfo> page = shard.queryAfter(shardCursor, config.getLoadBatchSize(), false);
+                    
+                    for (FaceInfo faceInfo : page) {
+                        faceMetadataCache.put(faceInfo);
+                    }
+                    
+                    if (page.size() < config.getLoadBatchSize()) {
+                        break;
+                    }
+                    shardCursor = page.get(page.size() - 1).getFaceId();
+                }
             }
             
-            return parseFaceInfoList(queryResp.getData());
+            faceMetadataCache.markReady();
             
         } catch (Exception e) {
-            log.error("根据personId查询人脸异常", e);
-            return Collections.emptyList();
+            log.error("人脸元数据缓存加载失败，检索将回退为由Milvus返回输出字段", e);
+            faceMetadataCache.clear();
         }
     }
     
     /**
-     * 根据姓名查询人脸
+     * 根据face_id批量查询特征向量（主键查询，不走ANN检索）
      * 
-     * @param name 姓名
-     * @return 人脸信息列表
+     * @param faceIds 人脸ID列表
+     * @return faceId -> 特征向量，不存在的ID不会出现在结果中
      */
-    public List<FaceInfo> queryFacesByName(String name) {
+    public Map<String, float[]> queryFeaturesByFaceIds(List<String> faceIds) {
+        if (faceIds == null || faceIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        
+        validateExprValues(faceIds);
+        
         try {
-            String collectionName = milvusConfig.getCollection().getName();
-            
-            List<String> outFields = Arrays.asList(
-                    FIELD_FACE_ID, FIELD_PERSON_ID, FIELD_NAME, 
-                    FIELD_REMARK, FIELD_REGISTER_TIME
-            );
-            
-            String expr = FIELD_NAME + " == \"" + name + "\"";
+            String collectionName = getActiveCollection();
             
             QueryParam queryParam = QueryParam.newBuilder()
                     .withCollectionName(collectionName)
-                    .withExpr(expr)
-                    .withOutFields(outFields)
+                    .withExpr(buildInExpr(FIELD_FACE_ID, faceIds))
+                    .withOutFields(Arrays.asList(FIELD_FACE_ID, FIELD_FEATURE))
                     .build();
             
             R<QueryResults> queryResp = milvusClient.query(queryParam);
             
             if (queryResp.getStatus() != R.Status.Success.getCode()) {
-                log.error("查询人脸失败: {}", queryResp.getMessage());
-                return Collections.emptyList();
+                log.error("查询人脸特征失败: {}", queryResp.getMessage());
+                return Collections.emptyMap();
+            }
+            
+            Map<String, float[]> features = new HashMap<>();
+            QueryResultsWrapper wrapper = new QueryResultsWrapper(queryResp.getData());
+            
+            for (QueryResultsWrapper.RowRecord record : wrapper.getRowRecords()) {
+                features.put((String) record.get(FIELD_FACE_ID), toFloatArray(record.get(FIELD_FEATURE)));
             }
             
-            return parseFaceInfoList(queryResp.getData());
+            if (!remoteShards.isEmpty() && features.size() < faceIds.size()) {
+                List<String> missing = new ArrayList<>(faceIds);
+                missing.removeAll(features.keySet());
+                
+                String expr = buildInExpr(FIELD_FACE_ID, missing);
+                for (MilvusShard shard : remoteShards) {
+                    for (FaceInfo face : shard.query(expr, true, null)) {
+                        features.put(face.getFaceId(), face.getFeature());
+                    }
+                }
+            }
             
+            return features;
+        
         } catch (Exception e) {
-            log.error("根据name查询人脸异常", e);
-            return Collections.emptyList();
+            log.error("查询人脸特征异常", e);
+            return Collections.emptyMap();
+        }
+    }
+    
+    /**
+     * 构建 field in ["a", "b"] 表达式
+     */
+    String buildInExpr(String field, Collection<String> values) {
+        StringBuilder expr = new StringBuilder(field).append(" in [");
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                expr.append(", ");
+            }
+            expr.append('"').append(value).append('"');
+            first = false;
         }
+        return expr.append(']').toString();
     }
     
     /**
      * 解析查询结果为FaceInfo列表
      */
-    private List<FaceInfo> parseFaceInfoList(QueryResults queryResults) {
+    List<FaceInfo> parseFaceInfoList(QueryResults queryResults) {
         List<FaceInfo> faceInfoList = new ArrayList<>();
         
         QueryResultsWrapper wrapper = new QueryResultsWrapper(queryResults);
@@ -579,6 +2443,9 @@ public class MilvusService {
                     .name((String) record.get(FIELD_NAME))
                     .remark((String) record.get(FIELD_REMARK))
                     .registerTime((Long) record.get(FIELD_REGISTER_TIME))
+                    .groupId((String) record.getFieldValues().getOrDefault(FIELD_GROUP_ID, ""))
+                    .feature(record.getFieldValues().containsKey(FIELD_FEATURE)
+                            ? toFloatArray(record.get(FIELD_FEATURE)) : null)
                     .build();
             
             faceInfoList.add(faceInfo);
@@ -590,7 +2457,7 @@ public class MilvusService {
     /**
      * float[] 转 List<Float>
      */
-    private List<Float> toFloatList(float[] array) {
+    List<Float> toFloatList(float[] array) {
         List<Float> list = new ArrayList<>(array.length);
         for (float value : array) {
             list.add(value);
@@ -598,10 +2465,34 @@ public class MilvusService {
         return list;
     }
     
+    /**
+     * Milvus返回的向量字段 (List<Float>) 转 float[]
+     */
+    @SuppressWarnings("unchecked")
+    private float[] toFloatArray(Object vector) {
+        List<Float> list = (List<Float>) vector;
+        float[] array = new float[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+    
     @PreDestroy
     public void cleanup() {
-        if (milvusClient != null) {
-            milvusClient.close();
+        if (shardExecutor != null) {
+            shardExecutor.shutdownNow();
+        }
+        callbackExecutor.shutdownNow();
+        compactionExecutor.shutdownNow();
+        for (MilvusShard shard : remoteShards) {
+            shard.close();
+        }
+        
+        if (!clientPool.isEmpty()) {
+            for (MilvusServiceClient client : clientPool) {
+                client.close();
+            }
             log.info("Milvus连接已关闭");
         }
     }
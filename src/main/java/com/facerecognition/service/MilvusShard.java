@@ -0,0 +1,280 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.FaceInfo;
+import com.facerecognition.model.IndexSpec;
+import com.facerecognition.model.SearchOptions;
+import io.milvus.common.clientenum.ConsistencyLevelEnum;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.milvus.client.MilvusClient;
+import io.milvus.client.MilvusServiceClient;
+import io.milvus.grpc.DescribeCollectionResponse;
+import io.milvus.grpc.MutationResult;
+import io.milvus.grpc.QueryResults;
+import io.milvus.grpc.SearchResults;
+import io.milvus.param.ConnectParam;
+import io.milvus.param.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.collection.DescribeCollectionParam;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.QueryParam;
+import io.milvus.param.dml.SearchParam;
+import io.milvus.param.dml.UpsertParam;
+import io.milvus.response.DescCollResponseWrapper;
+import io.milvus.response.SearchResultsWrapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 远端人脸分片：某个Milvus实例上的一个人脸集合
+ * 0号分片即MilvusService自身管理的主集合，其余分片由本类封装，schema与主集合一致
+ */
+@Slf4j
+public class MilvusShard {
+    
+    private final int index;
+    private final String address;
+    private final String collectionName;
+    private final MilvusService milvusService;
+    private final MilvusServiceClient client;
+    private final MilvusClient searchClient;
+    private final MilvusClient writeClient;
+    private volatile boolean groupField;
+    private final AtomicLong deletedSinceCompaction = new AtomicLong();
+    
+    /**
+     * @param searchTimeoutMs 检索超时 (毫秒)，与主集合客户端池一致，0表示不限
+     * @param writeTimeoutMs 写入超时 (毫秒)，0表示不限
+     */
+    MilvusShard(int index, String host, int port, String username, String password, String collectionName,
+                IndexSpec indexSpec, long searchTimeoutMs, long writeTimeoutMs, MilvusService milvusService) {
+        this.index = index;
+        this.address = host + ":" + port;
+        this.collectionName = collectionName;
+        this.milvusService = milvusService;
+        
+        ConnectParam connectParam = ConnectParam.newBuilder()
+                .withHost(host)
+                .withPort(port)
+                .withAuthorization(username, password)
+                .build();
+        
+        this.client = new MilvusServiceClient(connectParam);
+        this.searchClient = client.withTimeout(searchTimeoutMs, TimeUnit.MILLISECONDS);
+        this.writeClient = client.withTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS);
+        
+        if (milvusService.hasCollection(client, collectionName)) {
+            milvusService.loadCollection(client, collectionName);
+        } else {
+            milvusService.createPhysicalCollection(client, collectionName, indexSpec);
+        }
+        
+        this.groupField = describeGroupField();
+        
+        log.info("人脸分片已就绪: shard={}, address={}, collection={}", index, address, collectionName);
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public String getAddress() {
+        return address;
+    }
+    
+    public String getCollectionName() {
+        return collectionName;
+    }
+    
+    private boolean describeGroupField() {
+        R<DescribeCollectionResponse> describeResp = client.describeCollection(
+                DescribeCollectionParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build()
+        );
+        
+        if (describeResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("查询分片集合信息失败: " + describeResp.getMessage());
+        }
+        
+        return new DescCollResponseWrapper(describeResp.getData())
+                .getFieldByName(MilvusService.FIELD_GROUP_ID) != null;
+    }
+    
+    /**
+     * 写入或覆盖人脸（按主键幂等）
+     */
+    public void upsert(List<FaceInfo> faces) {
+        R<MutationResult> upsertResp = writeClient.upsert(UpsertParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withFields(milvusService.buildInsertFields(faces, groupField))
+                .build());
+        
+        if (upsertResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("分片" + index + "写入人脸失败: " + upsertResp.getMessage());
+        }
+    }
+    
+    /**
+     * 异步向量检索（人员信息由Milvus输出字段返回），不占用调用线程等待响应
+     * 
+     * @param groupExpr 分组过滤表达式，可为null
+     * @return 检索结果，失败或超时时以异常完成
+     */
+    public CompletableFuture<List<MilvusService.SearchResult>> searchAsync(float[] feature, SearchOptions options,
+                                                                         String groupExpr) {
+        if (groupExpr != null && !groupField) {
+            return CompletableFuture.failedFuture(new RuntimeException("分片" + index + "不支持分组检索"));
+        }
+        
+        SearchParam.Builder searchParamBuilder = SearchParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withMetricType(MetricType.valueOf(milvusService.getMetricType()))
+                .withOutFields(outFields(false))
+                .withTopK(options.getTopK())
+                .withVectors(Collections.singletonList(milvusService.toFloatList(feature)))
+                .withVectorFieldName(MilvusService.FIELD_FEATURE)
+                .withParams(milvusService.buildSearchParams(options));
+        
+        if (options.getConsistencyLevel() != null) {
+            searchParamBuilder.withConsistencyLevel(options.getConsistencyLevel());
+        }
+        
+        if (groupExpr != null) {
+            searchParamBuilder.withExpr(groupExpr);
+        }
+        
+        CompletableFuture<List<MilvusService.SearchResult>> result = new CompletableFuture<>();
+        Futures.addCallback(searchClient.searchAsync(searchParamBuilder.build()), new FutureCallback<R<SearchResults>>() {
+            @Override
+            public void onSuccess(R<SearchResults> searchResp) {
+                if (searchResp.getStatus() != R.Status.Success.getCode()) {
+                    result.completeExceptionally(new RuntimeException("分片" + index + "检索失败: " + searchResp.getMessage()));
+                    return;
+                }
+        
+                try {
+                    result.complete(milvusService.parseSearchResults(
+                            new SearchResultsWrapper(searchResp.getData().getResults()), 0));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(new RuntimeException("分片" + index + "检索失败: " + t.getMessage(), t));
+            }
+        }, MoreExecutors.directExecutor());
+        
+        return result;
+    }
+    
+    /**
+     * 按表达式查询人脸
+     * 
+     * @param expr 过滤表达式
+     * @param withFeature 是否返回特征向量
+     * @param limit 最大返回数量，为null时不限
+     */
+    public List<FaceInfo> query(String expr, boolean withFeature, Long limit) {
+        return query(expr, withFeature, limit, null);
+    }
+    
+    /**
+     * @param consistencyLevel 一致性级别，为null时使用集合默认值
+     */
+    private List<FaceInfo> query(String expr, boolean withFeature, Long limit, ConsistencyLevelEnum consistencyLevel) {
+        QueryParam.Builder queryParamBuilder = QueryParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withExpr(expr)
+                .withOutFields(outFields(withFeature));
+        
+        if (limit != null) {
+            queryParamBuilder.withLimit(limit);
+        }
+        
+        if (consistencyLevel != null) {
+            queryParamBuilder.withConsistencyLevel(consistencyLevel);
+        }
+        
+        R<QueryResults> queryResp = client.query(queryParamBuilder.build());
+        
+        if (queryResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("分片" + index + "查询人脸失败: " + queryResp.getMessage());
+        }
+        
+        return milvusService.parseFaceInfoList(queryResp.getData());
+    }
+    
+    /**
+     * 按face_id游标分页查询（强一致读取，避免扫描漏掉刚写入的行）
+     */
+    public List<FaceInfo> queryAfter(String afterFaceId, int limit, boolean withFeature) {
+        String expr = MilvusService.FIELD_FACE_ID + " > \"" + (afterFaceId != null ? afterFaceId : "") + "\"";
+        
+        List<FaceInfo> faces = query(expr, withFeature, (long) limit, ConsistencyLevelEnum.STRONG);
+        faces.sort(Comparator.comparing(FaceInfo::getFaceId));
+        return faces;
+    }
+    
+    /**
+     * 按表达式删除
+     * 
+     * @return 删除的行数
+     */
+    public long delete(String expr) {
+        R<MutationResult> deleteResp = client.delete(DeleteParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withExpr(expr)
+                .build());
+        
+        if (deleteResp.getStatus() != R.Status.Success.getCode()) {
+            throw new RuntimeException("分片" + index + "删除失败: " + deleteResp.getMessage());
+        }
+        
+        long deleted = deleteResp.getData().getDeleteCnt();
+        deletedSinceCompaction.addAndGet(deleted);
+        return deleted;
+    }
+    
+    /**
+     * 删除比例达到阈值时触发压缩
+     */
+    public void compactIfNeeded() {
+        milvusService.compactIfNeeded(client, collectionName, deletedSinceCompaction, "分片" + index);
+    }
+    
+    /**
+     * 清空分片（删除并重建集合）
+     */
+    public void reset(IndexSpec indexSpec) {
+        milvusService.dropCollection(client, collectionName);
+        milvusService.createPhysicalCollection(client, collectionName, indexSpec);
+        groupField = describeGroupField();
+        deletedSinceCompaction.set(0);
+    }
+    
+    private List<String> outFields(boolean withFeature) {
+        List<String> outFields = new ArrayList<>(Arrays.asList(
+                MilvusService.FIELD_FACE_ID, MilvusService.FIELD_PERSON_ID, MilvusService.FIELD_NAME,
+                MilvusService.FIELD_REMARK, MilvusService.FIELD_REGISTER_TIME
+        ));
+        if (groupField) {
+            outFields.add(MilvusService.FIELD_GROUP_ID);
+        }
+        if (withFeature) {
+            outFields.add(MilvusService.FIELD_FEATURE);
+        }
+        return outFields;
+    }
+    
+    public void close() {
+        client.close();
+    }
+}
@@ -0,0 +1,187 @@
+package com.facerecognition.service;
+
+import com.facerecognition.dto.PriorityLaneStats;
+import com.facerecognition.exception.DeadlineExceededException;
+import com.facerecognition.exception.ServiceOverloadedException;
+import com.facerecognition.util.Deadline;
+import com.facerecognition.util.Priority;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按优先级分配的许可
+ * 每个优先级一条等待队列（队内先到先得），许可空出时严格按 INTERACTIVE > STANDARD > BULK 分配；
+ * BULK 同时占用的许可数另有上限，批量任务再多也为高优先级请求留出许可
+ */
+public class PriorityScheduler {
+    
+    private final String resource;
+    private final String action;
+    private final int permits;
+    private final int bulkPermits;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<Priority, ArrayDeque<Thread>> waiters = new EnumMap<>(Priority.class);
+    private final int[] inUse = new int[Priority.values().length];
+    private int available;
+    
+    /**
+     * @param resource 资源名称 (用于错误信息，如"推理资源")
+     * @param action 操作名称 (用于错误信息，如"推理")
+     * @param permits 许可总数
+     * @param bulkShare BULK 最多可占用的许可比例 (0-1]，至少1个
+     */
+    PriorityScheduler(String resource, String action, int permits, float bulkShare) {
+        this.resource = resource;
+        this.action = action;
+        this.permits = Math.max(permits, 1);
+        this.bulkPermits = Math.max(1, Math.min(this.permits, (int) Math.floor(this.permits * bulkShare)));
+        this.available = this.permits;
+        
+        for (Priority priority : Priority.values()) {
+            waiters.put(priority, new ArrayDeque<>());
+        }
+    }
+    
+    public int getBulkPermits() {
+        return bulkPermits;
+    }
+    
+    /**
+     * 获取一个许可
+     * 等待时间不超过 timeoutMs 与当前请求剩余截止时间；BULK 且无截止时间时一直等待 (批量任务自身承担背压)
+     * 
+     * @throws ServiceOverloadedException 等待超时
+     * @throws DeadlineExceededException 等待期间请求超过截止时间
+     */
+    public void acquire(Priority priority, long timeoutMs) {
+        Deadline deadline = Deadline.current();
+        boolean unbounded = priority == Priority.BULK && deadline == null;
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        if (deadline != null) {
+            deadline.check(action);
+            waitNanos = Math.min(waitNanos, deadline.remainingNanos());
+        }
+        
+        Thread self = Thread.currentThread();
+        boolean acquired = false;
+        
+        lock.lock();
+        try {
+            ArrayDeque<Thread> queue = waiters.get(priority);
+            queue.addLast(self);
+            try {
+                while (!(acquired = tryTake(priority, self))) {
+                    if (unbounded) {
+                        changed.await();
+                    } else if (waitNanos > 0) {
+                        waitNanos = changed.awaitNanos(waitNanos);
+                    } else {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("等待" + resource + "被中断");
+            } finally {
+                queue.remove(self);
+                // 队首或可用许可数已变化，唤醒其他等待者重新判断
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        if (!acquired) {
+            if (deadline != null && deadline.isExpired()) {
+                throw new DeadlineExceededException("请求已超过截止时间，放弃" + action);
+            }
+            throw new ServiceOverloadedException(resource + "繁忙，请稍后重试");
+        }
+    }
+    
+    /**
+     * 归还许可 (与 acquire 使用相同的优先级)
+     */
+    public void release(Priority priority) {
+        lock.lock();
+        try {
+            available++;
+            inUse[priority.ordinal()]--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private boolean tryTake(Priority priority, Thread self) {
+        if (available == 0 || waiters.get(priority).peekFirst() != self) {
+            return false;
+        }
+        
+        for (Priority higher : Priority.values()) {
+            if (higher == priority) {
+                break;
+            }
+            if (!waiters.get(higher).isEmpty()) {
+                return false;
+            }
+        }
+        
+        if (priority == Priority.BULK && inUse[priority.ordinal()] >= bulkPermits) {
+            return false;
+        }
+        
+        available--;
+        inUse[priority.ordinal()]++;
+        return true;
+    }
+    
+    /**
+     * 各优先级占用与等待情况
+     */
+    public PriorityLaneStats getStats() {
+        lock.lock();
+        try {
+            Map<String, Integer> used = new LinkedHashMap<>();
+            Map<String, Integer> waiting = new LinkedHashMap<>();
+            for (Priority priority : Priority.values()) {
+                used.put(priority.name(), inUse[priority.ordinal()]);
+                waiting.put(priority.name(), waiters.get(priority).size());
+            }
+            
+            return PriorityLaneStats.builder()
+                    .resource(resource)
+                    .permits(permits)
+                    .bulkPermits(bulkPermits)
+                    .inUse(used)
+                    .waiting(waiting)
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 等待许可的线程总数
+     */
+    public int getQueueLength() {
+        lock.lock();
+        try {
+            int total = 0;
+            for (ArrayDeque<Thread> queue : waiters.values()) {
+                total += queue.size();
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.facerecognition.service;
+
+import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.dto.RecallStats;
+import com.facerecognition.model.SearchOptions;
+import com.facerecognition.util.Priority;
+import io.milvus.common.clientenum.ConsistencyLevelEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在线召回率监控
+ * 按比例抽样线上查询，在后台低优先级线程中以精确检索（IVF: nprobe=nlist，HNSW: 大ef）复查，
+ * 与线上实际返回的近似检索Top-K对比，统计Recall@K、Top-1一致率与排名偏移
+ */
+@Slf4j
+@Service
+public class RecallMonitor {
+    
+    @Autowired
+    private MilvusConfig milvusConfig;
+    
+    @Autowired
+    private MilvusService milvusService;
+    
+    private ThreadPoolExecutor executor;
+    
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private final AtomicLong failedSamples = new AtomicLong();
+    private final AtomicLong expectedHits = new AtomicLong();
+    private final AtomicLong matchedHits = new AtomicLong();
+    private final AtomicLong top1Matches = new AtomicLong();
+    private final AtomicLong displacementSum = new AtomicLong();
+    private final AtomicLong displacementCount = new AtomicLong();
+    private final AtomicLong maxDisplacement = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        MilvusConfig.RecallMonitor config = milvusConfig.getRecallMonitor();
+        
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(config.getQueueSize(), 1)),
+                r -> {
+                    Thread thread = new Thread(Priority.bind(Priority.BULK, r), "recall-monitor");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                (r, e) -> droppedSamples.incrementAndGet());
+        
+        if (config.isEnabled()) {
+            log.info("在线召回率监控已启用: sampleRate={}", config.getSampleRate());
+        }
+    }
+    
+    /**
+     * 提交一次线上查询用于抽样复查（未被抽中或队列已满时直接返回）
+     * 
+     * @param feature 查询特征向量
+     * @param topK 线上请求的Top-K
+     * @param minSimilarity 线上使用的最低相似度 (范围检索时)，为null表示不限
+     * @param groupId 线上检索的分组ID
+     * @param served 线上实际返回的结果
+     */
+    public void offer(float[] feature, int topK, Float minSimilarity, String groupId,
+                      List<MilvusService.SearchResult> served) {
+        MilvusConfig.RecallMonitor config = milvusConfig.getRecallMonitor();
+        if (!config.isEnabled() || ThreadLocalRandom.current().nextDouble() >= config.getSampleRate()) {
+            return;
+        }
+        
+        float[] query = feature.clone();
+        List<String> servedIds = new ArrayList<>(served.size());
+        for (MilvusService.SearchResult result : served) {
+            servedIds.add(result.faceInfo.getFaceId());
+        }
+        
+        executor.execute(() -> evaluate(query, topK, minSimilarity, groupId, servedIds));
+    }
+    
+    private void evaluate(float[] feature, int topK, Float minSimilarity, String groupId, List<String> servedIds) {
+        try {
+            SearchOptions options = SearchOptions.builder()
+                    .topK(topK)
+                    .consistencyLevel(ConsistencyLevelEnum.STRONG)
+                    .minSimilarity(minSimilarity)
+                    .groupId(groupId)
+                    .build();
+            
+            if (milvusService.getActiveIndexType().startsWith("HNSW")) {
+                options.setEf(Math.max(milvusConfig.getRecallMonitor().getExactEf(), topK));
+            } else {
+                options.setNprobe(milvusService.getActiveNlist());
+            }
+            
+            List<MilvusService.SearchResult> exact = milvusService.searchSimilarFaces(feature, options);
+            
+            Map<String, Integer> servedRanks = new HashMap<>();
+            for (int i = 0; i < servedIds.size() && i < topK; i++) {
+                servedRanks.put(servedIds.get(i), i);
+            }
+            
+            int matched = 0;
+            for (int i = 0; i < exact.size(); i++) {
+                Integer servedRank = servedRanks.get(exact.get(i).faceInfo.getFaceId());
+                if (servedRank == null) {
+                    continue;
+                }
+                
+                matched++;
+                long displacement = Math.abs(servedRank - i);
+                displacementSum.addAndGet(displacement);
+                displacementCount.incrementAndGet();
+                maxDisplacement.accumulateAndGet(displacement, Math::max);
+            }
+            
+            expectedHits.addAndGet(exact.size());
+            matchedHits.addAndGet(matched);
+            
+            boolean top1Match = exact.isEmpty()
+                    ? servedIds.isEmpty()
+                    : !servedIds.isEmpty() && servedIds.get(0).equals(exact.get(0).faceInfo.getFaceId());
+            if (top1Match) {
+                top1Matches.incrementAndGet();
+            }
+            
+            long count = samples.incrementAndGet();
+            
+            log.debug("召回率抽样: expected={}, matched={}, top1Match={}", exact.size(), matched, top1Match);
+            
+            if (count % 100 == 0) {
+                RecallStats stats = getStats();
+                log.info("在线召回率: samples={}, recall@K={}, top1={}, meanRankDisplacement={}",
+                        stats.getSamples(), stats.getRecallAtK(), stats.getTop1Agreement(),
+                        stats.getMeanRankDisplacement());
+            }
+            
+        } catch (Exception e) {
+            failedSamples.incrementAndGet();
+            log.warn("召回率复查失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取召回率统计
+     */
+    public RecallStats getStats() {
+        long count = samples.get();
+        long expected = expectedHits.get();
+        long displaced = displacementCount.get();
+        
+        return RecallStats.builder()
+                .samples(count)
+                .droppedSamples(droppedSamples.get())
+                .failedSamples(failedSamples.get())
+                .recallAtK(expected == 0 ? 1.0 : (double) matchedHits.get() / expected)
+                .top1Agreement(count == 0 ? 1.0 : (double) top1Matches.get() / count)
+                .meanRankDisplacement(displaced == 0 ? 0.0 : (double) displacementSum.get() / displaced)
+                .maxRankDisplacement(maxDisplacement.get())
+                .build();
+    }
+    
+    /**
+     * 清零统计（调整nprobe后重新观察）
+     */
+    public void reset() {
+        samples.set(0);
+        droppedSamples.set(0);
+        failedSamples.set(0);
+        expectedHits.set(0);
+        matchedHits.set(0);
+        top1Matches.set(0);
+        displacementSum.set(0);
+        displacementCount.set(0);
+        maxDisplacement.set(0);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,512 @@
+package com.facerecognition.service;
+
+import com.facerecognition.config.FaceConfig;
+import com.facerecognition.exception.DeadlineExceededException;
+import com.facerecognition.exception.ServiceOverloadedException;
+import com.facerecognition.model.FaceDetectionResult;
+import com.facerecognition.util.Deadline;
+import com.facerecognition.util.Priority;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.Mat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 分阶段识别流水线
+ * 解码+检测+对齐、特征提取、向量检索三个阶段各用独立的定长线程池与有界队列：
+ * CPU密集的ONNX推理与等待Milvus的检索在不同请求间重叠执行；任一阶段队列已满时立即拒绝，不无限排队
+ * 请求携带截止时间时，各阶段开始前检查剩余时间，已过期的请求不再占用推理与检索资源；
+ * 按排队深度估算的等待时间超过剩余时间的请求在入队前拒绝。
+ * 各阶段队列按请求优先级分道：交互式任务总是先于普通、批量任务出队，每个优先级各自受队列容量限制，
+ * 批量识别占满队列也不会挤掉交互式请求
+ */
+@Slf4j
+@Service
+public class RecognitionPipeline {
+    
+    @Autowired
+    private FaceConfig faceConfig;
+    
+    @Autowired
+    private FaceDetectionService faceDetectionService;
+    
+    @Autowired
+    private FaceAlignmentService faceAlignmentService;
+    
+    @Autowired
+    private FaceRecognitionService faceRecognitionService;
+    
+    private ThreadPoolExecutor detectExecutor;
+    private ThreadPoolExecutor embedExecutor;
+    private ThreadPoolExecutor searchExecutor;
+    private int queueCapacity;
+    
+    /**
+     * 各阶段线程池按优先级的排队名额：提交时占用，任务开始执行（或被拒绝）时归还
+     */
+    private final Map<ThreadPoolExecutor, Semaphore[]> laneSlots = new HashMap<>();
+    
+    /**
+     * 串行执行时不设流水线等待上限
+     */
+    private static final long NO_TIMEOUT = Long.MAX_VALUE;
+    
+    /**
+     * 单张图片检测、特征提取阶段的近期耗时 (指数滑动平均，纳秒)，用于估算排队等待时间
+     */
+    private final AtomicLong detectCostNanos = new AtomicLong();
+    private final AtomicLong embedCostNanos = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        FaceConfig.Pipeline config = faceConfig.getPipeline();
+        if (!config.isEnabled()) {
+            return;
+        }
+        
+        queueCapacity = Math.max(config.getQueueCapacity(), 1);
+        detectExecutor = newStageExecutor("detect", config.getDetectThreads());
+        embedExecutor = newStageExecutor("embed", config.getEmbedThreads());
+        searchExecutor = newStageExecutor("search", config.getSearchThreads());
+        
+        log.info("识别流水线已启用: detectThreads={}, embedThreads={}, searchThreads={}, queueCapacity={}",
+                config.getDetectThreads(), config.getEmbedThreads(), config.getSearchThreads(), config.getQueueCapacity());
+    }
+    
+    /**
+     * 阶段线程池：优先级队列只接收 {@link LaneTask}，容量由 {@link #lane} 按优先级分别限制
+     */
+    private ThreadPoolExecutor newStageExecutor(String stage, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        int size = Math.max(threads, 1);
+        
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "pipeline-" + stage + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        
+        Semaphore[] slots = new Semaphore[Priority.values().length];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Semaphore(queueCapacity);
+        }
+        laneSlots.put(executor, slots);
+        return executor;
+    }
+    
+    /**
+     * 执行一次识别：解码 → 检测+对齐 → 特征提取 → 检索（检索阶段由调用方提供）
+     * 调用线程只等待结果；流水线未启用时在调用线程上串行执行
+     * 
+     * @param decoder 图片解码
+     * @param searchStage 检索阶段，输入为提取结果
+     * @return 检索阶段的返回值
+     * @throws ServiceOverloadedException 任一阶段队列已满，或预计等待时间超过请求截止时间
+     * @throws DeadlineExceededException 请求已超过截止时间
+     */
+    public <R> R execute(Supplier<Mat> decoder, Function<Extraction, R> searchStage) {
+        Deadline deadline = Deadline.current();
+        Priority priority = Priority.current();
+        
+        if (detectExecutor == null) {
+            Extraction extraction = stage(deadline, NO_TIMEOUT, priority, "人脸检测", detectCostNanos, () -> detect(decoder.get()));
+            stage(deadline, NO_TIMEOUT, priority, "特征提取", embedCostNanos, () -> embed(extraction));
+            return stage(deadline, NO_TIMEOUT, priority, "向量检索", null, () -> searchStage.apply(extraction));
+        }
+        
+        shedIfLate(deadline, priority, true);
+        
+        long timeoutNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(faceConfig.getPipeline().getTimeoutMs());
+        CompletableFuture<R> future;
+        try {
+            future = CompletableFuture.supplyAsync(
+                            () -> stage(deadline, timeoutNanos, priority, "人脸检测", detectCostNanos, () -> detect(decoder.get())),
+                            lane(detectExecutor, priority))
+                    .thenApplyAsync(extraction -> stage(deadline, timeoutNanos, priority, "特征提取", embedCostNanos,
+                            () -> embed(extraction)), lane(embedExecutor, priority))
+                    .thenApplyAsync(extraction -> stage(deadline, timeoutNanos, priority, "向量检索", null,
+                            () -> searchStage.apply(extraction)), lane(searchExecutor, priority));
+        } catch (RejectedExecutionException e) {
+            throw overloaded("detect");
+        }
+        
+        try {
+            return await(future, timeoutNanos, deadline);
+        } catch (RejectedExecutionException e) {
+            throw overloaded("embed/search");
+        }
+    }
+    
+    /**
+     * 执行一次已对齐人脸的识别：解码+对齐 → 特征提取 → 检索，跳过人脸检测阶段
+     * 
+     * @param aligner 解码并得到对齐后的人脸
+     * @param searchStage 检索阶段，输入为提取结果 (原图与检测结果为空)
+     * @return 检索阶段的返回值
+     * @throws ServiceOverloadedException 任一阶段队列已满，或预计等待时间超过请求截止时间
+     * @throws DeadlineExceededException 请求已超过截止时间
+     */
+    public <R> R executeAligned(Supplier<Mat> aligner, Function<Extraction, R> searchStage) {
+        Deadline deadline = Deadline.current();
+        Priority priority = Priority.current();
+        
+        if (embedExecutor == null) {
+            Extraction extraction = stage(deadline, NO_TIMEOUT, priority, "特征提取", embedCostNanos,
+                    () -> embed(new Extraction(null, Collections.emptyList(), aligner.get())));
+            return stage(deadline, NO_TIMEOUT, priority, "向量检索", null, () -> searchStage.apply(extraction));
+        }
+        
+        shedIfLate(deadline, priority, false);
+        
+        long timeoutNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(faceConfig.getPipeline().getTimeoutMs());
+        CompletableFuture<R> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> stage(deadline, timeoutNanos, priority, "特征提取", embedCostNanos,
+                            () -> embed(new Extraction(null, Collections.emptyList(), aligner.get()))), lane(embedExecutor, priority))
+                    .thenApplyAsync(extraction -> stage(deadline, timeoutNanos, priority, "向量检索", null,
+                            () -> searchStage.apply(extraction)), lane(searchExecutor, priority));
+        } catch (RejectedExecutionException e) {
+            throw overloaded("embed");
+        }
+        
+        try {
+            return await(future, timeoutNanos, deadline);
+        } catch (RejectedExecutionException e) {
+            throw overloaded("search");
+        }
+    }
+    
+    /**
+     * 批量提取：各图片并行解码+检测+对齐，成功的人脸按 face.batch.embed-batch-size 分块合并为一次特征提取推理
+     * 阶段队列已满，或本请求在该阶段已占用 face.batch.max-queued-per-request 个任务时，由调用线程执行该任务
+     * （批量请求自身承担背压，不会独占阶段队列），单张图片失败不影响其他图片；
+     * 请求截止时间已过时尚未开始的图片直接记为失败
+     * 
+     * @param decoders 各图片的解码
+     * @return 与输入一一对应的提取结果
+     */
+    public List<BatchItem> extractBatch(List<Supplier<Mat>> decoders) {
+        FaceConfig.Batch config = faceConfig.getBatch();
+        long timeoutNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMs());
+        Deadline deadline = Deadline.current();
+        Priority priority = Priority.current();
+        int maxQueued = Math.max(config.getMaxQueuedPerRequest(), 1);
+        
+        Semaphore detectSlots = new Semaphore(maxQueued);
+        List<CompletableFuture<Extraction>> detections = new ArrayList<>(decoders.size());
+        for (Supplier<Mat> decoder : decoders) {
+            detections.add(submitOrRun(detectExecutor, priority, detectSlots,
+                    () -> stage(deadline, timeoutNanos, priority, "人脸检测", null, () -> detect(decoder.get()))));
+        }
+        
+        List<BatchItem> items = new ArrayList<>(decoders.size());
+        List<BatchItem> detected = new ArrayList<>(decoders.size());
+        for (CompletableFuture<Extraction> detection : detections) {
+            BatchItem item = new BatchItem();
+            try {
+                item.extraction = await(detection, timeoutNanos, deadline);
+                detected.add(item);
+            } catch (RuntimeException e) {
+                item.error = e;
+            }
+            items.add(item);
+        }
+        
+        int chunkSize = Math.max(config.getEmbedBatchSize(), 1);
+        List<List<BatchItem>> chunks = new ArrayList<>();
+        List<CompletableFuture<Void>> embeddings = new ArrayList<>();
+        Semaphore embedSlots = new Semaphore(maxQueued);
+        for (int start = 0; start < detected.size(); start += chunkSize) {
+            List<BatchItem> chunk = detected.subList(start, Math.min(start + chunkSize, detected.size()));
+            chunks.add(chunk);
+            embeddings.add(submitOrRun(embedExecutor, priority, embedSlots, () -> stage(deadline, timeoutNanos, priority, "特征提取", null, () -> {
+                embedBatch(chunk);
+                return null;
+            })));
+        }
+        
+        for (int i = 0; i < chunks.size(); i++) {
+            try {
+                await(embeddings.get(i), timeoutNanos, deadline);
+            } catch (RuntimeException e) {
+                for (BatchItem item : chunks.get(i)) {
+                    item.error = e;
+                }
+            }
+        }
+        
+        log.debug("批量提取完成: images={}, faces={}, embedBatches={}", decoders.size(), detected.size(), chunks.size());
+        
+        return items;
+    }
+    
+    /**
+     * 提交到阶段线程池；流水线未启用、队列已满或本请求占用的名额已用完时在调用线程上执行
+     * 
+     * @param slots 本请求在该阶段可同时占用的任务名额，任务结束时归还
+     */
+    private <T> CompletableFuture<T> submitOrRun(ThreadPoolExecutor executor, Priority priority, Semaphore slots,
+                                                 Supplier<T> task) {
+        if (executor != null && slots.tryAcquire()) {
+            try {
+                CompletableFuture<T> future = CompletableFuture.supplyAsync(task, lane(executor, priority));
+                future.whenComplete((r, e) -> slots.release());
+                return future;
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                log.debug("识别流水线队列已满，批量任务由调用线程执行");
+            }
+        }
+        
+        try {
+            return CompletableFuture.completedFuture(task.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * 执行一个阶段：开始前检查请求截止时间与流水线等待上限，并把截止时间与优先级绑定到当前（阶段）线程上
+     * 调用方等待超时后取消future并不会中断已排队的阶段，超过等待上限的阶段在此直接放弃，不再占用推理与检索资源
+     * 
+     * @param timeoutNanos 流水线等待上限 (System.nanoTime)，{@link #NO_TIMEOUT} 表示不限
+     * @param cost 该阶段单张图片耗时的滑动平均，为null时不统计
+     */
+    private <T> T stage(Deadline deadline, long timeoutNanos, Priority priority, String name, AtomicLong cost,
+                        Supplier<T> task) {
+        if (deadline != null) {
+            deadline.check(name);
+        }
+        if (timeoutNanos != NO_TIMEOUT && System.nanoTime() - timeoutNanos >= 0) {
+            throw new RuntimeException("识别处理超时，放弃" + name);
+        }
+        
+        long start = System.nanoTime();
+        T result = Priority.callWith(priority, () -> Deadline.callWith(deadline, task));
+        
+        if (cost != null) {
+            long elapsed = System.nanoTime() - start;
+            cost.accumulateAndGet(elapsed, (average, sample) -> average == 0 ? sample : average + (sample - average) / 8);
+        }
+        return result;
+    }
+    
+    /**
+     * 按各阶段当前排队深度与近期耗时估算等待时间，预计赶不上截止时间时在入队前拒绝，
+     * 避免请求排到队首时客户端早已放弃
+     * 
+     * @param includeDetect 是否经过检测阶段
+     */
+    private void shedIfLate(Deadline deadline, Priority priority, boolean includeDetect) {
+        if (deadline == null) {
+            return;
+        }
+        deadline.check("识别");
+        
+        if (!faceConfig.getDeadline().isShedByQueueDepth()) {
+            return;
+        }
+        
+        long estimatedNanos = estimateNanos(embedExecutor, priority, embedCostNanos.get());
+        if (includeDetect) {
+            estimatedNanos += estimateNanos(detectExecutor, priority, detectCostNanos.get());
+        }
+        
+        if (estimatedNanos > deadline.remainingNanos()) {
+            log.warn("预计等待 {}ms 超过请求剩余时间 {}ms，拒绝请求",
+                    TimeUnit.NANOSECONDS.toMillis(estimatedNanos), deadline.remainingMs());
+            throw new ServiceOverloadedException("识别服务繁忙，预计无法在截止时间前完成");
+        }
+    }
+    
+    /**
+     * 新请求在该阶段的预计完成时间：排在前面的任务（同级及更高优先级）按线程数分摊，再加上自身的处理时间
+     */
+    private long estimateNanos(ThreadPoolExecutor executor, Priority priority, long costNanos) {
+        int ahead = executor.getActiveCount();
+        for (Runnable task : executor.getQueue()) {
+            if (((LaneTask) task).priority.compareTo(priority) <= 0) {
+                ahead++;
+            }
+        }
+        return (ahead / executor.getMaximumPoolSize() + 1) * costNanos;
+    }
+    
+    /**
+     * 按优先级提交到阶段线程池：该优先级排队的任务数已达队列容量时拒绝
+     * 排队名额用信号量计数，并发提交时也不会超出容量
+     */
+    private Executor lane(ThreadPoolExecutor executor, Priority priority) {
+        Semaphore slots = laneSlots.get(executor)[priority.ordinal()];
+        return task -> {
+            if (!slots.tryAcquire()) {
+                throw new RejectedExecutionException("识别流水线队列已满: " + priority);
+            }
+            try {
+                executor.execute(new LaneTask(priority, slots, task));
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                throw e;
+            }
+        };
+    }
+    
+    /**
+     * 在截止时间前等待结果，任务异常按原异常抛出
+     * 
+     * @param deadlineNanos 流水线自身的等待上限
+     * @param deadline 请求截止时间，可为null
+     */
+    private <T> T await(CompletableFuture<T> future, long deadlineNanos, Deadline deadline) {
+        long waitNanos = deadlineNanos - System.nanoTime();
+        if (deadline != null) {
+            waitNanos = Math.min(waitNanos, deadline.remainingNanos());
+        }
+        
+        try {
+            return future.get(Math.max(waitNanos, 0L), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            if (deadline != null && deadline.isExpired()) {
+                throw new DeadlineExceededException("请求已超过截止时间，放弃识别");
+            }
+            throw new RuntimeException("识别处理超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("识别处理被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+    
+    private ServiceOverloadedException overloaded(String stage) {
+        log.warn("识别流水线{}阶段队列已满，拒绝请求", stage);
+        return new ServiceOverloadedException("识别服务繁忙，请稍后重试");
+    }
+    
+    /**
+     * 检测并对齐第一张人脸
+     */
+    private Extraction detect(Mat image) {
+        List<FaceDetectionResult> detectionResults = faceDetectionService.detectFaces(image);
+        
+        if (detectionResults.isEmpty()) {
+            throw new RuntimeException("未检测到人脸");
+        }
+        
+        if (detectionResults.size() > 1) {
+            log.warn("检测到多张人脸，仅识别第一张");
+        }
+        
+        Mat alignedFace = faceAlignmentService.alignFace(image, detectionResults.get(0).getLandmarks());
+        
+        return new Extraction(image, detectionResults, alignedFace);
+    }
+    
+    private Extraction embed(Extraction extraction) {
+        extraction.feature = faceRecognitionService.extractFeature(extraction.alignedFace);
+        return extraction;
+    }
+    
+    private void embedBatch(List<BatchItem> chunk) {
+        List<Mat> alignedFaces = new ArrayList<>(chunk.size());
+        for (BatchItem item : chunk) {
+            alignedFaces.add(item.extraction.alignedFace);
+        }
+        
+        List<float[]> features = faceRecognitionService.extractFeatures(alignedFaces);
+        for (int i = 0; i < chunk.size(); i++) {
+            chunk.get(i).extraction.feature = features.get(i);
+        }
+    }
+    
+    /**
+     * 阶段队列中的任务：先按优先级，同一优先级内按提交顺序出队，开始执行时归还排队名额
+     */
+    private static class LaneTask implements Runnable, Comparable<LaneTask> {
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+        
+        private final Priority priority;
+        private final long sequence = SEQUENCE.getAndIncrement();
+        private final Semaphore slots;
+        private final Runnable task;
+        
+        LaneTask(Priority priority, Semaphore slots, Runnable task) {
+            this.priority = priority;
+            this.slots = slots;
+            this.task = task;
+        }
+        
+        @Override
+        public void run() {
+            slots.release();
+            task.run();
+        }
+        
+        @Override
+        public int compareTo(LaneTask other) {
+            int order = priority.compareTo(other.priority);
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+    
+    /**
+     * 单张图片的检测、对齐与特征提取结果
+     */
+    @Getter
+    public static class Extraction {
+        private final Mat image;
+        private final List<FaceDetectionResult> detectionResults;
+        private final Mat alignedFace;
+        private float[] feature;
+        
+        Extraction(Mat image, List<FaceDetectionResult> detectionResults, Mat alignedFace) {
+            this.image = image;
+            this.detectionResults = detectionResults;
+            this.alignedFace = alignedFace;
+        }
+    }
+    
+    /**
+     * 批量提取中单张图片的结果：成功时error为null
+     */
+    @Getter
+    public static class BatchItem {
+        private Extraction extraction;
+        private RuntimeException error;
+        
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        for (ExecutorService executor : new ExecutorService[]{detectExecutor, embedExecutor, searchExecutor}) {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
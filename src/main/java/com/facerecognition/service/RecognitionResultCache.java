@@ -0,0 +1,240 @@
+package com.facerecognition.service;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import com.facerecognition.config.FaceConfig;
+import com.facerecognition.dto.RecognizeResult;
+import com.facerecognition.dto.ResultCacheStats;
+import com.facerecognition.exception.DeadlineExceededException;
+import com.facerecognition.exception.ServiceOverloadedException;
+import com.facerecognition.util.Deadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 识别结果缓存
+ * 按图片内容的MurmurHash3 128位哈希与请求参数缓存识别结果，带TTL与LRU容量上限；
+ * 条目记录计算时的人脸库变更代数，人脸库变化后自动失效。
+ * 相同请求并发到达时只有一个执行识别，其余等待并共享其结果 (singleflight)；
+ * 执行者因自身过载/超时失败时，等待者不共享该失败，重新竞争执行。
+ * 单张识别 (Base64/上传) 与已对齐人脸识别 (含关键点) 经过本缓存；批量识别与按特征向量检索不经过：
+ * 二者把多个查询合并为一次多向量检索，逐条查缓存会拆散合并，且调用方已持有特征向量，重复请求的收益有限
+ */
+@Slf4j
+@Service
+public class RecognitionResultCache {
+    
+    @Autowired
+    private FaceConfig faceConfig;
+    
+    @Autowired
+    private FaceMetadataCache faceMetadataCache;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    
+    /**
+     * 缓存条目，按访问顺序LRU淘汰
+     */
+    private final Map<String, CachedResult> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            return size() > faceConfig.getResultCache().getCapacity();
+        }
+    };
+    
+    /**
+     * 进行中的识别
+     */
+    private final Map<String, CompletableFuture<List<RecognizeResult>>> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * 生成缓存键
+     * 
+     * @param content 图片内容 (原始字节或Base64字符串的字节)
+     */
+    public String key(byte[] content, float threshold, int topK, String profile, String groupId) {
+        return key(content, null, threshold, topK, profile, groupId);
+    }
+    
+    /**
+     * 生成缓存键
+     * 
+     * @param content 图片内容 (原始字节或Base64字符串的字节)
+     * @param variant 同一图片的不同识别方式 (如已对齐人脸及其关键点)，为null时为完整检测流程
+     */
+    public String key(byte[] content, String variant, float threshold, int topK, String profile, String groupId) {
+        long[] hash = MurmurHash.hash128(content);
+        return Long.toHexString(hash[0]) + Long.toHexString(hash[1]) + ":" + content.length
+                + "|" + threshold + "|" + topK + "|" + (profile != null ? profile : "")
+                + "|" + (groupId != null ? groupId : "")
+                + (variant != null ? "|" + variant : "");
+    }
+    
+    /**
+     * 取缓存结果；未命中时执行识别，相同键的并发请求共享同一次识别
+     * 
+     * @param key 缓存键
+     * @param loader 识别
+     * @return 识别结果
+     */
+    public List<RecognizeResult> get(String key, Supplier<List<RecognizeResult>> loader) {
+        if (!faceConfig.getResultCache().isEnabled()) {
+            return loader.get();
+        }
+        
+        while (true) {
+            long generation = faceMetadataCache.getGeneration();
+        
+            List<RecognizeResult> cached = lookup(key, generation);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            
+            CompletableFuture<List<RecognizeResult>> future = new CompletableFuture<>();
+            CompletableFuture<List<RecognizeResult>> running = inFlight.putIfAbsent(key, future);
+            if (running != null) {
+                coalesced.incrementAndGet();
+                List<RecognizeResult> shared = await(running);
+                if (shared != null) {
+                    return shared;
+                }
+                continue;
+            }
+            
+            misses.incrementAndGet();
+            return load(key, generation, future, loader);
+        }
+    }
+        
+    /**
+     * 作为执行者识别并缓存结果；无论成功失败都先移出在途表再完成future，保证等待者不会卡住或再次等到同一个失败
+     */
+    private List<RecognizeResult> load(String key, long generation, CompletableFuture<List<RecognizeResult>> future,
+                                       Supplier<List<RecognizeResult>> loader) {
+        try {
+            List<RecognizeResult> results = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+            
+            // 识别期间人脸库发生变化时不缓存
+            if (faceMetadataCache.getGeneration() == generation) {
+                long expireAt = System.currentTimeMillis() + faceConfig.getResultCache().getTtlMs();
+                synchronized (entries) {
+                    entries.put(key, new CachedResult(results, generation, expireAt));
+                }
+            }
+            
+            inFlight.remove(key, future);
+            future.complete(results);
+            return results;
+            
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    private List<RecognizeResult> lookup(String key, long generation) {
+        synchronized (entries) {
+            CachedResult cached = entries.get(key);
+            if (cached == null) {
+                return null;
+            }
+            
+            if (cached.generation != generation || cached.expireAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                expired.incrementAndGet();
+                return null;
+            }
+            return cached.results;
+        }
+    }
+    
+    /**
+     * 等待同一图片的在途识别；当前请求带截止时间时最多等到截止时间
+     * 
+     * @return 共享的识别结果；执行者因过载/超时失败时返回null，由调用方重新执行
+     */
+    private List<RecognizeResult> await(CompletableFuture<List<RecognizeResult>> running) {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ServiceOverloadedException) {
+                    return null;
+                }
+                throw unwrap(e.getCause(), e);
+            }
+        }
+        
+        try {
+            return running.get(Math.max(deadline.remainingNanos(), 0L), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("请求已超过截止时间，放弃等待识别结果");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待识别结果被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServiceOverloadedException) {
+                return null;
+            }
+            throw unwrap(e.getCause(), new RuntimeException(e.getCause()));
+        }
+    }
+    
+    private RuntimeException unwrap(Throwable cause, RuntimeException fallback) {
+        return cause instanceof RuntimeException ? (RuntimeException) cause : fallback;
+    }
+    
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        log.info("识别结果缓存已清空");
+    }
+    
+    public ResultCacheStats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        
+        return ResultCacheStats.builder()
+                .enabled(faceConfig.getResultCache().isEnabled())
+                .size(size)
+                .hits(hits.get())
+                .misses(misses.get())
+                .coalesced(coalesced.get())
+                .expired(expired.get())
+                .build();
+    }
+    
+    private static class CachedResult {
+        private final List<RecognizeResult> results;
+        private final long generation;
+        private final long expireAt;
+        
+        CachedResult(List<RecognizeResult> results, long generation, long expireAt) {
+            this.results = results;
+            this.generation = generation;
+            this.expireAt = expireAt;
+        }
+    }
+}
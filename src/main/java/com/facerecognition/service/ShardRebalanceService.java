@@ -0,0 +1,165 @@
+package com.facerecognition.service;
+
+import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.dto.ShardRebalanceStatus;
+import com.facerecognition.model.FaceInfo;
+import com.facerecognition.util.Priority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 重新分片服务
+ * 分片数量变化后（如新增分片），逐个分片按face_id游标扫描，把哈希归属已变化的人脸
+ * 写入新分片后再从原分片删除；迁移期间按人员路由的删除/查询广播到所有分片
+ */
+@Slf4j
+@Service
+public class ShardRebalanceService {
+    
+    @Autowired
+    private MilvusConfig milvusConfig;
+    
+    @Autowired
+    private MilvusService milvusService;
+    
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(Priority.bind(Priority.BULK, r), "shard-rebalance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private volatile ShardRebalanceStatus status = ShardRebalanceStatus.builder()
+            .state("IDLE")
+            .build();
+    
+    /**
+     * 启动重新分片（异步执行）
+     */
+    public synchronized ShardRebalanceStatus startRebalance() {
+        if ("RUNNING".equals(status.getState())) {
+            throw new RuntimeException("重新分片进行中");
+        }
+        
+        if (milvusService.getShardCount() <= 1) {
+            throw new RuntimeException("未启用分片 (milvus.sharding)，无需重新分片");
+        }
+        
+        if (milvusService.isMirroring()) {
+            throw new RuntimeException("索引重建进行中，请完成后再重新分片");
+        }
+        
+        status = ShardRebalanceStatus.builder()
+                .state("RUNNING")
+                .shardCount(milvusService.getShardCount())
+                .startTime(System.currentTimeMillis())
+                .build();
+        
+        milvusService.setRebalancing(true);
+        
+        log.info("开始重新分片: shardCount={}", milvusService.getShardCount());
+        
+        executor.submit(this::runRebalance);
+        
+        return status;
+    }
+    
+    public ShardRebalanceStatus getStatus() {
+        return status.toBuilder()
+                .shardCount(milvusService.getShardCount())
+                .build();
+    }
+    
+    private void runRebalance() {
+        int batchSize = Math.max(milvusConfig.getSharding().getRebalanceBatchSize(), 1);
+        long scannedRows = 0;
+        long movedRows = 0;
+        
+        try {
+            for (int shard = 0; shard < milvusService.getShardCount(); shard++) {
+                status = status.toBuilder().currentShard(shard).build();
+                
+                String cursor = null;
+                while (true) {
+                    int currentShard = shard;
+                    String after = cursor;
+                    // 读取与迁移一页期间阻塞删除，避免读取后被删除的人脸又被写入目标分片
+                    List<FaceInfo> page = milvusService.withDeletesBlocked(
+                            () -> movePage(currentShard, after, batchSize));
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    
+                    scannedRows += page.size();
+                    movedRows += page.stream()
+                            .filter(face -> milvusService.shardOf(face.getPersonId()) != currentShard)
+                            .count();
+                    cursor = page.get(page.size() - 1).getFaceId();
+                    status = status.toBuilder().scannedRows(scannedRows).movedRows(movedRows).build();
+                }
+                
+                log.info("分片{}扫描完成: 累计扫描 {} 行，迁移 {} 行", shard, scannedRows, movedRows);
+            }
+            
+            status = status.toBuilder()
+                    .state("COMPLETED")
+                    .finishTime(System.currentTimeMillis())
+                    .message("扫描 " + scannedRows + " 行，迁移 " + movedRows + " 行")
+                    .build();
+            
+            log.info("重新分片完成: 扫描 {} 行，迁移 {} 行", scannedRows, movedRows);
+            
+        } catch (Exception e) {
+            log.error("重新分片失败", e);
+            
+            status = status.toBuilder()
+                    .state("FAILED")
+                    .finishTime(System.currentTimeMillis())
+                    .message(e.getMessage())
+                    .build();
+        } finally {
+            milvusService.setRebalancing(false);
+        }
+    }
+    
+    /**
+     * 读取分片的一页，把哈希归属已变化的人脸写入目标分片后再从原分片删除
+     * 
+     * @return 读取到的一页 (为空表示该分片扫描完成)
+     */
+    private List<FaceInfo> movePage(int shard, String cursor, int batchSize) {
+        List<FaceInfo> page = milvusService.queryShardAfter(shard, cursor, batchSize);
+        
+        // 按目标分片归组，先写入目标分片，成功后再从原分片删除
+        Map<Integer, List<FaceInfo>> misplaced = new HashMap<>();
+        for (FaceInfo face : page) {
+            int target = milvusService.shardOf(face.getPersonId());
+            if (target != shard) {
+                misplaced.computeIfAbsent(target, k -> new ArrayList<>()).add(face);
+            }
+        }
+        
+        for (Map.Entry<Integer, List<FaceInfo>> entry : misplaced.entrySet()) {
+            List<FaceInfo> faces = entry.getValue();
+            milvusService.upsertToShard(entry.getKey(), faces);
+            
+            List<String> faceIds = new ArrayList<>(faces.size());
+            for (FaceInfo face : faces) {
+                faceIds.add(face.getFaceId());
+            }
+            milvusService.deleteFromShard(shard, faceIds);
+        }
+        
+        return page;
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package com.facerecognition.util;
+
+import com.facerecognition.exception.DeadlineExceededException;
+
+import java.util.function.Supplier;
+
+/**
+ * 请求截止时间
+ * 由请求过滤器绑定到请求线程；识别流水线把它随任务带到各阶段线程上，
+ * 各阶段在检测、特征提取、向量检索等耗时操作前检查剩余时间，已过期的请求直接放弃
+ */
+public final class Deadline {
+    
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+    
+    private final long deadlineNanos;
+    
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+    
+    /**
+     * 从现在起 timeoutMs 毫秒后到期
+     */
+    public static Deadline after(long timeoutMs) {
+        return new Deadline(System.nanoTime() + timeoutMs * 1_000_000L);
+    }
+    
+    /**
+     * 当前线程绑定的截止时间，未绑定时返回null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+    
+    public static void attach(Deadline deadline) {
+        CURRENT.set(deadline);
+    }
+    
+    public static void detach() {
+        CURRENT.remove();
+    }
+    
+    /**
+     * 检查当前线程绑定的截止时间（未绑定时不检查）
+     * 
+     * @param stage 即将执行的阶段 (用于错误信息)
+     * @throws DeadlineExceededException 已过截止时间
+     */
+    public static void checkCurrent(String stage) {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.check(stage);
+        }
+    }
+    
+    /**
+     * 在当前线程上绑定截止时间执行任务，结束后恢复原绑定
+     * 
+     * @param deadline 截止时间，为null时直接执行
+     */
+    public static <T> T callWith(Deadline deadline, Supplier<T> task) {
+        if (deadline == null) {
+            return task.get();
+        }
+        
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+    
+    /**
+     * 剩余毫秒数，已过期时为0
+     */
+    public long remainingMs() {
+        return Math.max(remainingNanos() / 1_000_000L, 0L);
+    }
+    
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+    
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+    
+    /**
+     * @throws DeadlineExceededException 已过截止时间
+     */
+    public void check(String stage) {
+        if (isExpired()) {
+            throw new DeadlineExceededException("请求已超过截止时间，放弃" + stage);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.facerecognition.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 人脸特征向量二进制文件
+ * 
+ * 格式 (小端序)：
+ * <pre>
+ * 文件头 32字节: magic "FEMB" | version int32 | dimension int32 | reserved int32 | rows int64 | reserved int64
+ * 数据区: rows 行，每行 dimension 个 float32，第 i 行起始偏移 = 32 + i * dimension * 4
+ * </pre>
+ * 人员元数据按相同行序另存为JSON Lines旁路文件；数据区为定长行，可按行区间内存映射读取
+ */
+public class EmbeddingFile {
+    
+    public static final byte[] MAGIC = "FEMB".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    
+    /**
+     * 顺序写入器：先写占位文件头，关闭时回填行数
+     */
+    public static class Writer implements Closeable {
+        
+        private final FileChannel channel;
+        private final int dimension;
+        private long rows;
+        
+        public Writer(Path path, int dimension) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.dimension = dimension;
+            writeHeader();
+            // 文件头按绝对位置写入，不移动通道位置，数据区从文件头之后开始
+            channel.position(HEADER_SIZE);
+        }
+        
+        /**
+         * 追加一批特征向量
+         */
+        public void write(float[][] features) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(features.length * dimension * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            FloatBuffer floats = buffer.asFloatBuffer();
+            for (float[] feature : features) {
+                if (feature == null || feature.length != dimension) {
+                    throw new IllegalArgumentException("特征向量维度不匹配: 期望 " + dimension);
+                }
+                floats.put(feature);
+            }
+            
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            rows += features.length;
+        }
+        
+        public long getRows() {
+            return rows;
+        }
+        
+        private void writeHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(dimension);
+            header.putInt(0);
+            header.putLong(rows);
+            header.putLong(0L);
+            header.flip();
+            
+            channel.write(header, 0);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                writeHeader();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+    
+    /**
+     * 内存映射读取器：按行区间映射数据区，不把整个文件读入堆
+     */
+    public static class Reader implements Closeable {
+        
+        private final FileChannel channel;
+        private final int dimension;
+        private final long rows;
+        
+        public Reader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            
+            try {
+                if (channel.size() < HEADER_SIZE) {
+                    throw new IOException("不是有效的特征向量文件");
+                }
+                
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                
+                byte[] magic = new byte[MAGIC.length];
+                header.get(magic);
+                if (!Arrays.equals(magic, MAGIC)) {
+                    throw new IOException("不是有效的特征向量文件");
+                }
+                
+                int version = header.getInt();
+                if (version != VERSION) {
+                    throw new IOException("不支持的特征向量文件版本: " + version);
+                }
+                
+                this.dimension = header.getInt();
+                header.getInt();
+                this.rows = header.getLong();
+                
+                long expectedSize = HEADER_SIZE + rows * dimension * Float.BYTES;
+                if (dimension <= 0 || channel.size() < expectedSize) {
+                    throw new IOException("特征向量文件不完整: 期望 " + expectedSize + " 字节，实际 " + channel.size());
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        
+        public int getDimension() {
+            return dimension;
+        }
+        
+        public long getRows() {
+            return rows;
+        }
+        
+        /**
+         * 读取从 startRow 开始的 count 行特征向量
+         */
+        public float[][] read(long startRow, int count) throws IOException {
+            int n = (int) Math.min(count, rows - startRow);
+            if (n <= 0) {
+                return new float[0][];
+            }
+            
+            long rowBytes = (long) dimension * Float.BYTES;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + startRow * rowBytes, n * rowBytes);
+            FloatBuffer floats = mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            
+            float[][] features = new float[n][dimension];
+            for (float[] feature : features) {
+                floats.get(feature);
+            }
+            return features;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
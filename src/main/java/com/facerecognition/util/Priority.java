@@ -0,0 +1,86 @@
+package com.facerecognition.util;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * 请求优先级
+ * 由请求过滤器绑定到请求线程，批量注册、导出导入、索引重建等后台任务的线程固定为 BULK；
+ * 识别流水线各阶段队列、ONNX推理许可与Milvus访问许可按优先级调度
+ */
+public enum Priority {
+    
+    /**
+     * 交互式识别 (闸机、门禁等实时场景)
+     */
+    INTERACTIVE,
+    
+    /**
+     * 普通请求 (默认)
+     */
+    STANDARD,
+    
+    /**
+     * 批量任务 (批量注册、导出导入、索引重建、重新分片)
+     */
+    BULK;
+    
+    private static final ThreadLocal<Priority> CURRENT = new ThreadLocal<>();
+    
+    /**
+     * 当前线程的优先级，未绑定时为 STANDARD
+     */
+    public static Priority current() {
+        Priority priority = CURRENT.get();
+        return priority != null ? priority : STANDARD;
+    }
+    
+    public static void attach(Priority priority) {
+        CURRENT.set(priority);
+    }
+    
+    public static void detach() {
+        CURRENT.remove();
+    }
+    
+    /**
+     * 在当前线程上绑定优先级执行任务，结束后恢复原绑定
+     */
+    public static <T> T callWith(Priority priority, Supplier<T> task) {
+        Priority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+    
+    /**
+     * 包装后台线程的任务，使其在指定优先级下运行
+     */
+    public static Runnable bind(Priority priority, Runnable task) {
+        return () -> callWith(priority, () -> {
+            task.run();
+            return null;
+        });
+    }
+    
+    /**
+     * 解析优先级名称 (不区分大小写)，无法识别时返回null
+     */
+    public static Priority parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.facerecognition.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 向量计算工具类
+ * 供本地精确比对（L1缓存、重排序等）与外部特征向量校验使用
+ */
+public class VectorUtils {
+    
+    /**
+     * 计算两个向量的点积
+     * 
+     * @param a 向量a
+     * @param b 向量b
+     * @return 点积
+     */
+    public static float dot(float[] a, float[] b) {
+        return dot(a, b, 0, a.length);
+    }
+    
+    /**
+     * 计算向量与矩阵中某一行的点积
+     * 四路累加展开，便于JIT自动向量化
+     * 
+     * @param query 查询向量
+     * @param matrix 行优先存储的矩阵
+     * @param offset 行起始下标
+     * @param length 向量维度
+     * @return 点积
+     */
+    public static float dot(float[] query, float[] matrix, int offset, int length) {
+        float s0 = 0.0f, s1 = 0.0f, s2 = 0.0f, s3 = 0.0f;
+        int i = 0;
+        int bound = length & ~3;
+        
+        for (; i < bound; i += 4) {
+            s0 += query[i] * matrix[offset + i];
+            s1 += query[i + 1] * matrix[offset + i + 1];
+            s2 += query[i + 2] * matrix[offset + i + 2];
+            s3 += query[i + 3] * matrix[offset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += query[i] * matrix[offset + i];
+        }
+        
+        return (s0 + s1) + (s2 + s3);
+    }
+    
+    /**
+     * 计算两个向量的L2距离平方
+     */
+    public static float squaredL2(float[] a, float[] b) {
+        float sum = 0.0f;
+        for (int i = 0; i < a.length; i++) {
+            float d = a[i] - b[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+    
+    /**
+     * 校验并L2归一化向量
+     * 
+     * @param vector 原始向量
+     * @param dimension 期望维度
+     * @return 归一化后的新向量
+     * @throws IllegalArgumentException 维度不符、含NaN/Infinity或全零
+     */
+    public static float[] normalize(float[] vector, int dimension) {
+        if (vector == null || vector.length != dimension) {
+            throw new IllegalArgumentException("特征向量维度不匹配: 期望 " + dimension + "，实际 "
+                    + (vector == null ? 0 : vector.length));
+        }
+        
+        double norm = 0.0;
+        for (float v : vector) {
+            if (!Float.isFinite(v)) {
+                throw new IllegalArgumentException("特征向量包含非法数值");
+            }
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        
+        if (norm == 0.0) {
+            throw new IllegalArgumentException("特征向量不能为全零");
+        }
+        
+        float[] normalized = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+    
+    /**
+     * 解析连续存放的小端float32向量
+     * 
+     * @param data 字节数据，长度须为 dimension * 4 的整数倍
+     * @param dimension 向量维度
+     * @return 向量列表
+     */
+    public static List<float[]> fromLittleEndianBytes(byte[] data, int dimension) {
+        int rowBytes = dimension * Float.BYTES;
+        if (data.length == 0 || data.length % rowBytes != 0) {
+            throw new IllegalArgumentException("特征向量数据长度须为 " + rowBytes + " 字节的整数倍，实际 " + data.length);
+        }
+        
+        FloatBuffer floats = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        List<float[]> vectors = new ArrayList<>(data.length / rowBytes);
+        while (floats.hasRemaining()) {
+            float[] vector = new float[dimension];
+            floats.get(vector);
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,130 @@
+package com.facerecognition.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * zip包读取工具类
+ * 读取时限制条目数与单个条目解压后的大小，避免压缩炸弹撑爆内存
+ */
+public class ZipUtils {
+    
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "bmp", "webp");
+    
+    /**
+     * 按扩展名判断是否为图片文件
+     */
+    public static boolean isImage(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && IMAGE_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * 读取zip包中的图片（按包内顺序，跳过目录、隐藏文件与非图片文件）
+     * 
+     * @param in zip输入流
+     * @param maxEntries 最多图片数
+     * @param maxEntryBytes 单张图片解压后大小上限
+     * @return 包内路径 -> 图片字节
+     */
+    public static Map<String, byte[]> readImages(InputStream in, int maxEntries, long maxEntryBytes) throws IOException {
+        Map<String, byte[]> images = new LinkedHashMap<>();
+        
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String name = entry.getName();
+                String baseName = name.substring(name.lastIndexOf('/') + 1);
+                
+                if (entry.isDirectory() || name.startsWith("__MACOSX/") || baseName.startsWith(".") || !isImage(baseName)) {
+                    continue;
+                }
+                
+                if (images.size() >= maxEntries) {
+                    throw new IOException("zip包内图片数超过上限: " + maxEntries);
+                }
+                
+                images.put(name, readEntry(zip, name, maxEntryBytes));
+            }
+        }
+        
+        return images;
+    }
+    
+    /**
+     * 解压zip包到目录（跳过目录条目与 __MACOSX），拒绝解压到目标目录之外的条目
+     * 
+     * @param in zip输入流
+     * @param targetDir 目标目录
+     * @param maxEntries 最多文件数
+     * @param maxEntryBytes 单个文件解压后大小上限
+     * @return 解压的文件数
+     */
+    public static int extract(InputStream in, Path targetDir, int maxEntries, long maxEntryBytes) throws IOException {
+        Path root = targetDir.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        int count = 0;
+        
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            byte[] buffer = new byte[8192];
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || entry.getName().startsWith("__MACOSX/")) {
+                    continue;
+                }
+                
+                Path target = root.resolve(entry.getName()).normalize();
+                if (!target.startsWith(root)) {
+                    throw new IOException("zip包内路径非法: " + entry.getName());
+                }
+                
+                if (++count > maxEntries) {
+                    throw new IOException("zip包内文件数超过上限: " + maxEntries);
+                }
+                
+                Files.createDirectories(target.getParent());
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    long total = 0;
+                    int read;
+                    while ((read = zip.read(buffer)) != -1) {
+                        total += read;
+                        if (total > maxEntryBytes) {
+                            throw new IOException("zip包内文件过大: " + entry.getName());
+                        }
+                        out.write(buffer, 0, read);
+                    }
+                }
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * 读取当前条目，解压后超过上限时中止
+     */
+    public static byte[] readEntry(ZipInputStream zip, String name, long maxEntryBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+            total += read;
+            if (total > maxEntryBytes) {
+                throw new IOException("zip包内文件过大: " + name);
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,156 @@
+package com.facerecognition.service;
+
+import com.facerecognition.config.MilvusConfig;
+import com.facerecognition.model.FaceInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 不连接Milvus的纯计算部分：相似度阈值与检索半径的换算、分片结果合并
+ */
+class MilvusServiceTest {
+    
+    private MilvusConfig milvusConfig;
+    private MilvusService milvusService;
+    
+    @BeforeEach
+    void setUp() {
+        milvusConfig = new MilvusConfig();
+        milvusService = new MilvusService();
+        ReflectionTestUtils.setField(milvusService, "milvusConfig", milvusConfig);
+    }
+    
+    @Test
+    void cosineRadiusIsSlightlyBelowThresholdScore() {
+        milvusConfig.getCollection().setMetricType("COSINE");
+        
+        float radius = milvusService.similarityToRadius(0.8f);
+        
+        // similarity 0.8 对应余弦分数 0.6，Milvus返回 score > radius
+        assertTrue(radius < 0.6f);
+        assertEquals(0.6f, radius, 1e-5f);
+        assertTrue(milvusService.convertScoreToSimilarity(radius) < 0.8f);
+    }
+    
+    @Test
+    void l2RadiusIsSlightlyAboveThresholdDistance() {
+        milvusConfig.getCollection().setMetricType("L2");
+        
+        float radius = milvusService.similarityToRadius(0.5f);
+        
+        // similarity 0.5 对应距离 1.0，Milvus返回 distance < radius
+        assertTrue(radius > 1.0f);
+        assertEquals(1.0f, radius, 1e-5f);
+        assertTrue(milvusService.convertScoreToSimilarity(radius) < 0.5f);
+    }
+    
+    @Test
+    void ipRadiusIsSlightlyBelowThreshold() {
+        milvusConfig.getCollection().setMetricType("IP");
+        
+        float radius = milvusService.similarityToRadius(0.7f);
+        
+        assertTrue(radius < 0.7f);
+        assertEquals(0.7f, radius, 1e-5f);
+    }
+    
+    @Test
+    void radiusInvertsScoreConversion() {
+        for (String metric : new String[]{"COSINE", "L2", "IP"}) {
+            milvusConfig.getCollection().setMetricType(metric);
+            for (float similarity : new float[]{0.3f, 0.5f, 0.75f, 0.95f}) {
+                float roundTrip = milvusService.convertScoreToSimilarity(milvusService.similarityToRadius(similarity));
+                assertEquals(similarity, roundTrip, 1e-4f, metric + " @ " + similarity);
+            }
+        }
+    }
+    
+    @Test
+    void mergeKeepsGlobalTopKAcrossShards() {
+        List<CompletableFuture<List<MilvusService.SearchResult>>> shards = List.of(
+                shard(result("a", 0.91f), result("b", 0.62f)),
+                shard(result("c", 0.88f), result("d", 0.87f), result("e", 0.10f)),
+                shard(result("f", 0.95f)));
+        
+        List<MilvusService.SearchResult> merged = milvusService.mergeShardResults(shards, 3);
+        
+        assertEquals(List.of("f", "a", "c"), faceIds(merged));
+    }
+    
+    @Test
+    void mergeReturnsFewerThanTopKWhenShardsAreSparse() {
+        List<MilvusService.SearchResult> merged = milvusService.mergeShardResults(List.of(
+                shard(result("a", 0.5f)),
+                shard()), 5);
+        
+        assertEquals(List.of("a"), faceIds(merged));
+    }
+    
+    @Test
+    void mergeToleratesMinorityRemoteFailure() {
+        List<MilvusService.SearchResult> merged = milvusService.mergeShardResults(List.of(
+                shard(result("a", 0.7f)),
+                shard(result("b", 0.9f)),
+                CompletableFuture.completedFuture(null)), 2);
+        
+        assertEquals(List.of("b", "a"), faceIds(merged));
+    }
+    
+    @Test
+    void mergeFailsWhenPrimaryShardFails() {
+        List<CompletableFuture<List<MilvusService.SearchResult>>> shards = List.of(
+                CompletableFuture.completedFuture(null),
+                shard(result("a", 0.9f)),
+                shard(result("b", 0.8f)));
+        
+        assertThrows(RuntimeException.class, () -> milvusService.mergeShardResults(shards, 2));
+    }
+    
+    @Test
+    void mergeFailsWhenMostShardsFail() {
+        List<CompletableFuture<List<MilvusService.SearchResult>>> shards = List.of(
+                shard(result("a", 0.9f)),
+                CompletableFuture.completedFuture(null),
+                CompletableFuture.completedFuture(null));
+        
+        assertThrows(RuntimeException.class, () -> milvusService.mergeShardResults(shards, 2));
+    }
+    
+    @Test
+    void mergeFailsWhenFailureLeavesNoResults() {
+        List<CompletableFuture<List<MilvusService.SearchResult>>> shards = List.of(
+                shard(),
+                shard(),
+                CompletableFuture.completedFuture(null));
+        
+        assertThrows(RuntimeException.class, () -> milvusService.mergeShardResults(shards, 2));
+    }
+    
+    @SafeVarargs
+    private static CompletableFuture<List<MilvusService.SearchResult>> shard(MilvusService.SearchResult... results) {
+        return CompletableFuture.completedFuture(new ArrayList<>(Arrays.asList(results)));
+    }
+    
+    private static MilvusService.SearchResult result(String faceId, float similarity) {
+        MilvusService.SearchResult result = new MilvusService.SearchResult();
+        result.faceInfo = FaceInfo.builder().faceId(faceId).build();
+        result.similarity = similarity;
+        return result;
+    }
+    
+    private static List<String> faceIds(List<MilvusService.SearchResult> results) {
+        List<String> faceIds = new ArrayList<>();
+        for (MilvusService.SearchResult result : results) {
+            faceIds.add(result.faceInfo.getFaceId());
+        }
+        return faceIds;
+    }
+}
@@ -0,0 +1,133 @@
+package com.facerecognition.service;
+
+import com.facerecognition.dto.PriorityLaneStats;
+import com.facerecognition.exception.ServiceOverloadedException;
+import com.facerecognition.util.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrioritySchedulerTest {
+    
+    @Test
+    void bulkPermitsAreFloorOfShareWithMinimumOne() {
+        assertEquals(2, new PriorityScheduler("r", "a", 4, 0.5f).getBulkPermits());
+        assertEquals(4, new PriorityScheduler("r", "a", 16, 0.25f).getBulkPermits());
+        assertEquals(1, new PriorityScheduler("r", "a", 3, 0.1f).getBulkPermits());
+        assertEquals(3, new PriorityScheduler("r", "a", 3, 1.5f).getBulkPermits());
+    }
+    
+    @Test
+    void bulkIsCappedButHigherPrioritiesUseRemainingPermits() throws Exception {
+        PriorityScheduler scheduler = new PriorityScheduler("r", "a", 4, 0.5f);
+        scheduler.acquire(Priority.BULK, 100);
+        scheduler.acquire(Priority.BULK, 100);
+        
+        Thread bulk = new Thread(() -> {
+            scheduler.acquire(Priority.BULK, 100);
+            scheduler.release(Priority.BULK);
+        });
+        bulk.start();
+        waitUntil(() -> waiting(scheduler, Priority.BULK) == 1);
+        
+        // 批量任务已达上限，交互式与普通请求仍能拿到剩余许可
+        scheduler.acquire(Priority.INTERACTIVE, 100);
+        scheduler.acquire(Priority.STANDARD, 100);
+        assertEquals(2, scheduler.getStats().getInUse().get("BULK"));
+        
+        scheduler.release(Priority.INTERACTIVE);
+        Thread.sleep(50);
+        assertTrue(bulk.isAlive(), "批量许可已满时批量任务不应借用空出的许可");
+        
+        scheduler.release(Priority.BULK);
+        bulk.join(2000);
+        assertFalse(bulk.isAlive());
+    }
+    
+    @Test
+    void freedPermitGoesToHighestPriorityWaiter() throws Exception {
+        PriorityScheduler scheduler = new PriorityScheduler("r", "a", 1, 1.0f);
+        scheduler.acquire(Priority.STANDARD, 100);
+        
+        List<Priority> order = new CopyOnWriteArrayList<>();
+        Thread bulk = waiter(scheduler, Priority.BULK, () -> order.add(Priority.BULK));
+        waitUntil(() -> waiting(scheduler, Priority.BULK) == 1);
+        Thread standard = waiter(scheduler, Priority.STANDARD, () -> order.add(Priority.STANDARD));
+        waitUntil(() -> waiting(scheduler, Priority.STANDARD) == 1);
+        Thread interactive = waiter(scheduler, Priority.INTERACTIVE, () -> order.add(Priority.INTERACTIVE));
+        waitUntil(() -> waiting(scheduler, Priority.INTERACTIVE) == 1);
+        
+        scheduler.release(Priority.STANDARD);
+        for (Thread thread : new Thread[]{bulk, standard, interactive}) {
+            thread.join(2000);
+        }
+        
+        assertEquals(List.of(Priority.INTERACTIVE, Priority.STANDARD, Priority.BULK), order);
+    }
+    
+    @Test
+    void sameLaneIsFirstComeFirstServed() throws Exception {
+        PriorityScheduler scheduler = new PriorityScheduler("r", "a", 1, 1.0f);
+        scheduler.acquire(Priority.STANDARD, 100);
+        
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int index = i;
+            threads.add(waiter(scheduler, Priority.STANDARD, () -> order.add(index)));
+            waitUntil(() -> waiting(scheduler, Priority.STANDARD) == index + 1);
+        }
+        
+        scheduler.release(Priority.STANDARD);
+        for (Thread thread : threads) {
+            thread.join(2000);
+        }
+        
+        assertEquals(List.of(0, 1, 2), order);
+    }
+    
+    @Test
+    void nonBulkWaiterTimesOut() {
+        PriorityScheduler scheduler = new PriorityScheduler("推理资源", "推理", 1, 1.0f);
+        scheduler.acquire(Priority.STANDARD, 100);
+        
+        assertThrows(ServiceOverloadedException.class, () -> scheduler.acquire(Priority.INTERACTIVE, 20));
+        assertEquals(0, scheduler.getQueueLength());
+        
+        scheduler.release(Priority.STANDARD);
+        scheduler.acquire(Priority.INTERACTIVE, 20);
+    }
+    
+    /**
+     * 启动一个等待许可的线程，获得许可后执行 onAcquire 并立即归还
+     */
+    private static Thread waiter(PriorityScheduler scheduler, Priority priority, Runnable onAcquire) {
+        Thread thread = new Thread(() -> {
+            scheduler.acquire(priority, 2000);
+            onAcquire.run();
+            scheduler.release(priority);
+        });
+        thread.start();
+        return thread;
+    }
+    
+    private static int waiting(PriorityScheduler scheduler, Priority priority) {
+        PriorityLaneStats stats = scheduler.getStats();
+        return stats.getWaiting().get(priority.name());
+    }
+    
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待条件超时");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.facerecognition.service;
+
+import com.facerecognition.config.FaceConfig;
+import com.facerecognition.dto.RecognizeResult;
+import com.facerecognition.exception.ServiceOverloadedException;
+import com.facerecognition.model.FaceInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecognitionResultCacheTest {
+    
+    private static final byte[] IMAGE = "image-bytes".getBytes(StandardCharsets.US_ASCII);
+    
+    private FaceConfig faceConfig;
+    private FaceMetadataCache metadataCache;
+    private RecognitionResultCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        faceConfig = new FaceConfig();
+        metadataCache = new FaceMetadataCache();
+        cache = new RecognitionResultCache();
+        ReflectionTestUtils.setField(cache, "faceConfig", faceConfig);
+        ReflectionTestUtils.setField(cache, "faceMetadataCache", metadataCache);
+    }
+    
+    @Test
+    void keyDependsOnContentAndEveryParameter() {
+        String key = cache.key(IMAGE, 0.6f, 5, "fast", "g1");
+        
+        assertEquals(key, cache.key(IMAGE.clone(), 0.6f, 5, "fast", "g1"));
+        assertNotEquals(key, cache.key("image-bytez".getBytes(StandardCharsets.US_ASCII), 0.6f, 5, "fast", "g1"));
+        assertNotEquals(key, cache.key(IMAGE, 0.7f, 5, "fast", "g1"));
+        assertNotEquals(key, cache.key(IMAGE, 0.6f, 1, "fast", "g1"));
+        assertNotEquals(key, cache.key(IMAGE, 0.6f, 5, "exact", "g1"));
+        assertNotEquals(key, cache.key(IMAGE, 0.6f, 5, "fast", "g2"));
+        assertNotEquals(key, cache.key(IMAGE, 0.6f, 5, null, "g1"));
+        assertNotEquals(key, cache.key(IMAGE, 0.6f, 5, "fast", null));
+    }
+    
+    @Test
+    void variantSeparatesAlignedFromFullRecognition() {
+        String full = cache.key(IMAGE, 0.6f, 5, null, null);
+        
+        assertEquals(full, cache.key(IMAGE, null, 0.6f, 5, null, null));
+        assertNotEquals(full, cache.key(IMAGE, "aligned", 0.6f, 5, null, null));
+        assertNotEquals(cache.key(IMAGE, "aligned:[1.0]", 0.6f, 5, null, null),
+                cache.key(IMAGE, "aligned:[2.0]", 0.6f, 5, null, null));
+    }
+    
+    @Test
+    void cachedResultIsReusedUntilGenerationChanges() {
+        AtomicInteger loads = new AtomicInteger();
+        String key = cache.key(IMAGE, 0.6f, 5, null, null);
+        
+        List<RecognizeResult> first = cache.get(key, () -> results(loads.incrementAndGet()));
+        List<RecognizeResult> second = cache.get(key, () -> results(loads.incrementAndGet()));
+        
+        assertEquals(1, loads.get());
+        assertEquals(first, second);
+        
+        metadataCache.put(FaceInfo.builder().faceId("f1").personId("p1").build());
+        
+        List<RecognizeResult> third = cache.get(key, () -> results(loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+        assertEquals("face-2", third.get(0).getFaceId());
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(2, cache.getStats().getMisses());
+    }
+    
+    @Test
+    void resultComputedDuringGalleryChangeIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        String key = cache.key(IMAGE, 0.6f, 5, null, null);
+        
+        cache.get(key, () -> {
+            metadataCache.removeFace("f1");
+            return results(loads.incrementAndGet());
+        });
+        cache.get(key, () -> results(loads.incrementAndGet()));
+        
+        assertEquals(2, loads.get());
+    }
+    
+    @Test
+    void expiredEntryIsRecomputed() throws Exception {
+        faceConfig.getResultCache().setTtlMs(1);
+        AtomicInteger loads = new AtomicInteger();
+        String key = cache.key(IMAGE, 0.6f, 5, null, null);
+        
+        cache.get(key, () -> results(loads.incrementAndGet()));
+        Thread.sleep(10);
+        cache.get(key, () -> results(loads.incrementAndGet()));
+        
+        assertEquals(2, loads.get());
+    }
+    
+    @Test
+    void failureIsNotCached() {
+        String key = cache.key(IMAGE, 0.6f, 5, null, null);
+        
+        assertThrows(IllegalStateException.class, () -> cache.get(key, () -> {
+            throw new IllegalStateException("boom");
+        }));
+        
+        assertEquals("face-1", cache.get(key, () -> results(1)).get(0).getFaceId());
+    }
+    
+    @Test
+    void disabledCacheAlwaysLoads() {
+        faceConfig.getResultCache().setEnabled(false);
+        AtomicInteger loads = new AtomicInteger();
+        String key = cache.key(IMAGE, 0.6f, 5, null, null);
+        
+        cache.get(key, () -> results(loads.incrementAndGet()));
+        cache.get(key, () -> results(loads.incrementAndGet()));
+        
+        assertEquals(2, loads.get());
+    }
+    
+    @Test
+    void concurrentRequestsShareOneLoad() throws Exception {
+        String key = cache.key(IMAGE, 0.6f, 5, null, null);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        CompletableFuture<List<RecognizeResult>> leader = CompletableFuture.supplyAsync(() -> cache.get(key, () -> {
+            leaderStarted.countDown();
+            await(release);
+            return results(loads.incrementAndGet());
+        }));
+        assertTrue(leaderStarted.await(2, TimeUnit.SECONDS));
+        
+        CompletableFuture<List<RecognizeResult>> follower = CompletableFuture.supplyAsync(
+                () -> cache.get(key, () -> results(loads.incrementAndGet())));
+        waitForCoalesced(1);
+        release.countDown();
+        
+        assertEquals(leader.get(2, TimeUnit.SECONDS), follower.get(2, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+    
+    @Test
+    void followerRetriesWhenLeaderIsOverloaded() throws Exception {
+        String key = cache.key(IMAGE, 0.6f, 5, null, null);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        CompletableFuture<List<RecognizeResult>> leader = CompletableFuture.supplyAsync(() -> cache.get(key, () -> {
+            leaderStarted.countDown();
+            await(release);
+            throw new ServiceOverloadedException("busy");
+        }));
+        assertTrue(leaderStarted.await(2, TimeUnit.SECONDS));
+        
+        CompletableFuture<List<RecognizeResult>> follower = CompletableFuture.supplyAsync(
+                () -> cache.get(key, () -> results(7)));
+        waitForCoalesced(1);
+        release.countDown();
+        
+        assertEquals("face-7", follower.get(2, TimeUnit.SECONDS).get(0).getFaceId());
+        Exception leaderError = assertThrows(Exception.class, () -> leader.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(ServiceOverloadedException.class, leaderError.getCause());
+    }
+    
+    private void waitForCoalesced(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (cache.getStats().getCoalesced() < expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待并发合并超时");
+            }
+            Thread.sleep(5);
+        }
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static List<RecognizeResult> results(int n) {
+        return List.of(RecognizeResult.builder().faceId("face-" + n).similarity(0.9f).build());
+    }
+}
@@ -0,0 +1,111 @@
+package com.facerecognition.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingFileTest {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void roundTripAcrossBatches() throws IOException {
+        Path path = dir.resolve("faces.femb");
+        float[][] first = {{1f, 2f, 3f}, {4f, 5f, 6f}};
+        float[][] second = {{-1.5f, 0f, Float.MIN_VALUE}};
+        
+        try (EmbeddingFile.Writer writer = new EmbeddingFile.Writer(path, 3)) {
+            writer.write(first);
+            writer.write(second);
+            assertEquals(3, writer.getRows());
+        }
+        
+        assertEquals(EmbeddingFile.HEADER_SIZE + 3 * 3 * Float.BYTES, Files.size(path));
+        
+        try (EmbeddingFile.Reader reader = new EmbeddingFile.Reader(path)) {
+            assertEquals(3, reader.getDimension());
+            assertEquals(3, reader.getRows());
+            
+            float[][] all = reader.read(0, 10);
+            assertEquals(3, all.length);
+            assertArrayEquals(first[0], all[0]);
+            assertArrayEquals(first[1], all[1]);
+            assertArrayEquals(second[0], all[2]);
+            
+            float[][] tail = reader.read(1, 1);
+            assertEquals(1, tail.length);
+            assertArrayEquals(first[1], tail[0]);
+            
+            assertEquals(0, reader.read(3, 5).length);
+        }
+    }
+    
+    @Test
+    void headerIsLittleEndian() throws IOException {
+        Path path = dir.resolve("faces.femb");
+        try (EmbeddingFile.Writer writer = new EmbeddingFile.Writer(path, 2)) {
+            writer.write(new float[][]{{1f, 2f}});
+        }
+        
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[4];
+        header.get(magic);
+        assertArrayEquals(EmbeddingFile.MAGIC, magic);
+        assertEquals(EmbeddingFile.VERSION, header.getInt());
+        assertEquals(2, header.getInt());
+        header.getInt();
+        assertEquals(1L, header.getLong());
+        header.getLong();
+        assertEquals(1f, header.getFloat());
+        assertEquals(2f, header.getFloat());
+    }
+    
+    @Test
+    void rejectsDimensionMismatch() throws IOException {
+        try (EmbeddingFile.Writer writer = new EmbeddingFile.Writer(dir.resolve("faces.femb"), 3)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.write(new float[][]{{1f, 2f}}));
+            assertThrows(IllegalArgumentException.class, () -> writer.write(new float[][]{null}));
+        }
+    }
+    
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Path path = dir.resolve("other.bin");
+        Files.write(path, new byte[EmbeddingFile.HEADER_SIZE + 8]);
+        
+        assertThrows(IOException.class, () -> new EmbeddingFile.Reader(path));
+    }
+    
+    @Test
+    void rejectsTooShortFile() throws IOException {
+        Path path = dir.resolve("short.bin");
+        Files.write(path, EmbeddingFile.MAGIC);
+        
+        assertThrows(IOException.class, () -> new EmbeddingFile.Reader(path));
+    }
+    
+    @Test
+    void rejectsTruncatedData() throws IOException {
+        Path path = dir.resolve("faces.femb");
+        try (EmbeddingFile.Writer writer = new EmbeddingFile.Writer(path, 4)) {
+            writer.write(new float[][]{{1f, 2f, 3f, 4f}, {5f, 6f, 7f, 8f}});
+        }
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(path) - Float.BYTES);
+        }
+        
+        IOException e = assertThrows(IOException.class, () -> new EmbeddingFile.Reader(path));
+        assertTrue(e.getMessage().contains("不完整"));
+    }
+}
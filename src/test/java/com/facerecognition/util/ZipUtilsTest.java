@@ -0,0 +1,132 @@
+package com.facerecognition.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipUtilsTest {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void isImageChecksExtensionCaseInsensitively() {
+        assertTrue(ZipUtils.isImage("a.jpg"));
+        assertTrue(ZipUtils.isImage("dir/b.JPEG"));
+        assertTrue(ZipUtils.isImage("c.webp"));
+        assertFalse(ZipUtils.isImage("manifest.csv"));
+        assertFalse(ZipUtils.isImage("noextension"));
+    }
+    
+    @Test
+    void readImagesKeepsOrderAndSkipsNonImages() throws IOException {
+        byte[] zip = zip(
+                "people/", null,
+                "people/a.jpg", "A",
+                "__MACOSX/people/._a.jpg", "meta",
+                "people/.hidden.png", "H",
+                "manifest.csv", "file,personId",
+                "people/b.png", "B");
+        
+        Map<String, byte[]> images = ZipUtils.readImages(new ByteArrayInputStream(zip), 10, 100);
+        
+        assertEquals(List.of("people/a.jpg", "people/b.png"), List.copyOf(images.keySet()));
+        assertEquals("A", new String(images.get("people/a.jpg"), StandardCharsets.UTF_8));
+        assertEquals("B", new String(images.get("people/b.png"), StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void readImagesRejectsTooManyImages() throws IOException {
+        byte[] zip = zip("a.jpg", "A", "b.jpg", "B", "c.jpg", "C");
+        
+        IOException e = assertThrows(IOException.class,
+                () -> ZipUtils.readImages(new ByteArrayInputStream(zip), 2, 100));
+        assertTrue(e.getMessage().contains("超过上限"));
+    }
+    
+    @Test
+    void readImagesRejectsOversizedEntry() throws IOException {
+        byte[] zip = zip("a.jpg", "x".repeat(101));
+        
+        IOException e = assertThrows(IOException.class,
+                () -> ZipUtils.readImages(new ByteArrayInputStream(zip), 10, 100));
+        assertTrue(e.getMessage().contains("过大"));
+    }
+    
+    @Test
+    void extractWritesFilesUnderTarget() throws IOException {
+        byte[] zip = zip(
+                "manifest.csv", "file,personId",
+                "images/a.jpg", "A",
+                "__MACOSX/images/._a.jpg", "meta");
+        Path target = dir.resolve("job");
+        
+        int count = ZipUtils.extract(new ByteArrayInputStream(zip), target, 10, 100);
+        
+        assertEquals(2, count);
+        assertEquals("A", Files.readString(target.resolve("images/a.jpg")));
+        assertEquals("file,personId", Files.readString(target.resolve("manifest.csv")));
+        assertFalse(Files.exists(target.resolve("__MACOSX")));
+    }
+    
+    @Test
+    void extractRejectsPathTraversal() throws IOException {
+        byte[] zip = zip("../escaped.jpg", "X");
+        Path target = dir.resolve("job");
+        
+        IOException e = assertThrows(IOException.class,
+                () -> ZipUtils.extract(new ByteArrayInputStream(zip), target, 10, 100));
+        assertTrue(e.getMessage().contains("路径非法"));
+        assertFalse(Files.exists(dir.resolve("escaped.jpg")));
+    }
+    
+    @Test
+    void extractRejectsAbsolutePath() throws IOException {
+        Path outside = dir.resolve("outside.jpg").toAbsolutePath();
+        byte[] zip = zip(outside.toString(), "X");
+        
+        assertThrows(IOException.class,
+                () -> ZipUtils.extract(new ByteArrayInputStream(zip), dir.resolve("job"), 10, 100));
+        assertFalse(Files.exists(outside));
+    }
+    
+    @Test
+    void extractEnforcesLimits() throws IOException {
+        byte[] many = zip("a.jpg", "A", "b.jpg", "B");
+        assertThrows(IOException.class,
+                () -> ZipUtils.extract(new ByteArrayInputStream(many), dir.resolve("many"), 1, 100));
+        
+        byte[] large = zip("a.jpg", "x".repeat(11));
+        assertThrows(IOException.class,
+                () -> ZipUtils.extract(new ByteArrayInputStream(large), dir.resolve("large"), 10, 10));
+    }
+    
+    /**
+     * 按 (名称, 内容) 成对构造zip包，内容为null时写入目录条目
+     */
+    private static byte[] zip(String... entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(entries[i]));
+                if (entries[i + 1] != null) {
+                    zip.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                }
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+}